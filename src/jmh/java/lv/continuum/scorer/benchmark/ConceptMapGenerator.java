@@ -0,0 +1,210 @@
+package lv.continuum.scorer.benchmark;
+
+import lombok.Builder;
+import lombok.Value;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.Concept;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.Relationship;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates random, but reproducible concept maps of a configurable {@link Shape}.
+ * <p>
+ * Concepts are laid out in levels, the sizes of which grow by the branching factor. Every concept below the first
+ * level is connected to a random concept on the level above, and the remaining relationships either point to
+ * deeper levels or, with the cycle rate, upwards.
+ */
+public class ConceptMapGenerator {
+
+    private static final List<String> NAMES = List.of("is", "contains", "belongs to", "is part of", "has");
+    private static final String EXAMPLE_NAME = "is example of";
+
+    @Value
+    @Builder
+    public static class Shape {
+
+        @Builder.Default
+        int conceptCount = 100;
+
+        /**
+         * Number of relationships per concept.
+         */
+        @Builder.Default
+        double density = 1.5;
+
+        /**
+         * Maximum number of levels.
+         */
+        @Builder.Default
+        int depth = 5;
+
+        /**
+         * Ratio between the sizes of consecutive levels.
+         */
+        @Builder.Default
+        double branching = 2;
+
+        /**
+         * Share of additional relationships that point upwards, possibly creating cycles.
+         */
+        @Builder.Default
+        double cycleRate = 0;
+
+        /**
+         * Share of relationships that are named as examples.
+         */
+        @Builder.Default
+        double exampleRate = 0.1;
+    }
+
+    /**
+     * Generated concepts and relationships, from which concept maps and their XML representations are created.
+     */
+    @Value
+    public static class GeneratedConceptMap {
+
+        List<Concept> concepts;
+        Set<Relationship> relationships;
+
+        public ConceptMap toConceptMap(String fileName) throws InvalidDataException {
+            return new ConceptMap(new LinkedHashSet<>(concepts), relationships, fileName);
+        }
+
+        public byte[] toStandardXml() {
+            var ids = new HashMap<Concept, Integer>();
+            var xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<conceptmap>\n    <concepts>\n");
+            for (var concept : concepts) {
+                ids.put(concept, ids.size());
+                xml.append("        <concept id=\"").append(ids.get(concept)).append("\">")
+                        .append(concept.name).append("</concept>\n");
+            }
+            xml.append("    </concepts>\n    <relationships>\n");
+            for (var r : relationships) {
+                xml.append("        <relationship from=\"").append(ids.get(r.fromConcept))
+                        .append("\" to=\"").append(ids.get(r.toConcept)).append("\">")
+                        .append(r.name).append("</relationship>\n");
+            }
+            xml.append("    </relationships>\n</conceptmap>\n");
+            return xml.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        public byte[] toIkasXml() {
+            var xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<element name=\"root\">\n");
+            for (var r : relationships) {
+                xml.append("    <element name=\"relation\" value=\"").append(r.name).append("\">\n")
+                        .append("        <element name=\"source\" value=\"").append(r.fromConcept.name).append("\"/>\n")
+                        .append("        <element name=\"target\" value=\"").append(r.toConcept.name).append("\"/>\n")
+                        .append("    </element>\n");
+            }
+            for (var concept : concepts) {
+                xml.append("    <element name=\"node\" value=\"").append(concept.name).append("\"/>\n");
+            }
+            xml.append("</element>\n");
+            return xml.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final Shape shape;
+    private final long seed;
+
+    private final List<Concept> concepts = new ArrayList<>();
+    private final int[] levels;
+    private final int[] levelStarts;
+
+    public ConceptMapGenerator(Shape shape, long seed) throws InvalidDataException {
+        this.shape = shape;
+        this.seed = seed;
+
+        var conceptCount = shape.conceptCount;
+        var depth = Math.max(1, Math.min(shape.depth, conceptCount));
+        var weights = new double[depth];
+        var weightSum = 0.0;
+        for (var l = 0; l < depth; l++) {
+            weights[l] = Math.pow(shape.branching, l);
+            weightSum += weights[l];
+        }
+
+        // Every level contains at least one concept, and the last level takes the rest
+        levelStarts = new int[depth + 1];
+        for (var l = 1; l < depth; l++) {
+            var size = Math.max(1, (int) Math.round(conceptCount * weights[l - 1] / weightSum));
+            levelStarts[l] = Math.min(levelStarts[l - 1] + size, conceptCount - (depth - l));
+        }
+        levelStarts[depth] = conceptCount;
+
+        levels = new int[conceptCount];
+        for (var l = 0; l < depth; l++) {
+            for (var c = levelStarts[l]; c < levelStarts[l + 1]; c++) {
+                levels[c] = l;
+            }
+        }
+        for (var c = 0; c < conceptCount; c++) {
+            concepts.add(new Concept("concept-" + c));
+        }
+    }
+
+    public GeneratedConceptMap teacher() {
+        var random = new Random(seed);
+        var relationships = new LinkedHashSet<Relationship>();
+        if (levelStarts.length > 2) {
+            for (var c = levelStarts[1]; c < concepts.size(); c++) {
+                var parentLevel = levels[c] - 1;
+                relationships.add(relationship(random, randomConcept(random, parentLevel, parentLevel), c));
+            }
+        }
+        addRelationships(random, relationships, relationshipCount());
+        return new GeneratedConceptMap(List.copyOf(concepts), relationships);
+    }
+
+    /**
+     * @param overlap Share of teacher relationships that the student concept map contains. The remaining ones are
+     *                replaced by random relationships between the same concepts.
+     */
+    public GeneratedConceptMap student(double overlap) {
+        var random = new Random(seed + 1);
+        var relationships = new LinkedHashSet<Relationship>();
+        for (var r : teacher().relationships) {
+            if (random.nextDouble() < overlap) relationships.add(r);
+        }
+        addRelationships(random, relationships, relationshipCount());
+        return new GeneratedConceptMap(List.copyOf(concepts), relationships);
+    }
+
+    private int relationshipCount() {
+        return Math.max(1, (int) Math.round(shape.conceptCount * shape.density));
+    }
+
+    private void addRelationships(Random random, Set<Relationship> relationships, int relationshipCount) {
+        var deepestLevel = levelStarts.length - 2;
+        var attempts = relationshipCount * 4;
+        while (relationships.size() < relationshipCount && attempts-- > 0) {
+            if (random.nextDouble() < shape.cycleRate || deepestLevel == 0) {
+                var to = random.nextInt(concepts.size());
+                var from = randomConcept(random, levels[to], deepestLevel);
+                relationships.add(relationship(random, from, to));
+            } else {
+                var from = randomConcept(random, 0, deepestLevel - 1);
+                var to = randomConcept(random, levels[from] + 1, deepestLevel);
+                relationships.add(relationship(random, from, to));
+            }
+        }
+    }
+
+    private int randomConcept(Random random, int fromLevel, int toLevel) {
+        var start = levelStarts[fromLevel];
+        return start + random.nextInt(levelStarts[toLevel + 1] - start);
+    }
+
+    private Relationship relationship(Random random, int from, int to) {
+        var name = random.nextDouble() < shape.exampleRate ? EXAMPLE_NAME : NAMES.get(random.nextInt(NAMES.size()));
+        return new Relationship(concepts.get(from), concepts.get(to), name);
+    }
+}
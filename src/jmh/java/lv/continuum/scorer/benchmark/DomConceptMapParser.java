@@ -0,0 +1,113 @@
+package lv.continuum.scorer.benchmark;
+
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.domain.Concept;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.Relationship;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * DOM parser that {@link lv.continuum.scorer.logic.ConceptMapParser} has replaced, kept as it was, apart from reading
+ * from a stream and not logging, so that the single-pass StAX parser can be compared with it.
+ */
+public class DomConceptMapParser {
+
+    public ConceptMap parse(InputStream input, String fileName) throws Exception {
+        var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
+        document.getDocumentElement().normalize();
+
+        try {
+            if (document.getDocumentElement().getNodeName().equals("conceptmap")) {
+                return parseStandard(document, fileName);
+            } else if (document.getDocumentElement().getAttributes().getNamedItem("name").getNodeValue().equals("root")) {
+                return parseIkas(document, fileName);
+            } else {
+                throw new InvalidDataException(ErrorCode.INVALID_XML, fileName);
+            }
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new InvalidDataException(ErrorCode.INVALID_XML, fileName);
+        }
+    }
+
+    private ConceptMap parseStandard(Document document, String fileName) throws InvalidDataException {
+        var conceptNodes = document.getElementsByTagName("concept");
+        var concepts = new HashMap<Integer, Concept>();
+        for (var i = 0; i < conceptNodes.getLength(); i++) {
+            var node = conceptNodes.item(i);
+            var name = node.getTextContent();
+            if (hasDuplicateConcept(concepts.values(), name)) {
+                throw new InvalidDataException(ErrorCode.CONCEPT_MAP_DUPLICATE_CONCEPTS, fileName);
+            }
+            var documentId = Integer.parseInt(node.getAttributes().getNamedItem("id").getNodeValue());
+            concepts.put(documentId, new Concept(name));
+        }
+
+        var relationshipNodes = document.getElementsByTagName("relationship");
+        var relationships = new HashSet<Relationship>();
+        for (var i = 0; i < relationshipNodes.getLength(); i++) {
+            var node = relationshipNodes.item(i);
+            var fromDocumentId = Integer.parseInt(node.getAttributes().getNamedItem("from").getNodeValue());
+            var toDocumentId = Integer.parseInt(node.getAttributes().getNamedItem("to").getNodeValue());
+            var fromConcept = concepts.get(fromDocumentId);
+            var toConcept = concepts.get(toDocumentId);
+            relationships.add(new Relationship(fromConcept, toConcept, node.getTextContent()));
+        }
+        return new ConceptMap(new HashSet<>(concepts.values()), relationships, fileName);
+    }
+
+    private ConceptMap parseIkas(Document document, String fileName) throws InvalidDataException {
+        var concepts = new HashMap<String, Concept>();
+        var elementNodes = document.getElementsByTagName("element");
+        for (var i = 0; i < elementNodes.getLength(); i++) {
+            var node = elementNodes.item(i);
+            if (node.getAttributes().getNamedItem("name").getNodeValue().equals("node")) {
+                var name = node.getAttributes().getNamedItem("value").getNodeValue();
+                if (hasDuplicateConcept(concepts.values(), name)) {
+                    throw new InvalidDataException(ErrorCode.CONCEPT_MAP_DUPLICATE_CONCEPTS, fileName);
+                }
+                concepts.put(name, new Concept(name));
+            }
+        }
+
+        var relationships = new HashSet<Relationship>();
+        for (var i = 0; i < elementNodes.getLength(); i++) {
+            var node = elementNodes.item(i);
+            if (node.getAttributes().getNamedItem("name").getNodeValue().equals("relation")) {
+                String fromConceptName = null, toConceptName = null;
+                var nodeValue = node.getAttributes().getNamedItem("value").getNodeValue();
+                var relationshipNodes = ((Element) node).getElementsByTagName("element");
+                for (var j = 0; j < relationshipNodes.getLength(); j++) {
+                    var relationshipNode = relationshipNodes.item(j);
+                    var relationshipNodeName = relationshipNode.getAttributes().getNamedItem("name").getNodeValue();
+                    var relationshipNodeValue = relationshipNode.getAttributes().getNamedItem("value").getNodeValue();
+                    if (relationshipNodeName.equals("source")) {
+                        fromConceptName = relationshipNodeValue;
+                    } else if (relationshipNodeName.equals("target")) {
+                        toConceptName = relationshipNodeValue;
+                    }
+                }
+                if (fromConceptName == null || toConceptName == null) {
+                    throw new InvalidDataException(ErrorCode.CONCEPT_MAP_INVALID_RELATIONSHIP, fileName);
+                }
+
+                var fromConcept = concepts.get(fromConceptName);
+                var toConcept = concepts.get(toConceptName);
+                relationships.add(new Relationship(fromConcept, toConcept, nodeValue));
+            }
+        }
+        return new ConceptMap(new HashSet<>(concepts.values()), relationships, fileName);
+    }
+
+    private boolean hasDuplicateConcept(Collection<Concept> concepts, String name) {
+        var id = Concept.deriveId(name);
+        return concepts.stream().anyMatch(c -> c.id.equals(id));
+    }
+}
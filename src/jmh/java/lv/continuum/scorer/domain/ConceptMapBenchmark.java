@@ -0,0 +1,102 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.benchmark.ConceptMapGenerator;
+import lv.continuum.scorer.benchmark.ConceptMapGenerator.Shape;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
+import lv.continuum.scorer.common.InvalidDataException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the kernels behind {@link ConceptMap} metrics directly, as the map itself memoises their results. Paths
+ * are calculated by a concept map created by every invocation, so that the reachability index and proposition chains
+ * it memoises are included in the measurements. The number of paths grows combinatorially with cycles, so path
+ * calculations stop at {@value #MAX_PATHS} paths, the same way as comparisons with a budget.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConceptMapBenchmark {
+
+    private static final long MAX_PATHS = 1_000_000;
+    private static final Budget BUDGET = Budget.of(MAX_PATHS, null);
+
+    @Param({"10", "100", "1000", "10000"})
+    int conceptCount;
+
+    @Param({"0", "0.05"})
+    double cycleRate;
+
+    private Set<Concept> concepts;
+    private Set<Relationship> relationships;
+    private ConceptGraph graph;
+
+    @Setup
+    public void setUp() throws InvalidDataException {
+        var shape = Shape.builder().conceptCount(conceptCount).cycleRate(cycleRate).build();
+        var generated = new ConceptMapGenerator(shape, 1).teacher();
+        concepts = new LinkedHashSet<>(generated.getConcepts());
+        relationships = generated.getRelationships();
+        graph = ConceptGraph.of(concepts, relationships);
+    }
+
+    @Benchmark
+    public ConceptMap create() throws InvalidDataException {
+        return new ConceptMap(concepts, relationships, "benchmark.xml");
+    }
+
+    @Benchmark
+    public ConceptMapMetrics metrics() {
+        return ConceptMapMetrics.calculate(graph, relationships);
+    }
+
+    @Benchmark
+    public int[] levels() {
+        return StructureAnalysis.levels(graph);
+    }
+
+    @Benchmark
+    public int subnetCount() {
+        return StructureAnalysis.subnetCount(graph);
+    }
+
+    @Benchmark
+    public boolean containsCycles() {
+        return StructureAnalysis.containsCycles(graph);
+    }
+
+    @Benchmark
+    public ReachabilityIndex reachability() {
+        return new ReachabilityIndex(graph);
+    }
+
+    @Benchmark
+    public long propositionChains() {
+        return new PropositionChains(graph).count();
+    }
+
+    @Benchmark
+    public BudgetedResult<Map<Relationship, Set<Relationship>>> allPaths() throws InvalidDataException {
+        return create().allPaths(BUDGET);
+    }
+
+    @Benchmark
+    public BudgetedResult<Map<Relationship, Set<Relationship>>> allPathsParallel() throws InvalidDataException {
+        return create().allPaths(BUDGET, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public BudgetedResult<Set<List<Concept>>> longestPaths() throws InvalidDataException {
+        return create().longestPaths(BUDGET);
+    }
+}
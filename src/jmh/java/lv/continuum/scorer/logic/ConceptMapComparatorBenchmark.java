@@ -0,0 +1,77 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.benchmark.ConceptMapGenerator;
+import lv.continuum.scorer.benchmark.ConceptMapGenerator.GeneratedConceptMap;
+import lv.continuum.scorer.benchmark.ConceptMapGenerator.Shape;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.ConceptMapComparator.SimilarityDegrees;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures scoring of a student concept map against a resident teacher {@link ScoringKey}. The student concept map
+ * is created by every invocation, so that the structures it memoises are included in the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConceptMapComparatorBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int conceptCount;
+
+    @Param({"0.8"})
+    double overlap;
+
+    private GeneratedConceptMap student;
+    private ScoringKey scoringKey;
+
+    @Setup
+    public void setUp() throws InvalidDataException {
+        var generator = new ConceptMapGenerator(Shape.builder().conceptCount(conceptCount).build(), 1);
+        student = generator.student(overlap);
+        scoringKey = new ScoringKey(generator.teacher().toConceptMap("teacher.xml"));
+    }
+
+    private ConceptMap studentConceptMap() throws InvalidDataException {
+        return student.toConceptMap("student.xml");
+    }
+
+    @Benchmark
+    public double closenessIndexes() throws InvalidDataException {
+        return scoringKey.compareUsingClosenessIndexes(studentConceptMap());
+    }
+
+    @Benchmark
+    public double importanceIndexes() throws InvalidDataException {
+        return scoringKey.compareUsingImportanceIndexes(studentConceptMap());
+    }
+
+    @Benchmark
+    public double propositionChains() throws InvalidDataException {
+        return scoringKey.compareUsingPropositionChains(studentConceptMap());
+    }
+
+    @Benchmark
+    public SimilarityDegrees errorAnalysis() throws InvalidDataException {
+        return scoringKey.compareUsingErrorAnalysis(studentConceptMap());
+    }
+
+    @Benchmark
+    public double closenessIndexesParallel() throws InvalidDataException {
+        return new ConceptMapComparator(studentConceptMap(), scoringKey, ForkJoinPool.commonPool())
+                .compareUsingClosenessIndexes();
+    }
+
+    @Benchmark
+    public SimilarityDegrees errorAnalysisParallel() throws InvalidDataException {
+        return new ConceptMapComparator(studentConceptMap(), scoringKey, ForkJoinPool.commonPool())
+                .compareUsingErrorAnalysis();
+    }
+}
@@ -0,0 +1,59 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.benchmark.ConceptMapGenerator;
+import lv.continuum.scorer.benchmark.ConceptMapGenerator.Shape;
+import lv.continuum.scorer.benchmark.DomConceptMapParser;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.ConceptMapSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of the same generated XML by {@link ConceptMapParser} and by the {@link DomConceptMapParser} it
+ * has replaced, and reading of the equivalent snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConceptMapParserBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int conceptCount;
+
+    @Param({"standard", "ikas"})
+    String format;
+
+    private final ConceptMapParser parser = new ConceptMapParser();
+    private final DomConceptMapParser domParser = new DomConceptMapParser();
+    private byte[] xml;
+    private ByteBuffer snapshot;
+
+    @Setup
+    public void setUp() throws InvalidDataException {
+        var generated = new ConceptMapGenerator(Shape.builder().conceptCount(conceptCount).build(), 1).teacher();
+        xml = format.equals("standard") ? generated.toStandardXml() : generated.toIkasXml();
+        snapshot = ConceptMapSnapshot.write(parse());
+    }
+
+    @Benchmark
+    public ConceptMap parse() throws InvalidDataException {
+        return parser.parse(new ByteArrayInputStream(xml), "benchmark.xml");
+    }
+
+    @Benchmark
+    public ConceptMap parseDom() throws Exception {
+        return domParser.parse(new ByteArrayInputStream(xml), "benchmark.xml");
+    }
+
+    @Benchmark
+    public ConceptMap readSnapshot() throws InvalidDataException {
+        return ConceptMapSnapshot.read(snapshot.duplicate(), "benchmark.cmap");
+    }
+}
@@ -0,0 +1,57 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.benchmark.ConceptMapGenerator;
+import lv.continuum.scorer.benchmark.ConceptMapGenerator.Shape;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.ConceptMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the similarity matrix of a cohort of student concept maps, both in memory and in a memory-mapped file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimilarityMatrixBenchmark {
+
+    @Param({"50", "200"})
+    int cohortSize;
+
+    @Param({"100"})
+    int conceptCount;
+
+    private List<ConceptMap> conceptMaps;
+
+    @Setup
+    public void setUp() throws InvalidDataException {
+        var shape = Shape.builder().conceptCount(conceptCount).build();
+        conceptMaps = new ArrayList<>();
+        for (var seed = 0; seed < cohortSize; seed++) {
+            conceptMaps.add(new ConceptMapGenerator(shape, seed).student(0.8).toConceptMap("student.xml"));
+        }
+    }
+
+    @Benchmark
+    public double inMemory() throws IOException {
+        try (var matrix = SimilarityMatrix.calculate(conceptMaps, SimilarityMatrix.METHODS, ForkJoinPool.commonPool())) {
+            return matrix.similarity(ScoringMethod.CLOSENESS_INDEXES, 0, cohortSize - 1);
+        }
+    }
+
+    @Benchmark
+    public double spilled() throws IOException {
+        try (var matrix = SimilarityMatrix.calculate(
+                conceptMaps, SimilarityMatrix.METHODS, ForkJoinPool.commonPool(), 0, null)) {
+            return matrix.similarity(ScoringMethod.CLOSENESS_INDEXES, 0, cohortSize - 1);
+        }
+    }
+}
@@ -1,20 +1,71 @@
 package lv.continuum.scorer;
 
 import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.batch.BatchOptions;
+import lv.continuum.scorer.batch.BatchScorer;
+import lv.continuum.scorer.batch.CohortOptions;
+import lv.continuum.scorer.batch.CohortScorer;
+import lv.continuum.scorer.batch.ConceptMapFiles;
+import lv.continuum.scorer.batch.FolderWatcher;
+import lv.continuum.scorer.batch.WatchOptions;
+import lv.continuum.scorer.common.InvalidDataException;
 import lv.continuum.scorer.common.TranslationException;
 import lv.continuum.scorer.common.Translations;
+import lv.continuum.scorer.domain.ConceptMapSnapshot;
+import lv.continuum.scorer.logic.ConceptMapFormatter;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.service.ScoringService;
+import lv.continuum.scorer.service.ServiceOptions;
 import lv.continuum.scorer.ui.ConceptMapScorerFrame;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * The main class is named {@code Scorer} because Swing uses it as the application name.
+ * <p>
+ * Without arguments the main application window is opened. With {@value #BATCH_COMMAND} as the first argument
+ * a cohort of student concept maps is scored without any UI. With {@value #SERVICE_COMMAND} as the first argument
+ * concept maps are scored over HTTP until the process is stopped. With {@value #WATCH_COMMAND} as the first argument
+ * concept maps are scored as they arrive in the watched folders until the process is stopped. With
+ * {@value #COHORT_COMMAND} as the first argument student concept maps are compared with each other. With
+ * {@value #SNAPSHOT_COMMAND} as the first argument XML concept maps are converted to {@link ConceptMapSnapshot}s.
  */
 @Slf4j
 public class Scorer {
 
+    private static final String BATCH_COMMAND = "batch";
+    private static final String COHORT_COMMAND = "cohort";
+    private static final String SERVICE_COMMAND = "service";
+    private static final String SNAPSHOT_COMMAND = "snapshot";
+    private static final String WATCH_COMMAND = "watch";
+
+    private static final int EXIT_CODE_SCORING_FAILED = 1;
+    private static final int EXIT_CODE_INVALID_ARGUMENTS = 2;
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals(BATCH_COMMAND)) {
+            System.exit(runBatch(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals(COHORT_COMMAND)) {
+            System.exit(runCohort(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals(SNAPSHOT_COMMAND)) {
+            System.exit(runSnapshot(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals(SERVICE_COMMAND)) {
+            var exitCode = runService(Arrays.copyOfRange(args, 1, args.length));
+            if (exitCode != 0) System.exit(exitCode);
+            return;
+        }
+        if (args.length > 0 && args[0].equals(WATCH_COMMAND)) {
+            var exitCode = runWatch(Arrays.copyOfRange(args, 1, args.length));
+            if (exitCode != 0) System.exit(exitCode);
+            return;
+        }
+
         EventQueue.invokeLater(() -> {
             try {
                 new ConceptMapScorerFrame(new Translations());
@@ -30,4 +81,119 @@ public class Scorer {
             }
         });
     }
+
+    private static int runBatch(String[] args) {
+        var translations = new Translations();
+        try {
+            var summary = new BatchScorer(translations, BatchOptions.parse(args)).run(System.out);
+            return summary.getFailed() > 0 ? EXIT_CODE_SCORING_FAILED : 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ".");
+            System.err.println(translations.get("batch-usage"));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        } catch (InvalidDataException e) {
+            System.err.println(new ConceptMapFormatter(translations).formatError(e));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        } catch (Exception e) {
+            log.error("Issue while scoring concept maps", e);
+            return EXIT_CODE_SCORING_FAILED;
+        }
+    }
+
+    private static int runCohort(String[] args) {
+        var translations = new Translations();
+        try {
+            var summary = new CohortScorer(translations, CohortOptions.parse(args)).run(System.out);
+            return summary.getFailed() > 0 ? EXIT_CODE_SCORING_FAILED : 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ".");
+            System.err.println(translations.get("cohort-usage"));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        } catch (Exception e) {
+            log.error("Issue while comparing concept maps", e);
+            return EXIT_CODE_SCORING_FAILED;
+        }
+    }
+
+    private static int runService(String[] args) {
+        var translations = new Translations();
+        try {
+            var service = new ScoringService(translations, ServiceOptions.parse(args));
+            service.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+            System.out.println(translations.format("service-started", service.getPort()));
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ".");
+            System.err.println(translations.get("service-usage"));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        } catch (InvalidDataException e) {
+            System.err.println(new ConceptMapFormatter(translations).formatError(e));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        } catch (Exception e) {
+            log.error("Issue while starting scoring service", e);
+            return EXIT_CODE_SCORING_FAILED;
+        }
+    }
+
+    private static int runWatch(String[] args) {
+        var translations = new Translations();
+        try {
+            var watcher = new FolderWatcher(translations, WatchOptions.parse(args));
+            watcher.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    log.error("Issue while stopping watching folders", e);
+                }
+            }));
+            System.out.println(translations.format("watch-started", watcher.getFolderCount()));
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ".");
+            System.err.println(translations.get("watch-usage"));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        } catch (InvalidDataException e) {
+            System.err.println(new ConceptMapFormatter(translations).formatError(e));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        } catch (Exception e) {
+            log.error("Issue while starting watching folders", e);
+            return EXIT_CODE_SCORING_FAILED;
+        }
+    }
+
+    /**
+     * Writes a snapshot next to every XML concept map, e.g. {@code student.xml.cmap} next to {@code student.xml}.
+     */
+    private static int runSnapshot(String[] args) {
+        var translations = new Translations();
+        if (args.length == 0) {
+            System.err.println(translations.get("snapshot-usage"));
+            return EXIT_CODE_INVALID_ARGUMENTS;
+        }
+
+        var conceptMapParser = new ConceptMapParser();
+        var conceptMapFormatter = new ConceptMapFormatter(translations);
+        var failed = false;
+        try {
+            for (var path : ConceptMapFiles.resolveXml(Arrays.asList(args))) {
+                var snapshotPath = ConceptMapFiles.snapshotPath(path);
+                try {
+                    ConceptMapSnapshot.write(conceptMapParser.parse(path.toString()), snapshotPath);
+                    System.out.println(translations.format("snapshot-written", path, snapshotPath));
+                } catch (InvalidDataException e) {
+                    System.out.println(path + ": " + conceptMapFormatter.formatError(e));
+                    failed = true;
+                } catch (IOException e) {
+                    log.error("Issue while writing snapshot of {}", path, e);
+                    failed = true;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Issue while resolving concept map files", e);
+            return EXIT_CODE_SCORING_FAILED;
+        }
+        return failed ? EXIT_CODE_SCORING_FAILED : 0;
+    }
 }
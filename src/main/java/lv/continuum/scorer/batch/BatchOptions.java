@@ -0,0 +1,129 @@
+package lv.continuum.scorer.batch;
+
+import lombok.Value;
+import lv.continuum.scorer.common.Arguments;
+import lv.continuum.scorer.logic.ScoringMethod;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Command line options of the batch mode, e.g.:
+ * <p>
+ * {@code batch --teacher teacher.xml --methods closeness-indexes,error-analysis --threads 4 students/*.xml}
+ * <p>
+ * The number of {@code --threads} applies to both parsing and scoring, unless {@code --parse-threads} or
+ * {@code --score-threads} is given. Each pipeline stage buffers up to {@code --buffer} concept maps.
+ * Results are written in the {@code --format} of {@link ResultFormat} to {@code --output}, if given.
+ * Comparisons of a student concept map that enumerate more than {@code --max-paths} paths or take more than
+ * {@code --max-time} seconds in total are stopped and reported as exceeded. Results are cached in the
+ * {@code --cache} file, if given, so that unchanged concept maps are not scored again by later runs.
+ */
+@Value
+public class BatchOptions {
+
+    private static final int BUFFER_SIZE_PER_THREAD = 4;
+
+    String teacherPath;
+    List<String> studentPatterns;
+    Set<ScoringMethod> methods;
+    int threads;
+    int parseThreads;
+    int scoreThreads;
+    int bufferSize;
+    ResultFormat format;
+    String outputPath;
+    long maxPaths;
+
+    /**
+     * Maximum time of scoring a single student concept map, or {@code null} if it is not limited.
+     */
+    Duration maxTime;
+
+    /**
+     * Path of the {@link lv.continuum.scorer.logic.ScoreCache} file, or {@code null} if results are not cached.
+     */
+    String cachePath;
+
+    /**
+     * @throws IllegalArgumentException if the arguments are invalid or incomplete.
+     */
+    public static BatchOptions parse(String... args) {
+        String teacherPath = null;
+        var studentPatterns = new ArrayList<String>();
+        Set<ScoringMethod> methods = EnumSet.allOf(ScoringMethod.class);
+        var threads = Runtime.getRuntime().availableProcessors();
+        Integer parseThreads = null, scoreThreads = null, bufferSize = null;
+        var format = ResultFormat.TEXT;
+        String outputPath = null;
+        var maxPaths = Long.MAX_VALUE;
+        Duration maxTime = null;
+        String cachePath = null;
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--teacher":
+                    teacherPath = Arguments.value(args, ++i);
+                    break;
+                case "--methods":
+                    methods = ScoringMethod.fromKeys(Arguments.value(args, ++i));
+                    break;
+                case "--threads":
+                    threads = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--parse-threads":
+                    parseThreads = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--score-threads":
+                    scoreThreads = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--buffer":
+                    bufferSize = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--format":
+                    format = ResultFormat.fromKey(Arguments.value(args, ++i));
+                    break;
+                case "--output":
+                    outputPath = Arguments.value(args, ++i);
+                    break;
+                case "--max-paths":
+                    maxPaths = Arguments.parsePositiveLong(Arguments.value(args, ++i));
+                    break;
+                case "--max-time":
+                    maxTime = Duration.ofSeconds(Arguments.parsePositive(Arguments.value(args, ++i)));
+                    break;
+                case "--cache":
+                    cachePath = Arguments.value(args, ++i);
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    studentPatterns.add(args[i]);
+            }
+        }
+        if (teacherPath == null) {
+            throw new IllegalArgumentException("Teacher concept map is not specified");
+        }
+        if (studentPatterns.isEmpty()) {
+            throw new IllegalArgumentException("Student concept maps are not specified");
+        }
+        return new BatchOptions(
+                teacherPath,
+                List.copyOf(studentPatterns),
+                Set.copyOf(methods),
+                threads,
+                parseThreads != null ? parseThreads : threads,
+                scoreThreads != null ? scoreThreads : threads,
+                bufferSize != null ? bufferSize : threads * BUFFER_SIZE_PER_THREAD,
+                format,
+                outputPath,
+                maxPaths,
+                maxTime,
+                cachePath
+        );
+    }
+}
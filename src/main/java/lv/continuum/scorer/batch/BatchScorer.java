@@ -0,0 +1,352 @@
+package lv.continuum.scorer.batch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.common.Translations;
+import lv.continuum.scorer.domain.ConceptDictionary;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.ConceptMapCache;
+import lv.continuum.scorer.logic.ConceptMapFormatter;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.logic.ConceptMapScorer;
+import lv.continuum.scorer.logic.ScoreCache;
+import lv.continuum.scorer.logic.ScoringKey;
+import lv.continuum.scorer.logic.ScoringMethod;
+import lv.continuum.scorer.monitoring.ScoringEvent;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Scores a cohort of student concept maps against a single teacher concept map without any UI.
+ * <p>
+ * The teacher concept map is compiled into a {@link ScoringKey} once and shared by all comparisons.
+ * Student concept maps flow through a pipeline of stages connected with bounded buffers: file enumeration, parsing
+ * (including reading), scoring and printing. Parsing and scoring have their own worker threads, and printing
+ * back-pressures them, so the number of concept maps in memory does not depend on the size of the cohort. A student
+ * concept map that cannot be parsed or scored is reported and does not stop the run, and so is one whose comparisons
+ * exceed the {@link Budget} given in the options, but separately from failures. If a cache file is given in the
+ * options, the results are looked up in a {@link ScoreCache} and stored in it.
+ */
+@Slf4j
+public class BatchScorer {
+
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final BatchOptions options;
+    private final Translations translations;
+    private final ConceptMapCache conceptMapCache;
+    private final ConceptMapFormatter conceptMapFormatter;
+    private final ConceptMapScorer conceptMapScorer;
+
+    public BatchScorer(Translations translations, BatchOptions options) {
+        this(translations, options, new ConceptMapCache(new ConceptMapParser(new ConceptDictionary())));
+    }
+
+    /**
+     * @param conceptMapCache Cache that may be shared by several runs, so that unchanged concept maps, e.g. the
+     *                        teacher concept map, are not parsed again.
+     */
+    public BatchScorer(Translations translations, BatchOptions options, ConceptMapCache conceptMapCache) {
+        this.options = options;
+        this.translations = translations;
+        this.conceptMapCache = conceptMapCache;
+        this.conceptMapFormatter = new ConceptMapFormatter(translations);
+        this.conceptMapScorer = new ConceptMapScorer(conceptMapFormatter);
+    }
+
+    /**
+     * Scores all student concept maps and prints the results to {@code out} as soon as they are available.
+     * Results in other formats than {@link ResultFormat#TEXT} are written to the output file instead, if it is given,
+     * and in that case only the summary is printed to {@code out}.
+     *
+     * @throws InvalidDataException if the teacher concept map cannot be parsed.
+     */
+    public Summary run(PrintStream out) throws IOException, InvalidDataException, InterruptedException {
+        var startTime = System.nanoTime();
+        var studentPaths = ConceptMapFiles.resolve(options.getStudentPatterns());
+        var teacherConceptMap = parse(Path.of(options.getTeacherPath()));
+        var cachePath = options.getCachePath();
+        try (var scoreCache = cachePath != null ? ScoreCache.open(Path.of(cachePath)) : null) {
+            var summary = run(out, studentPaths, new ScoringKey(teacherConceptMap, scoreCache), startTime);
+            if (scoreCache != null) log.debug("Score cache statistics {}", scoreCache.stats());
+            return summary;
+        }
+    }
+
+    private Summary run(PrintStream out, List<Path> studentPaths, ScoringKey scoringKey, long startTime)
+            throws IOException, InterruptedException {
+        log.debug(
+                "Started scoring {} student concept maps using {} parse and {} score threads",
+                studentPaths.size(),
+                options.getParseThreads(),
+                options.getScoreThreads()
+        );
+
+        var delivery = Executors.newCachedThreadPool();
+        var paths = new SubmissionPublisher<Path>(delivery, options.getBufferSize());
+        var parseStage = new PipelineStage<Path, Parsed>(
+                options.getParseThreads(),
+                options.getBufferSize(),
+                delivery,
+                this::parseStudent
+        );
+        var scoreStage = new PipelineStage<Parsed, Scored>(
+                options.getScoreThreads(),
+                options.getBufferSize(),
+                delivery,
+                parsed -> score(parsed, scoringKey)
+        );
+        var outputChannel = openOutput(out);
+        var records = options.getFormat() != ResultFormat.TEXT
+                ? new RecordWriter(outputChannel, options.getFormat(), FLUSH_INTERVAL)
+                : null;
+        var writer = new ResultWriter(out, records);
+        paths.subscribe(parseStage);
+        parseStage.subscribe(scoreStage);
+        scoreStage.subscribe(writer);
+        try {
+            for (var studentPath : studentPaths) {
+                // Blocks while the parse stage is behind
+                paths.submit(studentPath);
+            }
+            paths.close();
+            writer.done.get();
+        } catch (InterruptedException e) {
+            paths.closeExceptionally(e);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IllegalStateException("Issue while scoring student concept maps", e.getCause());
+        } finally {
+            paths.close();
+            delivery.shutdown();
+            if (records != null) records.close();
+            if (options.getOutputPath() != null) outputChannel.close();
+        }
+
+        var summary = new Summary(
+                studentPaths.size() - writer.failed,
+                writer.failed,
+                writer.exceeded,
+                Duration.ofNanos(System.nanoTime() - startTime)
+        );
+        if (records == null || options.getOutputPath() != null) {
+            out.println(translations.format(
+                    "batch-summary",
+                    summary.getScored(),
+                    studentPaths.size(),
+                    summary.getElapsed().toMillis() / 1000D
+            ));
+            if (summary.getExceeded() > 0) {
+                out.println(translations.format("batch-exceeded", summary.getExceeded()));
+            }
+        }
+        log.debug("Finished scoring student concept maps");
+        return summary;
+    }
+
+    private WritableByteChannel openOutput(PrintStream out) throws IOException {
+        if (options.getOutputPath() == null) return Channels.newChannel(out);
+        return FileChannel.open(
+                Path.of(options.getOutputPath()),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        );
+    }
+
+    private Parsed parseStudent(Path studentPath) {
+        try {
+            return new Parsed(studentPath, parse(studentPath), null);
+        } catch (InvalidDataException e) {
+            log.debug("Issue while parsing concept map {}", studentPath, e);
+            return new Parsed(studentPath, null, e);
+        } catch (RuntimeException e) {
+            log.error("Issue while parsing concept map {}", studentPath, e);
+            return new Parsed(studentPath, null, new InvalidDataException(ErrorCode.INVALID_FILE));
+        }
+    }
+
+    private Scored score(Parsed parsed, ScoringKey scoringKey) {
+        var structured = options.getFormat() != ResultFormat.TEXT;
+        if (parsed.conceptMap == null) {
+            return failed(parsed.path, parsed.error.errorCode, conceptMapFormatter.formatError(parsed.error));
+        }
+        var event = new ScoringEvent();
+        event.begin();
+        var budget = Budget.of(options.getMaxPaths(), options.getMaxTime());
+        try {
+            if (structured) {
+                var record = ResultRecords.scored(
+                        parsed.path,
+                        parsed.conceptMap,
+                        scoringKey,
+                        options.getMethods(),
+                        budget
+                );
+                return new Scored(parsed.path, null, record, false, ResultRecords.isExceeded(record));
+            }
+            var listener = new TextListener();
+            conceptMapScorer.scoreAgainst(
+                    parsed.conceptMap,
+                    Optional.of(scoringKey),
+                    options.getMethods(),
+                    budget,
+                    listener
+            );
+            return new Scored(parsed.path, String.join("\n\n", listener.sections), null, false, listener.exceeded);
+        } catch (RuntimeException e) {
+            log.error("Issue while scoring concept map {}", parsed.path, e);
+            return failed(parsed.path, ErrorCode.INVALID_FILE, translations.get(ErrorCode.INVALID_FILE.translationKey));
+        } finally {
+            if (event.shouldCommit()) {
+                event.fileName = parsed.path.toString();
+                event.conceptCount = parsed.conceptMap.conceptCount();
+                event.relationshipCount = parsed.conceptMap.relationshipCount();
+                event.commit();
+            }
+        }
+    }
+
+    private Scored failed(Path path, ErrorCode errorCode, String text) {
+        return options.getFormat() != ResultFormat.TEXT
+                ? new Scored(path, null, ResultRecords.failed(path, errorCode), true, false)
+                : new Scored(path, text, null, true, false);
+    }
+
+    private ConceptMap parse(Path path) throws InvalidDataException {
+        try {
+            return conceptMapCache.parse(path.toString());
+        } catch (InvalidDataException e) {
+            throw e;
+        } catch (Exception e) {
+            log.debug("Issue while parsing concept map {}", path, e);
+            throw new InvalidDataException(ErrorCode.INVALID_FILE, path.getFileName().toString());
+        }
+    }
+
+    /**
+     * Student concept map that has been parsed, or the error if it cannot be parsed.
+     */
+    @Value
+    private static class Parsed {
+        Path path;
+        ConceptMap conceptMap;
+        InvalidDataException error;
+    }
+
+    /**
+     * Scoring result as text or as a record, depending on the {@link ResultFormat}.
+     */
+    @Value
+    private static class Scored {
+        Path path;
+        String text;
+        Map<String, Object> record;
+        boolean failed;
+        boolean exceeded;
+    }
+
+    /**
+     * Collects formatted sections of a single student concept map.
+     */
+    private static class TextListener implements ConceptMapScorer.Listener {
+
+        private final List<String> sections = new ArrayList<>();
+        private boolean exceeded;
+
+        @Override
+        public void sectionScored(String section) {
+            sections.add(section);
+        }
+
+        @Override
+        public void budgetExceeded(ScoringMethod method) {
+            exceeded = true;
+        }
+    }
+
+    /**
+     * Last stage of the pipeline, which prints or writes the results one at a time.
+     */
+    @RequiredArgsConstructor
+    private static class ResultWriter implements Flow.Subscriber<Scored> {
+
+        private final PrintStream out;
+        private final RecordWriter records;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        // Read once done is completed
+        private int failed;
+        private int exceeded;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Scored scored) {
+            if (scored.failed) failed++;
+            if (scored.exceeded) exceeded++;
+            if (records != null) {
+                try {
+                    records.write(scored.record);
+                } catch (IOException e) {
+                    subscription.cancel();
+                    done.completeExceptionally(e);
+                    return;
+                }
+            } else {
+                out.println(scored.path);
+                out.println(scored.text);
+                out.println();
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+
+    @Value
+    public static class Summary {
+        int scored;
+        int failed;
+
+        /**
+         * Number of scored student concept maps with at least one comparison that has exceeded the budget.
+         */
+        int exceeded;
+        Duration elapsed;
+    }
+}
@@ -0,0 +1,93 @@
+package lv.continuum.scorer.batch;
+
+import lombok.Value;
+import lv.continuum.scorer.common.Arguments;
+import lv.continuum.scorer.logic.ScoringMethod;
+import lv.continuum.scorer.logic.SimilarityMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Command line options of the cohort mode, e.g.:
+ * <p>
+ * {@code cohort --methods closeness-indexes --top 3 --threads 4 students/*.xml}
+ * <p>
+ * Student concept maps are compared with each other using the {@code --methods} of {@link SimilarityMatrix#METHODS},
+ * all of them by default, and the {@code --top} most similar ones of each are written in the {@code --format} of
+ * {@link ResultFormat} to {@code --output}, if given. Similarity matrices larger than {@code --max-memory} megabytes
+ * are stored in a temporary file.
+ */
+@Value
+public class CohortOptions {
+
+    private static final int DEFAULT_TOP = 5;
+
+    List<String> studentPatterns;
+    Set<ScoringMethod> methods;
+    int threads;
+    int top;
+    long maxMemoryBytes;
+    ResultFormat format;
+    String outputPath;
+
+    /**
+     * @throws IllegalArgumentException if the arguments are invalid or incomplete.
+     */
+    public static CohortOptions parse(String... args) {
+        var studentPatterns = new ArrayList<String>();
+        var methods = SimilarityMatrix.METHODS;
+        var threads = Runtime.getRuntime().availableProcessors();
+        var top = DEFAULT_TOP;
+        var maxMemoryBytes = SimilarityMatrix.DEFAULT_MAX_MEMORY_BYTES;
+        var format = ResultFormat.TEXT;
+        String outputPath = null;
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--methods":
+                    var keys = Arguments.value(args, ++i);
+                    methods = keys.equals("all") ? SimilarityMatrix.METHODS : ScoringMethod.fromKeys(keys);
+                    for (var method : methods) {
+                        if (!SimilarityMatrix.METHODS.contains(method)) {
+                            throw new IllegalArgumentException("Scoring method " + method.key + " is not symmetric");
+                        }
+                    }
+                    break;
+                case "--threads":
+                    threads = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--top":
+                    top = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--max-memory":
+                    maxMemoryBytes = Arguments.parsePositive(Arguments.value(args, ++i)) * 1024L * 1024;
+                    break;
+                case "--format":
+                    format = ResultFormat.fromKey(Arguments.value(args, ++i));
+                    break;
+                case "--output":
+                    outputPath = Arguments.value(args, ++i);
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    studentPatterns.add(args[i]);
+            }
+        }
+        if (studentPatterns.isEmpty()) {
+            throw new IllegalArgumentException("Student concept maps are not specified");
+        }
+        return new CohortOptions(
+                List.copyOf(studentPatterns),
+                Set.copyOf(methods),
+                threads,
+                top,
+                maxMemoryBytes,
+                format,
+                outputPath
+        );
+    }
+}
@@ -0,0 +1,239 @@
+package lv.continuum.scorer.batch;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.common.Json;
+import lv.continuum.scorer.common.Translations;
+import lv.continuum.scorer.domain.ConceptDictionary;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.ConceptMapCache;
+import lv.continuum.scorer.logic.ConceptMapFormatter;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.logic.SimilarityMatrix;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Compares every student concept map of a cohort with every other one without any UI, e.g. to find students who
+ * copy each other, and writes the nearest concept maps of each student.
+ * <p>
+ * Student concept maps are parsed and compared in a single {@link ForkJoinPool}, which calculates a
+ * {@link SimilarityMatrix} of the whole cohort, and then the most similar concept maps of each student are written
+ * in the order of the students. A student concept map that cannot be parsed is reported and left out of the
+ * comparisons.
+ */
+@Slf4j
+public class CohortScorer {
+
+    private static final String CSV_HEADER = "file,error,method,rank,neighbour,similarity\n";
+
+    private final CohortOptions options;
+    private final Translations translations;
+    private final ConceptMapCache conceptMapCache;
+    private final ConceptMapFormatter conceptMapFormatter;
+
+    public CohortScorer(Translations translations, CohortOptions options) {
+        this.options = options;
+        this.translations = translations;
+        this.conceptMapCache = new ConceptMapCache(new ConceptMapParser(new ConceptDictionary()));
+        this.conceptMapFormatter = new ConceptMapFormatter(translations);
+    }
+
+    /**
+     * Compares the student concept maps and prints the nearest ones of each student to {@code out}, or writes them to
+     * the output file, if it is given, and in that case only the summary is printed to {@code out}.
+     */
+    public Summary run(PrintStream out) throws IOException, InterruptedException {
+        var startTime = System.nanoTime();
+        var studentPaths = ConceptMapFiles.resolve(options.getStudentPatterns());
+        var pool = new ForkJoinPool(options.getThreads());
+        try (var writer = openOutput(out)) {
+            var parsed = parseAll(studentPaths, pool);
+            var comparedPaths = new ArrayList<Path>();
+            var conceptMaps = new ArrayList<ConceptMap>();
+            for (var p : parsed) {
+                if (p.conceptMap == null) continue;
+                comparedPaths.add(p.path);
+                conceptMaps.add(p.conceptMap);
+            }
+            log.debug(
+                    "Started comparing {} student concept maps using {} threads",
+                    conceptMaps.size(),
+                    options.getThreads()
+            );
+
+            try (var matrix = SimilarityMatrix.calculate(
+                    conceptMaps,
+                    options.getMethods(),
+                    pool,
+                    options.getMaxMemoryBytes(),
+                    null
+            )) {
+                if (matrix.isSpilled()) log.debug("Similarity matrix is stored in a temporary file");
+                if (options.getFormat() == ResultFormat.CSV) writer.write(CSV_HEADER);
+                var i = 0;
+                for (var p : parsed) {
+                    writer.write(p.conceptMap != null
+                            ? formatNearest(p.path, matrix, i++, comparedPaths)
+                            : formatError(p.path, p.error));
+                }
+            }
+
+            var failed = studentPaths.size() - conceptMaps.size();
+            var summary = new Summary(conceptMaps.size(), failed, Duration.ofNanos(System.nanoTime() - startTime));
+            if (options.getFormat() == ResultFormat.TEXT || options.getOutputPath() != null) {
+                writer.flush();
+                out.println(translations.format(
+                        "cohort-summary",
+                        summary.getCompared(),
+                        studentPaths.size(),
+                        summary.getElapsed().toMillis() / 1000D
+                ));
+            }
+            log.debug("Finished comparing student concept maps");
+            return summary;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Writer openOutput(PrintStream out) throws IOException {
+        if (options.getOutputPath() == null) {
+
+            // The stream stays open once the results are written
+            return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        return Files.newBufferedWriter(Path.of(options.getOutputPath()));
+    }
+
+    private List<Parsed> parseAll(List<Path> studentPaths, ForkJoinPool pool) throws InterruptedException {
+        try {
+            return pool.submit(() -> studentPaths
+                    .parallelStream()
+                    .map(this::parse)
+                    .collect(Collectors.toList())
+            ).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Issue while parsing student concept maps", e.getCause());
+        }
+    }
+
+    private Parsed parse(Path path) {
+        try {
+            return new Parsed(path, conceptMapCache.parse(path.toString()), null);
+        } catch (InvalidDataException e) {
+            log.debug("Issue while parsing concept map {}", path, e);
+            return new Parsed(path, null, e);
+        } catch (Exception e) {
+            log.debug("Issue while parsing concept map {}", path, e);
+            var error = new InvalidDataException(ErrorCode.INVALID_FILE, path.getFileName().toString());
+            return new Parsed(path, null, error);
+        }
+    }
+
+    private String formatNearest(Path path, SimilarityMatrix matrix, int index, List<Path> paths) {
+        var output = new StringBuilder();
+        var record = new LinkedHashMap<String, Object>();
+        record.put(ResultRecords.FILE, path.toString());
+        if (options.getFormat() == ResultFormat.TEXT) output.append(path).append('\n');
+        for (var method : matrix.methods()) {
+            var nearest = matrix.nearest(method, index, options.getTop());
+            switch (options.getFormat()) {
+                case TEXT:
+                    output.append(translations.get("method-" + method.key)).append(":\n");
+                    for (var rank = 1; rank <= nearest.size(); rank++) {
+                        var neighbour = nearest.get(rank - 1);
+                        output.append(translations.format(
+                                "cohort-neighbour",
+                                rank,
+                                paths.get(neighbour.index),
+                                neighbour.similarity
+                        )).append('\n');
+                    }
+                    break;
+                case JSONL:
+                    var neighbours = new ArrayList<Map<String, Object>>();
+                    for (var neighbour : nearest) {
+                        var neighbourRecord = new LinkedHashMap<String, Object>();
+                        neighbourRecord.put(ResultRecords.FILE, paths.get(neighbour.index).toString());
+                        neighbourRecord.put("similarity", neighbour.similarity);
+                        neighbours.add(neighbourRecord);
+                    }
+                    record.put(method.key, neighbours);
+                    break;
+                case CSV:
+                    for (var rank = 1; rank <= nearest.size(); rank++) {
+                        var neighbour = nearest.get(rank - 1);
+                        output.append(csvRow(
+                                path,
+                                "",
+                                method.key,
+                                rank,
+                                paths.get(neighbour.index),
+                                neighbour.similarity
+                        ));
+                    }
+                    break;
+            }
+        }
+        if (options.getFormat() == ResultFormat.JSONL) return Json.write(record) + "\n";
+        return options.getFormat() == ResultFormat.TEXT ? output.append('\n').toString() : output.toString();
+    }
+
+    private String formatError(Path path, InvalidDataException e) {
+        switch (options.getFormat()) {
+            case JSONL:
+                return Json.write(ResultRecords.failed(path, e.errorCode)) + "\n";
+            case CSV:
+                return csvRow(path, e.errorCode.name(), "", "", "", "");
+            default:
+                return path + "\n" + conceptMapFormatter.formatError(e) + "\n\n";
+        }
+    }
+
+    private static String csvRow(Object... values) {
+        return Arrays.stream(values)
+                .map(value -> RecordWriter.csvValue(value.toString()))
+                .collect(Collectors.joining(",")) + "\n";
+    }
+
+    /**
+     * Student concept map that has been parsed, or the error if it cannot be parsed.
+     */
+    @Value
+    private static class Parsed {
+        Path path;
+        ConceptMap conceptMap;
+        InvalidDataException error;
+    }
+
+    @Value
+    public static class Summary {
+        int compared;
+        int failed;
+        Duration elapsed;
+    }
+}
@@ -0,0 +1,116 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.domain.ConceptMapSnapshot;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves concept map files from files, directories and glob patterns given on the command line.
+ */
+public class ConceptMapFiles {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private ConceptMapFiles() {
+        // Do nothing
+    }
+
+    /**
+     * Resolves each pattern as follows:
+     * <ul>
+     * <li>a directory is expanded into the XML files and snapshots it contains;</li>
+     * <li>a glob pattern, e.g. {@code students/**.xml}, is expanded into the files that match it;</li>
+     * <li>anything else is kept as is, so that a missing file is reported as a scoring error.</li>
+     * </ul>
+     * An XML file is left out if its snapshot, e.g. {@code anna.xml.cmap} next to {@code anna.xml}, is resolved as
+     * well, so that each concept map is resolved once.
+     */
+    public static List<Path> resolve(List<String> patterns) throws IOException {
+        var paths = resolveAll(patterns);
+        var snapshotPaths = paths.stream()
+                .filter(ConceptMapSnapshot::isSnapshot)
+                .map(p -> p.toAbsolutePath().normalize())
+                .collect(Collectors.toSet());
+        return paths.stream()
+                .filter(p -> !isXml(p) || !snapshotPaths.contains(snapshotPath(p).toAbsolutePath().normalize()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same as {@link #resolve(List)}, but only resolves XML files, including the ones that have snapshots.
+     */
+    public static List<Path> resolveXml(List<String> patterns) throws IOException {
+        return resolveAll(patterns).stream().filter(ConceptMapFiles::isXml).collect(Collectors.toList());
+    }
+
+    /**
+     * @return Path of the snapshot of the XML file, e.g. {@code anna.xml.cmap} next to {@code anna.xml}.
+     */
+    public static Path snapshotPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ConceptMapSnapshot.FILE_EXTENSION);
+    }
+
+    private static List<Path> resolveAll(List<String> patterns) throws IOException {
+        var paths = new ArrayList<Path>();
+        for (var pattern : patterns) {
+            if (isGlob(pattern)) {
+                paths.addAll(resolveGlob(pattern));
+            } else {
+                var path = Path.of(pattern);
+                if (Files.isDirectory(path)) {
+                    paths.addAll(resolveDirectory(path));
+                } else {
+                    paths.add(path);
+                }
+            }
+        }
+        return paths;
+    }
+
+    public static boolean isXml(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".xml");
+    }
+
+    public static boolean isConceptMap(Path path) {
+        return isXml(path) || ConceptMapSnapshot.isSnapshot(path);
+    }
+
+    private static boolean isGlob(String pattern) {
+        return pattern.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+    }
+
+    private static List<Path> resolveDirectory(Path directory) throws IOException {
+        try (var stream = Files.list(directory)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .filter(ConceptMapFiles::isConceptMap)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<Path> resolveGlob(String pattern) throws IOException {
+        var globIndex = 0;
+        while (GLOB_CHARACTERS.indexOf(pattern.charAt(globIndex)) < 0) globIndex++;
+        var separatorIndex = pattern.lastIndexOf('/', globIndex);
+        var baseDirectory = Path.of(separatorIndex >= 0 ? pattern.substring(0, separatorIndex + 1) : "");
+        if (!Files.isDirectory(baseDirectory.toAbsolutePath())) {
+            return List.of();
+        }
+
+        var matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (var stream = Files.walk(baseDirectory)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package lv.continuum.scorer.batch;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.common.Translations;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.ConceptMapCache;
+import lv.continuum.scorer.logic.ConceptMapFormatter;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.logic.ConceptMapScorer;
+import lv.continuum.scorer.logic.ScoreCache;
+import lv.continuum.scorer.logic.ScoringKey;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches folders for student concept maps and scores each of them as soon as it has been written, against the
+ * teacher concept map of its folder, in a single resident JVM.
+ * <p>
+ * Files are written gradually, e.g. while they are being copied or uploaded, so a file is only scored once no
+ * changes have been reported for it during the debounce period and its size and modification time have not changed
+ * since the last report. Files are then scored by a pool of worker threads, and a file that has not changed since it
+ * has been scored is not scored again. Folders are watched without their subfolders, and the files that exist when
+ * watching starts are not scored. Results are written next to each student concept map, e.g. {@code anna.xml.txt}
+ * next to {@code anna.xml}, or appended to a single results file. Teacher concept maps are parsed once, when
+ * watching starts, and are not scored even if they are in a watched folder.
+ */
+@Slf4j
+public class FolderWatcher implements Closeable {
+
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final WatchOptions options;
+    private final ConceptMapCache conceptMapCache;
+    private final ConceptMapFormatter conceptMapFormatter;
+    private final ConceptMapScorer conceptMapScorer;
+
+    private final Map<Path, ScoringKey> scoringKeys = new HashMap<>();
+    private final Set<Path> teacherPaths = new HashSet<>();
+
+    // Files waiting for the debounce period to pass, and files that have been scored
+    private final Map<Path, Change> changes = new ConcurrentHashMap<>();
+    private final Map<Path, FileStamp> scored = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService debouncer;
+    private final ExecutorService workers;
+    private WatchService watchService;
+    private Thread watcher;
+    private ScoreCache scoreCache;
+    private FileChannel output;
+    private RecordWriter records;
+
+    @Value
+    private static class FileStamp {
+        long size;
+        long modifiedTime;
+    }
+
+    /**
+     * Last change of a file, with its stamp at that time, or {@code null} if it did not exist.
+     */
+    @Value
+    private static class Change {
+        long time;
+        FileStamp stamp;
+    }
+
+    public FolderWatcher(Translations translations, WatchOptions options) {
+        this.options = options;
+
+        // A dictionary would keep every concept name that has ever been submitted, as the watcher has no cohort
+        this.conceptMapCache = new ConceptMapCache(new ConceptMapParser());
+        this.conceptMapFormatter = new ConceptMapFormatter(translations);
+        this.conceptMapScorer = new ConceptMapScorer(conceptMapFormatter);
+        this.debouncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "watch-debouncer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers = Executors.newFixedThreadPool(options.getThreads());
+    }
+
+    /**
+     * Parses the teacher concept maps and starts watching the folders.
+     *
+     * @throws InvalidDataException if any of the teacher concept maps cannot be parsed.
+     */
+    public void start() throws IOException, InvalidDataException {
+        if (options.getCachePath() != null) scoreCache = ScoreCache.open(Path.of(options.getCachePath()));
+        for (var teacher : options.getTeacherPaths().entrySet()) {
+            var folder = Path.of(teacher.getKey()).toAbsolutePath().normalize();
+            if (!Files.isDirectory(folder)) {
+                throw new NoSuchFileException(folder.toString(), null, "Folder to watch does not exist");
+            }
+            var teacherPath = Path.of(teacher.getValue()).toAbsolutePath().normalize();
+            scoringKeys.put(folder, new ScoringKey(parse(teacherPath), scoreCache));
+            teacherPaths.add(teacherPath);
+        }
+        if (options.getOutputPath() != null) {
+            output = FileChannel.open(
+                    Path.of(options.getOutputPath()),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+            );
+            if (options.getFormat() != ResultFormat.TEXT) {
+                records = new RecordWriter(output, options.getFormat(), FLUSH_INTERVAL, output.size() == 0);
+            }
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        for (var folder : scoringKeys.keySet()) {
+            folder.register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+        }
+        watcher = new Thread(this::watch, "folder-watcher");
+        watcher.start();
+        log.info("Started watching {} folders", scoringKeys.size());
+    }
+
+    public int getFolderCount() {
+        return scoringKeys.size();
+    }
+
+    /**
+     * Stops watching the folders and waits for the files that are being scored.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) watchService.close();
+        debouncer.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(1, TimeUnit.MINUTES)) workers.shutdownNow();
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            if (records != null) records.close();
+            if (output != null) output.close();
+            if (scoreCache != null) scoreCache.close();
+        }
+        log.info("Stopped watching folders");
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                var key = watchService.take();
+                var folder = (Path) key.watchable();
+                for (var event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+
+                        // Some events have been lost, so every file is checked for changes
+                        log.debug("Rescanning folder {}", folder);
+                        ConceptMapFiles.resolve(List.of(folder.toString())).forEach(this::changed);
+                        continue;
+                    }
+                    var path = folder.resolve((Path) event.context());
+                    if (ConceptMapFiles.isConceptMap(path)) changed(path);
+                }
+                if (!key.reset()) log.warn("Folder {} can no longer be watched", folder);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("Stopped watching folders");
+        } catch (IOException e) {
+            log.error("Issue while watching folders", e);
+        }
+    }
+
+    private void changed(Path path) {
+        if (teacherPaths.contains(path.toAbsolutePath().normalize())) return;
+        if (changes.put(path, new Change(System.nanoTime(), stamp(path))) == null) {
+            debouncer.schedule(() -> settle(path), options.getDebounce().toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Submits the file for scoring if it has not changed during the debounce period, or checks it again later.
+     */
+    private void settle(Path path) {
+        var change = changes.get(path);
+        var stamp = stamp(path);
+        var now = System.nanoTime();
+        var remaining = change.time + options.getDebounce().toNanos() - now;
+        if (remaining <= 0 && !Objects.equals(stamp, change.stamp)) {
+
+            // The file has been changed without a report, which starts the debounce period again
+            changes.replace(path, change, new Change(now, stamp));
+            remaining = options.getDebounce().toNanos();
+        }
+        if (remaining > 0 || !changes.remove(path, change)) {
+            debouncer.schedule(() -> settle(path), Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (stamp == null || stamp.equals(scored.put(path, stamp))) return;
+        workers.execute(() -> score(path));
+    }
+
+    private void score(Path path) {
+        var scoringKey = scoringKeys.get(path.getParent());
+        var structured = options.getFormat() != ResultFormat.TEXT;
+        try {
+            ConceptMap conceptMap;
+            try {
+                conceptMap = parse(path);
+            } catch (InvalidDataException e) {
+                log.debug("Issue while parsing concept map {}", path, e);
+                if (structured) {
+                    write(path, null, ResultRecords.failed(path, e.errorCode));
+                } else {
+                    write(path, conceptMapFormatter.formatError(e), null);
+                }
+                return;
+            }
+            if (structured) {
+                var record = ResultRecords.scored(
+                        path,
+                        conceptMap,
+                        scoringKey,
+                        options.getMethods(),
+                        Budget.UNLIMITED
+                );
+                write(path, null, record);
+            } else {
+                var sections = conceptMapScorer.scoreAgainst(conceptMap, Optional.of(scoringKey), options.getMethods());
+                write(path, String.join("\n\n", sections), null);
+            }
+            log.info("Scored concept map {}", path);
+        } catch (IOException e) {
+            log.error("Issue while writing results of concept map {}", path, e);
+        } catch (RuntimeException e) {
+            log.error("Issue while scoring concept map {}", path, e);
+        }
+    }
+
+    /**
+     * Writes either the formatted text or the record to the results file, or next to the student concept map.
+     */
+    private void write(Path path, String text, Map<String, Object> record) throws IOException {
+        if (records != null) {
+            records.write(record);
+            return;
+        }
+        var content = text != null ? text + "\n" : RecordWriter.document(options.getFormat(), record);
+        if (output != null) {
+            var buffer = ByteBuffer.wrap((path + "\n" + content + "\n").getBytes(StandardCharsets.UTF_8));
+            synchronized (output) {
+                while (buffer.hasRemaining()) output.write(buffer);
+            }
+            return;
+        }
+
+        // The results are moved into place once complete, so that readers never see a partially written file
+        var resultPath = path.resolveSibling(path.getFileName() + options.getFormat().fileExtension);
+        var temporaryPath = Files.createTempFile(path.getParent(), ".scoring-", ".tmp");
+        try {
+            Files.writeString(temporaryPath, content);
+            Files.move(temporaryPath, resultPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    private ConceptMap parse(Path path) throws InvalidDataException {
+        try {
+            return conceptMapCache.parse(path.toString());
+        } catch (InvalidDataException e) {
+            throw e;
+        } catch (Exception e) {
+            log.debug("Issue while parsing concept map {}", path, e);
+            throw new InvalidDataException(ErrorCode.INVALID_FILE, path.getFileName().toString());
+        }
+    }
+
+    private static FileStamp stamp(Path path) {
+        try {
+            var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
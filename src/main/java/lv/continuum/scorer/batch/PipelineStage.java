@@ -0,0 +1,82 @@
+package lv.continuum.scorer.batch;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Stage of a {@link Flow} pipeline, which applies a function to items in parallel and publishes the results in the
+ * order in which they are ready.
+ * <p>
+ * At most {@code parallelism} items are requested from upstream at a time, and each of them is requested only once
+ * its result has been accepted into the buffer of {@code bufferCapacity} items. When downstream falls behind and the
+ * buffer fills up, the stage stops requesting items, so a slow stage back-pressures all stages before it and the
+ * number of items in the pipeline stays bounded. Functions are expected to turn failures into results; a runtime
+ * exception fails the rest of the pipeline.
+ */
+class PipelineStage<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+
+    private final Function<T, R> function;
+    private final int parallelism;
+    private final ExecutorService workers;
+
+    // Items being processed, plus one until upstream completes
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private Flow.Subscription subscription;
+
+    /**
+     * @param deliveryExecutor Executor that delivers results to downstream subscribers.
+     */
+    PipelineStage(int parallelism, int bufferCapacity, Executor deliveryExecutor, Function<T, R> function) {
+        super(deliveryExecutor, bufferCapacity);
+        this.function = function;
+        this.parallelism = parallelism;
+        this.workers = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(parallelism);
+    }
+
+    @Override
+    public void onNext(T item) {
+        pending.incrementAndGet();
+        workers.execute(() -> {
+            try {
+                // Blocks while the buffer is full
+                submit(function.apply(item));
+                subscription.request(1);
+            } catch (RuntimeException e) {
+                closeExceptionally(e);
+                subscription.cancel();
+            } finally {
+                arrive();
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+        workers.shutdown();
+    }
+
+    @Override
+    public void onComplete() {
+        arrive();
+    }
+
+    private void arrive() {
+        if (pending.decrementAndGet() == 0) {
+            close();
+            workers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package lv.continuum.scorer.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.Json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link ResultRecords} as JSON Lines or CSV to a channel as they arrive, numbering them in the order they
+ * are written.
+ * <p>
+ * Records are buffered and the buffer is written to the channel when it is full, periodically, and when the writer
+ * is closed, so that consumers see results while the run is still in progress. The channel is not closed.
+ * Instances can be shared between threads.
+ */
+@Slf4j
+class RecordWriter implements Flushable, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ResultFormat format;
+    private final ScheduledExecutorService flusher;
+
+    // Guarded by this
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long sequence;
+
+    RecordWriter(WritableByteChannel channel, ResultFormat format, Duration flushInterval) throws IOException {
+        this(channel, format, flushInterval, true);
+    }
+
+    /**
+     * @param header Whether the CSV header line should be written, which is not the case when appending records to
+     *               an existing file.
+     */
+    RecordWriter(WritableByteChannel channel, ResultFormat format, Duration flushInterval, boolean header)
+            throws IOException {
+        if (format == ResultFormat.TEXT) {
+            throw new IllegalArgumentException("Records cannot be written as text");
+        }
+        this.channel = channel;
+        this.format = format;
+        if (format == ResultFormat.CSV && header) {
+            append(csvHeader());
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "record-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Sequence number of the record, starting from 1.
+     */
+    synchronized long write(Map<String, Object> record) throws IOException {
+        var numberedRecord = new LinkedHashMap<String, Object>();
+        numberedRecord.put(ResultRecords.SEQUENCE, ++sequence);
+        numberedRecord.putAll(record);
+        append(format == ResultFormat.JSONL ? Json.write(numberedRecord) + "\n" : csv(numberedRecord));
+        return sequence;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Stops periodic flushing and writes the remaining records. A periodic flush in progress is not interrupted, as
+     * interrupting a thread that writes to an interruptible channel closes the channel, e.g. {@code System.out}, and
+     * the remaining records would be lost. Instead the final flush waits for it to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            log.debug("Issue while flushing records", e);
+        }
+    }
+
+    private synchronized void append(String line) throws IOException {
+        var bytes = line.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) flush();
+        if (bytes.length > buffer.capacity()) {
+            var wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) channel.write(wrapped);
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * @return The record as a complete JSON or CSV document with a header line, without a sequence number.
+     */
+    static String document(ResultFormat format, Map<String, Object> record) {
+        if (format == ResultFormat.TEXT) {
+            throw new IllegalArgumentException("Records cannot be written as text");
+        }
+        return format == ResultFormat.JSONL ? Json.write(record) + "\n" : csvHeader() + csv(record);
+    }
+
+    private static String csvHeader() {
+        return String.join(",", ResultRecords.COLUMNS) + "\n";
+    }
+
+    private static String csv(Map<String, Object> record) {
+        var line = new StringBuilder();
+        for (var column : ResultRecords.COLUMNS) {
+            if (!column.equals(ResultRecords.SEQUENCE)) line.append(',');
+            var value = record.get(column);
+            if (value instanceof Double && !Double.isFinite((Double) value)) continue;
+            if (value != null) line.append(csvValue(value.toString()));
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * @return The value quoted as a CSV field, if it contains separators, quotes or line breaks.
+     */
+    static String csvValue(String value) {
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,47 @@
+package lv.continuum.scorer.batch;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * Format in which batch scoring results are written.
+ */
+@RequiredArgsConstructor
+public enum ResultFormat {
+
+    /**
+     * Formatted text, the same as in the application window.
+     */
+    TEXT("text", ".txt"),
+
+    /**
+     * One JSON object per line.
+     */
+    JSONL("jsonl", ".json"),
+
+    /**
+     * Comma-separated values with a header line.
+     */
+    CSV("csv", ".csv");
+
+    /**
+     * Key used on the command line.
+     */
+    public final String key;
+
+    /**
+     * Extension of a file that contains the result of a single concept map.
+     */
+    public final String fileExtension;
+
+    /**
+     * @throws IllegalArgumentException if there is no {@link ResultFormat} with the given {@code key}.
+     */
+    public static ResultFormat fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(f -> f.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown result format " + key));
+    }
+}
@@ -0,0 +1,146 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
+import lv.continuum.scorer.common.Interruptions;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.ConceptMapComparator;
+import lv.continuum.scorer.logic.ScoringKey;
+import lv.continuum.scorer.logic.ScoringMethod;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates flat records of scoring results, one per student concept map, with numbers and error codes instead of
+ * formatted text. Values of the methods that have not been selected, have failed or have exceeded the {@link Budget}
+ * are left out. The methods that have exceeded the budget are listed in the {@value #EXCEEDED} column.
+ */
+class ResultRecords {
+
+    static final String SEQUENCE = "sequence";
+    static final String FILE = "file";
+    static final String ERROR = "error";
+    static final String EXCEEDED = "exceeded";
+
+    /**
+     * All columns in the order they are written.
+     */
+    static final List<String> COLUMNS = List.of(
+            SEQUENCE,
+            FILE,
+            ERROR,
+            "concepts",
+            "relationships",
+            "levels",
+            "branches",
+            "examples",
+            "cycles",
+            "subnets",
+            ScoringMethod.CLOSENESS_INDEXES.key,
+            ScoringMethod.IMPORTANCE_INDEXES.key,
+            errorColumn(ScoringMethod.IMPORTANCE_INDEXES),
+            ScoringMethod.PROPOSITION_CHAINS.key,
+            errorColumn(ScoringMethod.PROPOSITION_CHAINS),
+            ScoringMethod.ERROR_ANALYSIS.key,
+            ScoringMethod.ERROR_ANALYSIS.key + "-weighted",
+            errorColumn(ScoringMethod.ERROR_ANALYSIS),
+            EXCEEDED
+    );
+
+    private ResultRecords() {
+        // Do nothing
+    }
+
+    static Map<String, Object> failed(Path path, ErrorCode errorCode) {
+        var record = new LinkedHashMap<String, Object>();
+        record.put(FILE, path.toString());
+        record.put(ERROR, errorCode.name());
+        return record;
+    }
+
+    static Map<String, Object> scored(Path path,
+                                      ConceptMap studentConceptMap,
+                                      ScoringKey scoringKey,
+                                      Set<ScoringMethod> methods,
+                                      Budget budget) {
+        var record = new LinkedHashMap<String, Object>();
+        record.put(FILE, path.toString());
+        var exceeded = new ArrayList<String>();
+        if (methods.contains(ScoringMethod.ELEMENT_COUNT)) {
+            var metrics = scoringKey.metrics(studentConceptMap);
+            record.put("concepts", metrics.getConceptCount());
+            record.put("relationships", metrics.getRelationshipCount());
+            record.put("levels", metrics.getLevelCount());
+            record.put("branches", metrics.getBranchCount());
+            record.put("examples", metrics.getExampleCount());
+            record.put("cycles", metrics.isContainsCycles());
+            record.put("subnets", metrics.getSubnetCount());
+        }
+        var comparator = new ConceptMapComparator(studentConceptMap, scoringKey);
+        if (methods.contains(ScoringMethod.CLOSENESS_INDEXES)) {
+            Interruptions.check();
+            var result = comparator.compareUsingClosenessIndexes(budget);
+            put(record, exceeded, ScoringMethod.CLOSENESS_INDEXES, result);
+        }
+        if (methods.contains(ScoringMethod.IMPORTANCE_INDEXES)) {
+            Interruptions.check();
+            try {
+                var result = comparator.compareUsingImportanceIndexes(budget);
+                put(record, exceeded, ScoringMethod.IMPORTANCE_INDEXES, result);
+            } catch (InvalidDataException e) {
+                record.put(errorColumn(ScoringMethod.IMPORTANCE_INDEXES), e.errorCode.name());
+            }
+        }
+        if (methods.contains(ScoringMethod.PROPOSITION_CHAINS)) {
+            Interruptions.check();
+            try {
+                var result = comparator.compareUsingPropositionChains(budget);
+                put(record, exceeded, ScoringMethod.PROPOSITION_CHAINS, result);
+            } catch (InvalidDataException e) {
+                record.put(errorColumn(ScoringMethod.PROPOSITION_CHAINS), e.errorCode.name());
+            }
+        }
+        if (methods.contains(ScoringMethod.ERROR_ANALYSIS)) {
+            Interruptions.check();
+            try {
+                var result = comparator.compareUsingErrorAnalysis(budget);
+                if (result.exceeded) {
+                    exceeded.add(ScoringMethod.ERROR_ANALYSIS.key);
+                } else {
+                    record.put(ScoringMethod.ERROR_ANALYSIS.key, result.value.similarityDegree);
+                    record.put(ScoringMethod.ERROR_ANALYSIS.key + "-weighted", result.value.weightedSimilarityDegree);
+                }
+            } catch (InvalidDataException e) {
+                record.put(errorColumn(ScoringMethod.ERROR_ANALYSIS), e.errorCode.name());
+            }
+        }
+        if (!exceeded.isEmpty()) record.put(EXCEEDED, String.join(" ", exceeded));
+        return record;
+    }
+
+    static boolean isExceeded(Map<String, Object> record) {
+        return record.containsKey(EXCEEDED);
+    }
+
+    private static void put(Map<String, Object> record,
+                            List<String> exceeded,
+                            ScoringMethod method,
+                            BudgetedResult<Double> result) {
+        if (result.exceeded) {
+            exceeded.add(method.key);
+        } else {
+            record.put(method.key, result.value);
+        }
+    }
+
+    private static String errorColumn(ScoringMethod method) {
+        return method.key + "-error";
+    }
+}
@@ -0,0 +1,97 @@
+package lv.continuum.scorer.batch;
+
+import lombok.Value;
+import lv.continuum.scorer.common.Arguments;
+import lv.continuum.scorer.logic.ScoringMethod;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of the watch mode, e.g.:
+ * <p>
+ * {@code watch --folder physics/students=physics/teacher.xml --folder biology/students=biology/teacher.xml}
+ * <p>
+ * Each {@code --folder} is scored against its own teacher concept map. A file is scored once it has not changed for
+ * {@code --debounce} milliseconds. Results are written in the {@code --format} of {@link ResultFormat} next to each
+ * student concept map, or appended to the {@code --output} file, if given, and cached in the {@code --cache} file,
+ * if given.
+ */
+@Value
+public class WatchOptions {
+
+    private static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(500);
+
+    /**
+     * Teacher concept map paths by the paths of the folders that are scored against them.
+     */
+    Map<String, String> teacherPaths;
+
+    Set<ScoringMethod> methods;
+    int threads;
+    Duration debounce;
+    ResultFormat format;
+    String outputPath;
+    String cachePath;
+
+    /**
+     * @throws IllegalArgumentException if the arguments are invalid or incomplete.
+     */
+    public static WatchOptions parse(String... args) {
+        var teacherPaths = new LinkedHashMap<String, String>();
+        Set<ScoringMethod> methods = EnumSet.allOf(ScoringMethod.class);
+        var threads = Runtime.getRuntime().availableProcessors();
+        var debounce = DEFAULT_DEBOUNCE;
+        var format = ResultFormat.TEXT;
+        String outputPath = null;
+        String cachePath = null;
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--folder":
+                    var folder = Arguments.value(args, ++i).split("=", 2);
+                    if (folder.length != 2 || folder[0].isEmpty() || folder[1].isEmpty()) {
+                        throw new IllegalArgumentException(
+                                "Expected folder as <folder>=<teacher file>, got " + args[i]);
+                    }
+                    teacherPaths.put(folder[0], folder[1]);
+                    break;
+                case "--methods":
+                    methods = ScoringMethod.fromKeys(Arguments.value(args, ++i));
+                    break;
+                case "--threads":
+                    threads = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--debounce":
+                    debounce = Duration.ofMillis(Arguments.parsePositive(Arguments.value(args, ++i)));
+                    break;
+                case "--format":
+                    format = ResultFormat.fromKey(Arguments.value(args, ++i));
+                    break;
+                case "--output":
+                    outputPath = Arguments.value(args, ++i);
+                    break;
+                case "--cache":
+                    cachePath = Arguments.value(args, ++i);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (teacherPaths.isEmpty()) {
+            throw new IllegalArgumentException("Folders to watch are not specified");
+        }
+        return new WatchOptions(
+                Map.copyOf(teacherPaths),
+                Set.copyOf(methods),
+                threads,
+                debounce,
+                format,
+                outputPath,
+                cachePath
+        );
+    }
+}
@@ -0,0 +1,59 @@
+package lv.continuum.scorer.common;
+
+/**
+ * Parsing of command line option values, which is shared by the options of all modes.
+ */
+public class Arguments {
+
+    private Arguments() {
+        // Do nothing
+    }
+
+    /**
+     * @return Value of the option preceding index {@code i}.
+     * @throws IllegalArgumentException if the option is the last argument.
+     */
+    public static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Option " + args[i - 1] + " requires a value");
+        }
+        return args[i];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a positive integer.
+     */
+    public static int parsePositive(String value) {
+        var number = parseNonNegative(value);
+        if (number > 0) return number;
+        throw new IllegalArgumentException("Expected a positive number, got " + value);
+    }
+
+    /**
+     * Same as {@link #parsePositive(String)}, but for limits that do not fit into an {@code int}.
+     *
+     * @throws IllegalArgumentException if the value is not a positive integer.
+     */
+    public static long parsePositiveLong(String value) {
+        try {
+            var number = Long.parseLong(value);
+            if (number > 0) return number;
+        } catch (NumberFormatException e) {
+            // Fall through
+        }
+        throw new IllegalArgumentException("Expected a positive number, got " + value);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a non-negative integer.
+     */
+    public static int parseNonNegative(String value) {
+        try {
+            var number = Integer.parseInt(value);
+            if (number >= 0) return number;
+        } catch (NumberFormatException e) {
+            // Fall through
+        }
+        throw new IllegalArgumentException("Expected a non-negative number, got " + value);
+    }
+}
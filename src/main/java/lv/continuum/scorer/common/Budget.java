@@ -0,0 +1,58 @@
+package lv.continuum.scorer.common;
+
+import java.time.Duration;
+
+/**
+ * Limits of work and time of calculations whose cost can grow combinatorially with the size of a concept map,
+ * e.g. enumeration of paths. Calculations that run out of their budget stop and return a {@link BudgetedResult}
+ * that is marked as exceeded.
+ * <p>
+ * The time limit is counted from the creation of the budget, so a budget created for a student concept map limits
+ * all calculations made for it together, while the limit of paths applies to each calculation separately.
+ * Instances are immutable and can be shared between threads.
+ */
+public class Budget {
+
+    public static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    public final long maxPaths;
+
+    private final long maxNanos;
+    private final long startTime;
+
+    private Budget(long maxPaths, long maxNanos) {
+        this.maxPaths = maxPaths;
+        this.maxNanos = maxNanos;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * @param maxPaths Maximum number of paths enumerated by a single calculation.
+     * @param maxTime  Maximum time of all calculations, or {@code null} if the time is not limited.
+     */
+    public static Budget of(long maxPaths, Duration maxTime) {
+        if (maxPaths < 0 || (maxTime != null && maxTime.isNegative())) {
+            throw new IllegalArgumentException("Budget cannot be negative");
+        }
+        return new Budget(maxPaths, maxTime != null ? saturatedNanos(maxTime) : Long.MAX_VALUE);
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    public boolean isExpired() {
+        return maxNanos != Long.MAX_VALUE && System.nanoTime() - startTime >= maxNanos;
+    }
+
+    /**
+     * @return Whether a calculation that has enumerated {@code pathCount} paths may go on.
+     */
+    public boolean allows(long pathCount) {
+        return pathCount <= maxPaths && !isExpired();
+    }
+}
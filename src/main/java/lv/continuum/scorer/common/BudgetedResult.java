@@ -0,0 +1,30 @@
+package lv.continuum.scorer.common;
+
+import lombok.Value;
+
+/**
+ * Result of a calculation limited by a {@link Budget}. If the budget has been exceeded, the result is partial.
+ */
+@Value
+public class BudgetedResult<T> {
+
+    /**
+     * Complete or partial result, or {@code null} if a partial result is not meaningful.
+     */
+    public T value;
+
+    public boolean exceeded;
+
+    /**
+     * Share of the calculation that has been done, from 0 to 1.
+     */
+    public double progress;
+
+    public static <T> BudgetedResult<T> complete(T value) {
+        return new BudgetedResult<>(value, false, 1);
+    }
+
+    public static <T> BudgetedResult<T> exceeded(T partialValue, double progress) {
+        return new BudgetedResult<>(partialValue, true, progress);
+    }
+}
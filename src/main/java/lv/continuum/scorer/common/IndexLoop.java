@@ -0,0 +1,142 @@
+package lv.continuum.scorer.common;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Loop over indexes from 0 to {@code size - 1}, which runs either on the calling thread or split into ranges that
+ * run in a {@link ForkJoinPool}.
+ * <p>
+ * Iterations must be independent and store their results in separate slots, e.g. array elements, which are reduced
+ * in index order once the loop is done, so that results do not depend on the number of threads. A parallel loop is
+ * cancelled by interrupting its owner thread, the same way as calculations on the calling thread are cancelled with
+ * {@link Interruptions}. Instances are immutable and can be shared between threads.
+ */
+public class IndexLoop {
+
+    private static final IndexLoop SEQUENTIAL = new IndexLoop(null, null);
+
+    // Ranges per thread, so that threads that finish early can take over the work of others
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final Thread owner;
+
+    private IndexLoop(ForkJoinPool pool, Thread owner) {
+        this.pool = pool;
+        this.owner = owner;
+    }
+
+    public static IndexLoop sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * @param owner Thread whose interruption cancels the loop.
+     */
+    public static IndexLoop parallel(ForkJoinPool pool, Thread owner) {
+        return new IndexLoop(pool, owner);
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Same as {@link Interruptions#check()}, but checks the owner thread in parallel loops, so that it can be called
+     * from any thread that does the work of the loop.
+     */
+    public void check() {
+        if (owner == null) {
+            Interruptions.check();
+        } else if (owner.isInterrupted()) {
+            throw new CancellationException("Calculation has been interrupted");
+        }
+    }
+
+    /**
+     * @return Number of iterations that have been run, which is less than {@code size} if the {@code budget} has
+     * expired. In parallel loops these are not necessarily the first iterations.
+     * @throws CancellationException If the owner thread has been interrupted.
+     */
+    public int run(int size, Budget budget, IntConsumer body) {
+        if (pool == null || size < 2) {
+            for (var i = 0; i < size; i++) {
+                check();
+                if (budget.isExpired()) return i;
+                body.accept(i);
+            }
+            return size;
+        }
+        check();
+        var grain = Math.max(1, size / (pool.getParallelism() * RANGES_PER_THREAD));
+        var run = new Run(grain, budget, body);
+        try {
+
+            // Unlike invoke, waiting for the result can be interrupted
+            pool.submit(new Range(run, 0, size)).get();
+        } catch (InterruptedException e) {
+            run.cancelled = true;
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Calculation has been interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return run.done.intValue();
+    }
+
+    /**
+     * State shared by the ranges of a single run.
+     */
+    private static class Run {
+
+        private final int grain;
+        private final Budget budget;
+        private final IntConsumer body;
+        private final LongAdder done = new LongAdder();
+        private volatile boolean cancelled;
+
+        Run(int grain, Budget budget, IntConsumer body) {
+            this.grain = grain;
+            this.budget = budget;
+            this.body = body;
+        }
+    }
+
+    private class Range extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final int from;
+        private final int to;
+
+        Range(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > run.grain) {
+                var middle = (from + to) >>> 1;
+                invokeAll(new Range(run, from, middle), new Range(run, middle, to));
+                return;
+            }
+            var i = from;
+            while (i < to && !run.budget.isExpired()) {
+                if (run.cancelled) throw new CancellationException("Calculation has been interrupted");
+                check();
+                run.body.accept(i++);
+            }
+            run.done.add(i - from);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package lv.continuum.scorer.common;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of long calculations, which are cancelled by interrupting the thread they run on.
+ */
+public class Interruptions {
+
+    private Interruptions() {
+        // Do nothing
+    }
+
+    /**
+     * @throws CancellationException If the current thread has been interrupted. The interrupted status is kept, so
+     *                               that the caller can still observe it.
+     */
+    public static void check() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Calculation has been interrupted");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package lv.continuum.scorer.common;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Minimal JSON writer for maps, collections, strings, numbers, booleans and {@code null}.
+ * <p>
+ * Maps are written as objects in their iteration order, so {@link java.util.LinkedHashMap} should be used to
+ * get a predictable order of properties.
+ */
+public class Json {
+
+    private Json() {
+        // Do nothing
+    }
+
+    public static String write(Object value) {
+        var json = new StringBuilder();
+        write(json, value);
+        return json.toString();
+    }
+
+    private static void write(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Map) {
+            json.append('{');
+            var first = true;
+            for (var entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) json.append(',');
+                first = false;
+                writeString(json, String.valueOf(entry.getKey()));
+                json.append(':');
+                write(json, entry.getValue());
+            }
+            json.append('}');
+        } else if (value instanceof Collection) {
+            json.append('[');
+            var first = true;
+            for (var element : (Collection<?>) value) {
+                if (!first) json.append(',');
+                first = false;
+                write(json, element);
+            }
+            json.append(']');
+        } else if (value instanceof Double || value instanceof Float) {
+            var number = ((Number) value).doubleValue();
+            json.append(Double.isFinite(number) ? String.valueOf(number) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            writeString(json, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder json, String string) {
+        json.append('"');
+        for (var i = 0; i < string.length(); i++) {
+            var c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
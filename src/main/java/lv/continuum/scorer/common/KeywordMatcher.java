@@ -0,0 +1,182 @@
+package lv.continuum.scorer.common;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Finds whether a text contains any of the given keywords, ignoring case.
+ * <p>
+ * Keywords are compiled into a single Aho–Corasick automaton with all transitions resolved in advance, so a text is
+ * scanned in one pass without backtracking or allocation, regardless of the number of keywords. Instances are
+ * immutable and can be shared between threads.
+ */
+public class KeywordMatcher {
+
+    private static final int ASCII_SIZE = 128;
+
+    // Folded characters that occur in keywords, with character classes from 1 upwards, class 0 being any other
+    private final int[] asciiClasses = new int[ASCII_SIZE];
+    private final char[] otherCharacters;
+    private final int classCount;
+
+    // Transitions of each state by character class, flattened, and states in which a keyword ends
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    public KeywordMatcher(Collection<String> keywords) {
+        var characters = new TreeSet<Character>();
+        var foldedKeywords = new ArrayList<String>();
+        for (var keyword : keywords) {
+            if (StringUtils.isEmpty(keyword)) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            var foldedKeyword = fold(keyword);
+            foldedKeywords.add(foldedKeyword);
+            for (var c : foldedKeyword.toCharArray()) characters.add(c);
+        }
+
+        var other = new StringBuilder();
+        var characterClass = 1;
+        for (var c : characters) {
+            if (c < ASCII_SIZE) {
+                asciiClasses[c] = characterClass++;
+            } else {
+                other.append(c);
+            }
+        }
+        otherCharacters = other.toString().toCharArray();
+        classCount = characterClass + otherCharacters.length;
+
+        // Trie of the keywords
+        var trie = new ArrayList<int[]>();
+        var trieAccepting = new ArrayList<Boolean>();
+        trie.add(new int[classCount]);
+        trieAccepting.add(false);
+        for (var keyword : foldedKeywords) {
+            var state = 0;
+            for (var i = 0; i < keyword.length(); i++) {
+                var cls = characterClass(keyword.charAt(i));
+                if (trie.get(state)[cls] == 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(new int[classCount]);
+                    trieAccepting.add(false);
+                }
+                state = trie.get(state)[cls];
+            }
+            trieAccepting.set(state, true);
+        }
+
+        // Breadth-first resolution of failure links into direct transitions
+        var stateCount = trie.size();
+        transitions = new int[stateCount * classCount];
+        accepting = new boolean[stateCount];
+        var failures = new int[stateCount];
+        var queue = new ArrayDeque<Integer>();
+        for (var cls = 0; cls < classCount; cls++) {
+            var next = trie.get(0)[cls];
+            transitions[cls] = next;
+            if (next != 0) queue.add(next);
+        }
+        for (var state = 0; state < stateCount; state++) {
+            accepting[state] = trieAccepting.get(state);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] |= accepting[failures[state]];
+            for (var cls = 0; cls < classCount; cls++) {
+                var next = trie.get(state)[cls];
+                var failureTransition = transitions[failures[state] * classCount + cls];
+                if (next != 0) {
+                    failures[next] = failureTransition;
+                    transitions[state * classCount + cls] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * classCount + cls] = failureTransition;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads keywords of {@code key} in every language listed in {@code languages.properties} of the given resource
+     * directory, so a language is added by adding its properties resource, e.g. {@code keywords/de.properties}, and
+     * listing it there.
+     */
+    public static KeywordMatcher loadLanguages(String key, String directory) {
+        var languages = values(load(directory + "/languages.properties"), "languages");
+        var propertiesResources = new ArrayList<String>();
+        for (var language : languages) {
+            propertiesResources.add(directory + "/" + language + ".properties");
+        }
+        return load(key, propertiesResources);
+    }
+
+    /**
+     * Loads keywords from the comma-separated values of {@code key} in each of the given properties resources, e.g.
+     * one resource per language.
+     */
+    public static KeywordMatcher load(String key, List<String> propertiesResources) {
+        var keywords = new ArrayList<String>();
+        for (var propertiesResource : propertiesResources) {
+            keywords.addAll(values(load(propertiesResource), key));
+        }
+        return new KeywordMatcher(keywords);
+    }
+
+    private static Properties load(String propertiesResource) {
+        try (var inputStream = KeywordMatcher.class.getClassLoader().getResourceAsStream(propertiesResource)) {
+            var properties = new Properties();
+            properties.load(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            return properties;
+        } catch (Exception e) {
+            throw new IllegalStateException("Keyword properties " + propertiesResource + " cannot be loaded", e);
+        }
+    }
+
+    private static List<String> values(Properties properties, String key) {
+        var values = new ArrayList<String>();
+        for (var value : properties.getProperty(key, "").split(",")) {
+            if (StringUtils.isNotBlank(value)) values.add(value.trim());
+        }
+        return values;
+    }
+
+    public boolean containsAny(CharSequence text) {
+        var state = 0;
+        for (var i = 0; i < text.length(); i++) {
+            state = transitions[state * classCount + characterClass(fold(text.charAt(i)))];
+            if (accepting[state]) return true;
+        }
+        return false;
+    }
+
+    private int characterClass(char c) {
+        if (c < ASCII_SIZE) return asciiClasses[c];
+        var index = Arrays.binarySearch(otherCharacters, c);
+        return index >= 0 ? classCount - otherCharacters.length + index : 0;
+    }
+
+    private static String fold(String keyword) {
+        var folded = new char[keyword.length()];
+        for (var i = 0; i < folded.length; i++) {
+            folded[i] = fold(keyword.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    /**
+     * Folds case in the same way as {@link String#equalsIgnoreCase(String)}.
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
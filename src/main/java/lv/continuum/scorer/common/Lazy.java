@@ -0,0 +1,37 @@
+package lv.continuum.scorer.common;
+
+import lombok.NonNull;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe {@link Supplier} that calculates its value once, when it is first requested.
+ * <p>
+ * The wrapped supplier must not return {@code null}. If it throws an exception, nothing is cached and the value is
+ * calculated again when it is requested next time.
+ */
+public class Lazy<T> implements Supplier<T> {
+
+    private Supplier<T> supplier;
+    private volatile T value;
+
+    public Lazy(@NonNull Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public T get() {
+        var value = this.value;
+        if (value == null) {
+            synchronized (this) {
+                value = this.value;
+                if (value == null) {
+                    value = supplier.get();
+                    this.value = value;
+                    supplier = null; // Allow whatever the supplier references to be garbage collected
+                }
+            }
+        }
+        return value;
+    }
+}
@@ -5,7 +5,7 @@ import lv.continuum.scorer.common.InvalidDataException;
 import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
 import org.apache.commons.lang3.StringUtils;
 
-@EqualsAndHashCode
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
 public class Concept {
 
     public final String id;
@@ -14,11 +14,20 @@ public class Concept {
     public final String name;
 
     public Concept(String name) throws InvalidDataException {
+        checkName(name);
+        this.id = deriveId(name);
+        this.name = name.trim();
+    }
+
+    Concept(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    static void checkName(String name) throws InvalidDataException {
         if (StringUtils.isBlank(name)) {
             throw new InvalidDataException(ErrorCode.CONCEPT_NO_NAME);
         }
-        this.id = deriveId(name);
-        this.name = name.trim();
     }
 
     public static String deriveId(String name) {
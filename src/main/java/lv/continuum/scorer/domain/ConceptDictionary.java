@@ -0,0 +1,42 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.common.InvalidDataException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vocabulary of the concepts of a cohort of concept maps.
+ * <p>
+ * Concepts with equal names are created once and shared by all concept maps that use the dictionary, so equal
+ * concepts of different concept maps are usually the same instance and are compared by identity. Concepts with
+ * equal ids but different names, e.g. {@code Water} and {@code water}, share the id string, so comparing them does
+ * not compare distinct strings. Instances can be shared between threads.
+ */
+public class ConceptDictionary {
+
+    private final Map<String, Concept> conceptsByName = new ConcurrentHashMap<>();
+    private final Map<String, Concept> conceptsById = new ConcurrentHashMap<>();
+
+    /**
+     * Same as {@link Concept#Concept(String)}, but returns the canonical instance of the concept.
+     */
+    public Concept concept(String name) throws InvalidDataException {
+        Concept.checkName(name);
+        var trimmedName = name.trim();
+        var concept = conceptsByName.get(trimmedName);
+        return concept != null ? concept : conceptsByName.computeIfAbsent(trimmedName, this::createConcept);
+    }
+
+    /**
+     * @return Number of distinct concept ids in the dictionary.
+     */
+    public int size() {
+        return conceptsById.size();
+    }
+
+    private Concept createConcept(String name) {
+        var idConcept = conceptsById.computeIfAbsent(Concept.deriveId(name), id -> new Concept(id, name));
+        return idConcept.name.equals(name) ? idConcept : new Concept(idConcept.id, name);
+    }
+}
@@ -0,0 +1,359 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.monitoring.Monitoring;
+import lv.continuum.scorer.monitoring.Phase;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact representation of the structure of a {@link ConceptMap}.
+ * <p>
+ * Each concept gets a dense index from {@code 0} to {@link #conceptCount()} {@code - 1}. Concepts are indexed in
+ * the order of their ids, so concept maps containing equal concepts index them in the same way. Relationships are
+ * stored as compressed sparse rows: neighbours of concept {@code c} are stored in a shared target array between
+ * {@code start(c)} (inclusive) and {@code end(c)} (exclusive), sorted by index.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public class ConceptGraph {
+
+    private final Concept[] concepts;
+    private final Map<Concept, Integer> indexes;
+
+    private final int[] outgoingOffsets;
+    private final int[] outgoingTargets;
+    private final int[] incomingOffsets;
+    private final int[] incomingTargets;
+    private final int[] neighbourOffsets;
+    private final int[] neighbourTargets;
+
+    private final LongHashSet relationships;
+
+    static ConceptGraph of(Set<Concept> concepts, Set<Relationship> relationships) {
+        var start = Monitoring.start();
+        try {
+            return create(concepts, relationships);
+        } finally {
+            Monitoring.stop(Phase.CONCEPT_MAP_CONSTRUCTION, start);
+        }
+    }
+
+    private static ConceptGraph create(Set<Concept> concepts, Set<Relationship> relationships) {
+        var sortedConcepts = concepts.toArray(new Concept[0]);
+        Arrays.sort(sortedConcepts, Comparator.comparing(c -> c.id));
+        var indexes = indexes(sortedConcepts);
+
+        var from = new int[relationships.size()];
+        var to = new int[relationships.size()];
+        var r = 0;
+        for (var relationship : relationships) {
+            from[r] = indexes.get(relationship.fromConcept);
+            to[r] = indexes.get(relationship.toConcept);
+            r++;
+        }
+        return new ConceptGraph(sortedConcepts, indexes, from, to);
+    }
+
+    /**
+     * @param sortedConcepts Concepts sorted by their ids.
+     * @param from           Indexes of the concepts each relationship starts from.
+     * @param to             Indexes of the concepts each relationship leads to.
+     */
+    static ConceptGraph of(Concept[] sortedConcepts, int[] from, int[] to) {
+        var start = Monitoring.start();
+        try {
+            return new ConceptGraph(sortedConcepts, indexes(sortedConcepts), from, to);
+        } finally {
+            Monitoring.stop(Phase.CONCEPT_MAP_CONSTRUCTION, start);
+        }
+    }
+
+    private ConceptGraph(Concept[] concepts, Map<Concept, Integer> indexes, int[] from, int[] to) {
+        this.concepts = concepts;
+        this.indexes = indexes;
+
+        var conceptCount = concepts.length;
+        var keys = new long[from.length];
+        for (var r = 0; r < from.length; r++) {
+            keys[r] = key(from[r], to[r]);
+        }
+        this.relationships = new LongHashSet(keys);
+
+        outgoingOffsets = new int[conceptCount + 1];
+        outgoingTargets = new int[from.length];
+        fillRows(from, to, outgoingOffsets, outgoingTargets);
+
+        incomingOffsets = new int[conceptCount + 1];
+        incomingTargets = new int[from.length];
+        fillRows(to, from, incomingOffsets, incomingTargets);
+
+        neighbourOffsets = new int[conceptCount + 1];
+        neighbourTargets = mergeRows();
+    }
+
+    private static Map<Concept, Integer> indexes(Concept[] concepts) {
+        var indexes = new HashMap<Concept, Integer>(concepts.length * 2);
+        for (var i = 0; i < concepts.length; i++) {
+            indexes.put(concepts[i], i);
+        }
+        return indexes;
+    }
+
+    public int conceptCount() {
+        return concepts.length;
+    }
+
+    public int relationshipCount() {
+        return outgoingTargets.length;
+    }
+
+    public Concept concept(int index) {
+        return concepts[index];
+    }
+
+    /**
+     * @return Index of the given concept or {@code -1}, if the graph does not contain it.
+     */
+    public int indexOf(Concept concept) {
+        var index = indexes.get(concept);
+        return index != null ? index : -1;
+    }
+
+    public boolean containsRelationship(int fromConcept, int toConcept) {
+        return relationships.contains(key(fromConcept, toConcept));
+    }
+
+    public int outgoingStart(int concept) {
+        return outgoingOffsets[concept];
+    }
+
+    public int outgoingEnd(int concept) {
+        return outgoingOffsets[concept + 1];
+    }
+
+    public int outgoingTarget(int i) {
+        return outgoingTargets[i];
+    }
+
+    public int outgoingCount(int concept) {
+        return outgoingOffsets[concept + 1] - outgoingOffsets[concept];
+    }
+
+    public int incomingStart(int concept) {
+        return incomingOffsets[concept];
+    }
+
+    public int incomingEnd(int concept) {
+        return incomingOffsets[concept + 1];
+    }
+
+    public int incomingTarget(int i) {
+        return incomingTargets[i];
+    }
+
+    public int incomingCount(int concept) {
+        return incomingOffsets[concept + 1] - incomingOffsets[concept];
+    }
+
+    /**
+     * Neighbours of a concept are the concepts connected to it by either outgoing or incoming relationships.
+     */
+    public int neighbourStart(int concept) {
+        return neighbourOffsets[concept];
+    }
+
+    public int neighbourEnd(int concept) {
+        return neighbourOffsets[concept + 1];
+    }
+
+    public int neighbourTarget(int i) {
+        return neighbourTargets[i];
+    }
+
+    public int neighbourCount(int concept) {
+        return neighbourOffsets[concept + 1] - neighbourOffsets[concept];
+    }
+
+    /**
+     * @return Unmodifiable view of the outgoing relationships, which does not copy any data.
+     */
+    Map<Concept, Set<Concept>> outgoingView() {
+        return new RowsView(outgoingOffsets, outgoingTargets);
+    }
+
+    Map<Concept, Set<Concept>> incomingView() {
+        return new RowsView(incomingOffsets, incomingTargets);
+    }
+
+    Map<Concept, Set<Concept>> neighbourView() {
+        return new RowsView(neighbourOffsets, neighbourTargets);
+    }
+
+    private static long key(int fromConcept, int toConcept) {
+        return ((long) fromConcept << 32) | (toConcept & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Fills the rows using counting sort, then sorts each row.
+     */
+    private void fillRows(int[] rows, int[] columns, int[] offsets, int[] targets) {
+        for (var row : rows) {
+            offsets[row + 1]++;
+        }
+        for (var c = 0; c < concepts.length; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        var positions = Arrays.copyOf(offsets, concepts.length);
+        for (var i = 0; i < rows.length; i++) {
+            targets[positions[rows[i]]++] = columns[i];
+        }
+        for (var c = 0; c < concepts.length; c++) {
+            Arrays.sort(targets, offsets[c], offsets[c + 1]);
+        }
+    }
+
+    /**
+     * Merges sorted outgoing and incoming rows into sorted rows of distinct neighbours.
+     */
+    private int[] mergeRows() {
+        var targets = new int[outgoingTargets.length + incomingTargets.length];
+        var t = 0;
+        for (var c = 0; c < concepts.length; c++) {
+            neighbourOffsets[c] = t;
+            int o = outgoingOffsets[c], oEnd = outgoingOffsets[c + 1];
+            int i = incomingOffsets[c], iEnd = incomingOffsets[c + 1];
+            while (o < oEnd || i < iEnd) {
+                int next;
+                if (i == iEnd || (o < oEnd && outgoingTargets[o] <= incomingTargets[i])) {
+                    next = outgoingTargets[o++];
+                } else {
+                    next = incomingTargets[i++];
+                }
+                if (t == neighbourOffsets[c] || targets[t - 1] != next) {
+                    targets[t++] = next;
+                }
+            }
+        }
+        neighbourOffsets[concepts.length] = t;
+        return Arrays.copyOf(targets, t);
+    }
+
+    /**
+     * Read-only {@link Map} view of compressed sparse rows.
+     */
+    private class RowsView extends AbstractMap<Concept, Set<Concept>> {
+
+        private final int[] offsets;
+        private final int[] targets;
+
+        RowsView(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        @Override
+        public int size() {
+            return concepts.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Concept && indexOf((Concept) key) >= 0;
+        }
+
+        @Override
+        public Set<Concept> get(Object key) {
+            if (!(key instanceof Concept)) return null;
+            var index = indexOf((Concept) key);
+            return index >= 0 ? new RowView(offsets[index], offsets[index + 1], targets) : null;
+        }
+
+        @Override
+        public Set<Entry<Concept, Set<Concept>>> entrySet() {
+            return new AbstractSet<>() {
+
+                @Override
+                public int size() {
+                    return concepts.length;
+                }
+
+                @Override
+                public Iterator<Entry<Concept, Set<Concept>>> iterator() {
+                    return new Iterator<>() {
+                        private int c = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return c < concepts.length;
+                        }
+
+                        @Override
+                        public Entry<Concept, Set<Concept>> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            var entry = new SimpleImmutableEntry<Concept, Set<Concept>>(
+                                    concepts[c],
+                                    new RowView(offsets[c], offsets[c + 1], targets)
+                            );
+                            c++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Read-only {@link Set} view of a single row.
+     */
+    private class RowView extends AbstractSet<Concept> {
+
+        private final int start;
+        private final int end;
+        private final int[] targets;
+
+        RowView(int start, int end, int[] targets) {
+            this.start = start;
+            this.end = end;
+            this.targets = targets;
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Concept)) return false;
+            var index = indexOf((Concept) o);
+            return index >= 0 && Arrays.binarySearch(targets, start, end, index) >= 0;
+        }
+
+        @Override
+        public Iterator<Concept> iterator() {
+            return new Iterator<>() {
+                private int i = start;
+
+                @Override
+                public boolean hasNext() {
+                    return i < end;
+                }
+
+                @Override
+                public Concept next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return concepts[targets[i++]];
+                }
+            };
+        }
+    }
+}
@@ -2,264 +2,375 @@ package lv.continuum.scorer.domain;
 
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
+import lv.continuum.scorer.common.IndexLoop;
 import lv.continuum.scorer.common.InvalidDataException;
 import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
-import org.apache.commons.collections4.set.ListOrderedSet;
+import lv.continuum.scorer.common.Lazy;
+import lv.continuum.scorer.monitoring.AnalysisEvent;
+import lv.continuum.scorer.monitoring.Monitoring;
+import lv.continuum.scorer.monitoring.Phase;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.function.Function;
-
-import static java.util.stream.Collectors.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Slf4j
 public class ConceptMap {
 
-    private static final Set<Concept> EMPTY = Set.of();
-
     @EqualsAndHashCode.Include
-    private final Set<Concept> concepts;
+    final Set<Concept> concepts;
 
     @EqualsAndHashCode.Include
-    private final Set<Relationship> relationships;
+    final Set<Relationship> relationships;
+
+    public final ConceptGraph graph;
 
+    // Views of the graph, which are created without copying any data
     public final Map<Concept, Set<Concept>> outgoingRelationships;
     public final Map<Concept, Set<Concept>> incomingRelationships;
     public final Map<Concept, Set<Concept>> allRelationships;
 
+    private final Lazy<ConceptMapMetrics> metrics;
+    private final Lazy<ReachabilityIndex> reachability;
+    private final Lazy<PropositionChains> propositionChains;
+    private final Lazy<String> fingerprint;
+    private final Lazy<String> namedFingerprint;
+
     public ConceptMap(Set<Concept> concepts, Set<Relationship> relationships, String fileName) throws InvalidDataException {
+        this(createGraph(concepts, relationships, fileName), concepts, relationships);
+    }
+
+    /**
+     * Creates a concept map from an already validated graph.
+     */
+    ConceptMap(ConceptGraph graph, Set<Concept> concepts, Set<Relationship> relationships) {
+        this.concepts = concepts;
+        this.relationships = relationships;
+        this.graph = graph;
+        outgoingRelationships = graph.outgoingView();
+        incomingRelationships = graph.incomingView();
+        allRelationships = graph.neighbourView();
+        metrics = measured(Phase.METRICS, () -> ConceptMapMetrics.calculate(graph, relationships));
+        reachability = measured(Phase.REACHABILITY, () -> new ReachabilityIndex(graph));
+        propositionChains = measured(Phase.PROPOSITION_CHAINS, () -> new PropositionChains(graph));
+        fingerprint = new Lazy<>(() -> fingerprint(graph, relationships, false));
+        namedFingerprint = new Lazy<>(() -> fingerprint(graph, relationships, true));
+        Monitoring.recordConceptMapSize(graph.conceptCount(), graph.relationshipCount());
+    }
+
+    private static <T> Lazy<T> measured(Phase phase, Supplier<T> supplier) {
+        return new Lazy<>(() -> {
+            var start = Monitoring.start();
+            try {
+                return supplier.get();
+            } finally {
+                Monitoring.stop(phase, start);
+            }
+        });
+    }
+
+    private static ConceptGraph createGraph(Set<Concept> concepts, Set<Relationship> relationships, String fileName)
+            throws InvalidDataException {
         if (concepts.isEmpty()) {
             throw new InvalidDataException(ErrorCode.CONCEPT_MAP_NO_CONCEPTS, fileName);
         }
         if (relationships.isEmpty()) {
             throw new InvalidDataException(ErrorCode.CONCEPT_MAP_NO_RELATIONSHIPS, fileName);
         }
-        this.concepts = concepts;
-
         if (relationships.stream().anyMatch(r -> !concepts.contains(r.fromConcept) || !concepts.contains(r.toConcept))) {
             throw new InvalidDataException(ErrorCode.CONCEPT_MAP_INVALID_RELATIONSHIP, fileName);
         }
-        this.relationships = relationships;
-
-        outgoingRelationships = calculateRelationships(Set.of(Direction.OUTGOING));
-        incomingRelationships = calculateRelationships(Set.of(Direction.INCOMING));
-        allRelationships = calculateRelationships(Set.of(Direction.OUTGOING, Direction.INCOMING));
+        return ConceptGraph.of(concepts, relationships);
     }
 
     public long conceptCount() {
-        return concepts.size();
+        return graph.conceptCount();
     }
 
     public long relationshipCount() {
-        return relationships.size();
+        return graph.relationshipCount();
+    }
+
+    /**
+     * @return {@link ConceptMapMetrics} of the concept map, which are calculated once, when first requested.
+     */
+    public ConceptMapMetrics metrics() {
+        return metrics.get();
     }
 
     public long levelCount() {
-        var levelCount = 0L;
-        var incomingRelationships = new HashMap<>(this.incomingRelationships);
-        if (incomingRelationships.containsValue(EMPTY)) {
-            var explicitLevels = true;
-            var conceptsNoIncoming = EMPTY;
-            while (explicitLevels && conceptsNoIncoming.size() < conceptCount()) {
-                var newConceptsNoIncoming = incomingRelationships.entrySet().stream()
-                        .filter(e -> e.getValue().isEmpty())
-                        .map(Map.Entry::getKey)
-                        .collect(toSet());
-                if (conceptsNoIncoming.size() == newConceptsNoIncoming.size()) {
-                    explicitLevels = false;
-                    levelCount = 0;
-                } else {
-                    conceptsNoIncoming = newConceptsNoIncoming;
-                    for (var ir : incomingRelationships.entrySet()) {
-                        for (var cni : conceptsNoIncoming) {
-                            if (ir.getValue().contains(cni)) ir.setValue(EMPTY);
-                        }
-                    }
-                    levelCount++;
-                }
-            }
-        }
+        var event = new AnalysisEvent();
+        event.begin();
+        var levelCount = metrics().getLevelCount();
+        commit(event, "level-count", levelCount);
         return levelCount;
     }
 
+    /**
+     * @return Hierarchical level of each concept, starting from 1 for concepts without incoming relationships, or
+     * an empty map if the hierarchy is not explicit.
+     */
+    public Map<Concept, Integer> levels() {
+        var levels = StructureAnalysis.levels(graph);
+        if (StructureAnalysis.levelCount(levels) == 0) return Map.of();
+
+        var conceptLevels = new HashMap<Concept, Integer>(levels.length * 2);
+        for (var c = 0; c < levels.length; c++) {
+            conceptLevels.put(graph.concept(c), levels[c]);
+        }
+        return conceptLevels;
+    }
+
     public long branchCount() {
-        return relationships.stream()
-                .map(r -> r.fromConcept)
-                .collect(groupingBy(Function.identity(), counting()))
-                .values().stream()
-                .filter(v -> v > 1)
-                .count();
+        return metrics().getBranchCount();
     }
 
     public long exampleCount() {
-        var regex = "(?i).*(piemēr|piemer|eksemplār|eksemplar|example|instance).*";
-        return relationships.stream().filter(r -> r.matches(regex)).count();
+        return metrics().getExampleCount();
     }
 
     public boolean containsCycles() {
-        var recursionStack = new HashSet<Concept>();
-        var visited = new HashSet<Concept>();
-        return outgoingRelationships.keySet().stream()
-                .anyMatch(c -> subgraphContainsCycles(c, recursionStack, visited));
-    }
-
-    private boolean subgraphContainsCycles(Concept concept, Set<Concept> recursionStack, Set<Concept> visited) {
-        if (recursionStack.contains(concept)) {
-            return true;
-        } else if (visited.contains(concept)) {
-            return false;
-        } else {
-            recursionStack.add(concept);
-            visited.add(concept);
-            var subgraphContainsCycles = outgoingRelationships.get(concept).stream()
-                    .anyMatch(cor -> subgraphContainsCycles(cor, recursionStack, visited));
-            recursionStack.remove(concept);
-            return subgraphContainsCycles;
-        }
+        return metrics().isContainsCycles();
     }
 
     public long subnetCount() {
-        var subnetCount = 0L;
-        var currentConcept = anyConcept();
-        var currentConcepts = new ListOrderedSet<Concept>();
-        while (currentConcepts.size() < conceptCount()) {
-            while (currentConcept.isPresent()) {
-                var concept = currentConcept.get();
-                currentConcepts.add(concept);
-                currentConcepts.addAll(allRelationships.get(concept));
-                var index = currentConcepts.indexOf(concept);
-                currentConcept = index < currentConcepts.size() - 1 ?
-                        Optional.of(currentConcepts.get(index + 1)) :
-                        Optional.empty();
-            }
-            currentConcept = anyConceptNotIn(currentConcepts, currentConcept);
-            subnetCount++;
-        }
+        var event = new AnalysisEvent();
+        event.begin();
+        var subnetCount = metrics().getSubnetCount();
+        commit(event, "subnet-count", subnetCount);
         return subnetCount;
     }
 
     /**
      * For each relationship in the concept map calculates all paths that include it.
+     * <p>
+     * Paths that include relationship {@code A -> B} lead from {@code A} or any concept that {@code A} can be
+     * reached from to {@code B} or any concept that can be reached from {@code B}.
      */
     public Map<Relationship, Set<Relationship>> allPaths() {
-        var allPaths = new HashMap<Relationship, Set<Relationship>>();
-        for (var r : relationships) {
-            var paths = new HashSet<Relationship>();
-            paths.add(r);
-
-            var currentOutgoingConcepts = new ListOrderedSet<Concept>();
-            var currentIncomingConcepts = new ListOrderedSet<Concept>();
-            currentOutgoingConcepts.add(r.toConcept);
-            currentIncomingConcepts.add(r.fromConcept);
-
-            var o = 0;
-            while (o < currentOutgoingConcepts.size()) {
-                var currentOutgoingRelationships = outgoingRelationships.get(currentOutgoingConcepts.get(o++));
-                for (var cor : currentOutgoingRelationships) {
-                    currentOutgoingConcepts.add(cor);
-                    paths.add(new Relationship(r.fromConcept, cor));
+        return allPaths(Budget.UNLIMITED).value;
+    }
+
+    /**
+     * Same as {@link #allPaths()}, but stops once the {@code budget} is exceeded. The partial result contains the
+     * paths of the relationships processed until then.
+     */
+    public BudgetedResult<Map<Relationship, Set<Relationship>>> allPaths(Budget budget) {
+        return allPaths(budget, IndexLoop.sequential());
+    }
+
+    /**
+     * Same as {@link #allPaths(Budget)}, but calculates the paths of separate relationships in the {@code pool}.
+     * The limit of paths leaves out the same relationships as on a single thread.
+     */
+    public BudgetedResult<Map<Relationship, Set<Relationship>>> allPaths(Budget budget, ForkJoinPool pool) {
+        return allPaths(budget, IndexLoop.parallel(pool, Thread.currentThread()));
+    }
+
+    private BudgetedResult<Map<Relationship, Set<Relationship>>> allPaths(Budget budget, IndexLoop loop) {
+        var event = new AnalysisEvent();
+        event.begin();
+        var reachability = reachability();
+        var allRelationships = relationships.toArray(new Relationship[0]);
+
+        // Path counts are known in advance, so the relationships within the limit are found before any work is done
+        var pathCounts = new long[allRelationships.length];
+        var allowedCount = 0;
+        var allowedPathCount = 0L;
+        for (; allowedCount < allRelationships.length; allowedCount++) {
+            var r = allRelationships[allowedCount];
+            pathCounts[allowedCount] = (long) reachability.ancestorCount(graph.indexOf(r.fromConcept)) *
+                    reachability.descendantCount(graph.indexOf(r.toConcept));
+            if (allowedPathCount + pathCounts[allowedCount] > budget.maxPaths) break;
+            allowedPathCount += pathCounts[allowedCount];
+        }
+
+        var paths = new AtomicReferenceArray<Set<Relationship>>(allowedCount);
+        var processedCount = loop.run(allowedCount, budget, i -> {
+            var r = allRelationships[i];
+            var ancestors = reachability.ancestors(graph.indexOf(r.fromConcept));
+            var descendants = reachability.descendants(graph.indexOf(r.toConcept));
+            var relationshipPaths = new HashSet<Relationship>(ancestors.length * descendants.length * 4 / 3 + 1);
+            for (var a : ancestors) {
+                for (var d : descendants) {
+                    relationshipPaths.add(new Relationship(graph.concept(a), graph.concept(d)));
                 }
             }
+            paths.set(i, relationshipPaths);
+        });
 
-            var i = 0;
-            while (i < currentIncomingConcepts.size()) {
-                var currentIncomingRelationships = incomingRelationships.get(currentIncomingConcepts.get(i++));
-                for (var cir : currentIncomingRelationships) {
-                    currentIncomingConcepts.add(cir);
-                    for (var coc : currentOutgoingConcepts) {
-                        paths.add(new Relationship(cir, coc));
-                    }
-                }
+        var allPaths = new HashMap<Relationship, Set<Relationship>>();
+        var pathCount = 0L;
+        for (var i = 0; i < allowedCount; i++) {
+            var relationshipPaths = paths.get(i);
+            if (relationshipPaths == null) continue;
+            allPaths.put(allRelationships[i], relationshipPaths);
+            pathCount += pathCounts[i];
+        }
+        commit(event, "all-paths", pathCount);
+        return processedCount < allRelationships.length
+                ? BudgetedResult.exceeded(allPaths, (double) processedCount / allRelationships.length)
+                : BudgetedResult.complete(allPaths);
+    }
+
+    /**
+     * Counts paths in {@link #allPaths()} without calculating them.
+     */
+    public long allPathCount() {
+        var reachability = reachability();
+        var allPathCount = 0L;
+        for (var c = 0; c < graph.conceptCount(); c++) {
+            for (var i = graph.outgoingStart(c); i < graph.outgoingEnd(c); i++) {
+                allPathCount += (long) reachability.ancestorCount(c) * reachability.descendantCount(graph.outgoingTarget(i));
             }
-            allPaths.put(r, paths);
         }
-        return allPaths;
+        return allPathCount;
     }
 
+    /**
+     * @return {@link ReachabilityIndex} of the concept map, which is calculated once, when it is first requested.
+     */
+    public ReachabilityIndex reachability() {
+        return reachability.get();
+    }
+
+    /**
+     * Calculates maximal proposition chains, i.e. paths from concepts without incoming relationships to concepts
+     * without outgoing relationships. See {@link PropositionChains} to avoid calculating all of them at once.
+     *
+     * @return Longest paths or an empty set, if the concept map contains cycles.
+     */
     public Set<List<Concept>> longestPaths() {
+        return longestPaths(Budget.UNLIMITED).value;
+    }
+
+    /**
+     * Same as {@link #longestPaths()}, but stops once the {@code budget} is exceeded. The partial result contains
+     * the paths found until then.
+     */
+    public BudgetedResult<Set<List<Concept>>> longestPaths(Budget budget) {
+        var event = new AnalysisEvent();
+        event.begin();
+        var chains = propositionChains();
         var longestPaths = new HashSet<List<Concept>>();
-        if (!containsCycles()) {
-            incomingRelationships.entrySet().stream()
-                    .filter(ir -> ir.getValue().isEmpty())
-                    .forEach(ir -> {
-                        var currentConcepts = new ArrayList<Concept>();
-                        currentConcepts.add(ir.getKey());
-                        var i = 0;
-                        while (i < currentConcepts.size()) {
-                            var currentConcept = currentConcepts.get(i);
-                            var currentOutgoingRelationships = outgoingRelationships.get(currentConcept);
-                            var pathsToAdd = new HashSet<List<Concept>>();
-                            var pathsToRemove = new HashSet<List<Concept>>();
-                            for (var cor : currentOutgoingRelationships) {
-                                currentConcepts.add(cor);
-                                if (i == 0) {
-                                    var path = List.of(currentConcept, cor);
-                                    longestPaths.add(path);
-                                } else for (var path : longestPaths) {
-                                    if (path.indexOf(currentConcept) == path.size() - 1) {
-                                        var longerPath = new ArrayList<>(path);
-                                        longerPath.add(cor);
-                                        pathsToAdd.add(longerPath);
-                                        pathsToRemove.add(path);
-                                    }
-                                }
-                            }
-                            longestPaths.addAll(pathsToAdd);
-                            longestPaths.removeAll(pathsToRemove);
-                            i++;
-                        }
-                    });
+        for (var chain : chains) {
+            if (!budget.allows(longestPaths.size() + 1L)) {
+                log.debug("Found {} of {} longest paths within budget", longestPaths.size(), chains.count());
+                commit(event, "longest-paths", longestPaths.size());
+                return BudgetedResult.exceeded(longestPaths, (double) longestPaths.size() / chains.count());
+            }
+            var concepts = new ArrayList<Concept>(chain.length);
+            for (var c : chain) {
+                concepts.add(graph.concept(c));
+            }
+            longestPaths.add(concepts);
         }
-        log.debug("Longest paths {}", longestPaths);
-        return longestPaths;
+        log.debug("Found {} longest paths", longestPaths.size());
+        commit(event, "longest-paths", longestPaths.size());
+        return BudgetedResult.complete(longestPaths);
     }
 
     /**
-     * Checks if the other {@link ConceptMap} is similar to this one.
-     * <p>
-     * Two concept maps are considered similar if they contain equal concepts.
+     * @return {@link PropositionChains} of the concept map, which are prepared once, when first requested.
      */
-    public boolean isSimilar(ConceptMap other) {
-        return concepts.size() == other.concepts.size() && concepts.containsAll(other.concepts);
+    public PropositionChains propositionChains() {
+        return propositionChains.get();
     }
 
-    public boolean containsRelationship(Concept fromConcept, Concept toConcept) {
-        return relationships.contains(new Relationship(fromConcept, toConcept));
+    /**
+     * @return Hex SHA-256 hash of the concept ids and the relationships, which does not depend on the order in which
+     * they have been read. Equal concept maps have equal fingerprints, as names are left out in the same way as by
+     * {@link #equals(Object)}. Calculated once, when first requested.
+     */
+    public String fingerprint() {
+        return fingerprint.get();
     }
 
     /**
-     * Represents relationship direction.
+     * @return Same as {@link #fingerprint()}, but includes the names of relationships, e.g. for {@link #metrics()},
+     * as the number of examples depends on them.
      */
-    private enum Direction {
-        OUTGOING, INCOMING;
+    public String namedFingerprint() {
+        return namedFingerprint.get();
     }
 
-    private Map<Concept, Set<Concept>> calculateRelationships(Set<Direction> directions) {
-        var relationships = new HashMap<Concept, Set<Concept>>();
-        for (var c : concepts) {
-            relationships.put(c, new HashSet<>());
+    private static String fingerprint(ConceptGraph graph, Set<Relationship> relationships, boolean withNames) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
         }
-        for (var r : this.relationships) {
-            if (directions.contains(Direction.OUTGOING)) {
-                relationships.get(r.fromConcept).add(r.toConcept);
+
+        // Concepts are indexed in the order of their ids, so sorting relationships by indexes makes the order canonical
+        var sortedRelationships = new ArrayList<>(relationships);
+        sortedRelationships.sort(Comparator
+                .comparingInt((Relationship r) -> graph.indexOf(r.fromConcept))
+                .thenComparingInt(r -> graph.indexOf(r.toConcept)));
+        try (var out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            out.writeInt(graph.conceptCount());
+            for (var c = 0; c < graph.conceptCount(); c++) {
+                writeString(out, graph.concept(c).id);
             }
-            if (directions.contains(Direction.INCOMING)) {
-                relationships.get(r.toConcept).add(r.fromConcept);
+            out.writeInt(sortedRelationships.size());
+            for (var relationship : sortedRelationships) {
+                out.writeInt(graph.indexOf(relationship.fromConcept));
+                out.writeInt(graph.indexOf(relationship.toConcept));
+                if (!withNames) continue;
+                if (relationship.name != null) {
+                    writeString(out, relationship.name);
+                } else {
+                    out.writeInt(-1);
+                }
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void commit(AnalysisEvent event, String analysis, long result) {
+        if (event.shouldCommit()) {
+            event.analysis = analysis;
+            event.conceptCount = graph.conceptCount();
+            event.relationshipCount = graph.relationshipCount();
+            event.result = result;
+            event.commit();
         }
-        // Use unmodifiable map to prevent undesired changes to its contents
-        return Map.copyOf(relationships);
     }
 
-    private Optional<Concept> anyConcept() {
-        return concepts.stream().findAny();
+    /**
+     * Checks if the other {@link ConceptMap} is similar to this one.
+     * <p>
+     * Two concept maps are considered similar if they contain equal concepts.
+     */
+    public boolean isSimilar(ConceptMap other) {
+        return concepts.size() == other.concepts.size() && concepts.containsAll(other.concepts);
     }
 
-    private Optional<Concept> anyConceptNotIn(Set<Concept> subset, Optional<Concept> or) {
-        return concepts.stream()
-                .filter(c -> !subset.contains(c))
-                .findFirst()
-                .or(() -> or);
+    public boolean containsRelationship(Concept fromConcept, Concept toConcept) {
+        var fromIndex = graph.indexOf(fromConcept);
+        var toIndex = graph.indexOf(toConcept);
+        return fromIndex >= 0 && toIndex >= 0 && graph.containsRelationship(fromIndex, toIndex);
     }
 
     @Override
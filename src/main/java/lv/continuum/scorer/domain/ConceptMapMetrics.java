@@ -0,0 +1,46 @@
+package lv.continuum.scorer.domain;
+
+import lombok.Value;
+import lv.continuum.scorer.common.KeywordMatcher;
+
+import java.util.Set;
+
+/**
+ * Structural metrics of a {@link ConceptMap}, which are calculated together using {@link StructureAnalysis}.
+ */
+@Value
+public class ConceptMapMetrics {
+
+    // Languages are listed in keywords/languages.properties
+    private static final KeywordMatcher EXAMPLE_KEYWORDS = KeywordMatcher.loadLanguages("examples", "keywords");
+
+    long conceptCount;
+    long relationshipCount;
+    long levelCount;
+    long branchCount;
+    long exampleCount;
+    boolean containsCycles;
+    long subnetCount;
+
+    static ConceptMapMetrics calculate(ConceptGraph graph, Set<Relationship> relationships) {
+        var branchCount = 0L;
+        for (var c = 0; c < graph.conceptCount(); c++) {
+            if (graph.outgoingCount(c) > 1) branchCount++;
+        }
+
+        var exampleCount = 0L;
+        for (var relationship : relationships) {
+            if (relationship.name != null && EXAMPLE_KEYWORDS.containsAny(relationship.name)) exampleCount++;
+        }
+
+        return new ConceptMapMetrics(
+                graph.conceptCount(),
+                graph.relationshipCount(),
+                StructureAnalysis.levelCount(StructureAnalysis.levels(graph)),
+                branchCount,
+                exampleCount,
+                StructureAnalysis.containsCycles(graph),
+                StructureAnalysis.subnetCount(graph)
+        );
+    }
+}
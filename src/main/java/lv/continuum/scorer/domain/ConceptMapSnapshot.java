@@ -0,0 +1,178 @@
+package lv.continuum.scorer.domain;
+
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compact binary format of parsed {@link ConceptMap}s, which can be loaded without parsing XML.
+ * <p>
+ * A snapshot contains a header ({@code CMAP} magic, version, concept, label and relationship counts), the string
+ * table of concept names in the order of their ids, the string table of distinct relationship names, and three int
+ * arrays with the concept indexes and the name index (or {@code -1}) of every relationship. Each string table is
+ * stored as an int array of UTF-8 byte lengths followed by the concatenated bytes. All numbers are big-endian.
+ */
+@Slf4j
+public class ConceptMapSnapshot {
+
+    public static final String FILE_EXTENSION = ".cmap";
+
+    static final int MAGIC = 0x434d4150;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+    private ConceptMapSnapshot() {
+        // Do nothing
+    }
+
+    public static boolean isSnapshot(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(FILE_EXTENSION);
+    }
+
+    public static void write(ConceptMap conceptMap, Path path) throws IOException {
+        var buffer = write(conceptMap);
+        try (var channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    public static ByteBuffer write(ConceptMap conceptMap) {
+        var graph = conceptMap.graph;
+        var conceptNames = new ArrayList<byte[]>(graph.conceptCount());
+        for (var c = 0; c < graph.conceptCount(); c++) {
+            conceptNames.add(graph.concept(c).name.getBytes(StandardCharsets.UTF_8));
+        }
+
+        var labelIndexes = new LinkedHashMap<String, Integer>();
+        var relationshipCount = conceptMap.relationships.size();
+        var from = new int[relationshipCount];
+        var to = new int[relationshipCount];
+        var labels = new int[relationshipCount];
+        var r = 0;
+        for (var relationship : conceptMap.relationships) {
+            from[r] = graph.indexOf(relationship.fromConcept);
+            to[r] = graph.indexOf(relationship.toConcept);
+            labels[r] = relationship.name != null
+                    ? labelIndexes.computeIfAbsent(relationship.name, name -> labelIndexes.size())
+                    : -1;
+            r++;
+        }
+        var labelNames = new ArrayList<byte[]>(labelIndexes.size());
+        for (var label : labelIndexes.keySet()) {
+            labelNames.add(label.getBytes(StandardCharsets.UTF_8));
+        }
+
+        var size = HEADER_BYTES + stringTableBytes(conceptNames) + stringTableBytes(labelNames) +
+                3 * relationshipCount * Integer.BYTES;
+        var buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putInt(conceptNames.size()).putInt(labelNames.size()).putInt(relationshipCount);
+        putStringTable(buffer, conceptNames);
+        putStringTable(buffer, labelNames);
+        buffer.asIntBuffer().put(from).put(to).put(labels);
+        return buffer.position(buffer.limit()).flip();
+    }
+
+    /**
+     * Reads the snapshot by mapping the file into memory.
+     */
+    public static ConceptMap read(Path path) throws IOException, InvalidDataException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, path.getFileName().toString());
+        }
+    }
+
+    /**
+     * Reads the snapshot between the current position and the limit of the {@code buffer}.
+     *
+     * @throws InvalidDataException If the snapshot is truncated, of an unsupported version or inconsistent.
+     */
+    public static ConceptMap read(ByteBuffer buffer, String fileName) throws InvalidDataException {
+        try {
+            var conceptMap = read(buffer.slice());
+            if (conceptMap != null) return conceptMap;
+        } catch (InvalidDataException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            log.debug("Issue while reading snapshot {}", fileName, e);
+        }
+        throw new InvalidDataException(ErrorCode.INVALID_FILE, fileName);
+    }
+
+    /**
+     * @return Concept map, or {@code null} if the snapshot is inconsistent.
+     */
+    private static ConceptMap read(ByteBuffer buffer) throws InvalidDataException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+        var conceptCount = buffer.getInt();
+        var labelCount = buffer.getInt();
+        var relationshipCount = buffer.getInt();
+        if (conceptCount <= 0 || labelCount < 0 || relationshipCount <= 0) return null;
+
+        var conceptNames = getStringTable(buffer, conceptCount);
+        var labelNames = getStringTable(buffer, labelCount);
+        var from = getInts(buffer, relationshipCount);
+        var to = getInts(buffer, relationshipCount);
+        var labels = getInts(buffer, relationshipCount);
+
+        var sortedConcepts = new Concept[conceptCount];
+        for (var c = 0; c < conceptCount; c++) {
+            sortedConcepts[c] = new Concept(conceptNames[c]);
+            // Strictly ascending ids rule out duplicate concepts and match the order of the graph
+            if (c > 0 && sortedConcepts[c - 1].id.compareTo(sortedConcepts[c].id) >= 0) return null;
+        }
+        var relationships = new HashSet<Relationship>(relationshipCount * 2);
+        for (var r = 0; r < relationshipCount; r++) {
+            var name = labels[r] >= 0 ? labelNames[labels[r]] : null;
+            relationships.add(new Relationship(sortedConcepts[from[r]], sortedConcepts[to[r]], name));
+        }
+        if (relationships.size() != relationshipCount) return null;
+
+        var concepts = Set.of(sortedConcepts);
+        return new ConceptMap(ConceptGraph.of(sortedConcepts, from, to), concepts, relationships);
+    }
+
+    private static int stringTableBytes(List<byte[]> strings) {
+        return strings.size() * Integer.BYTES + strings.stream().mapToInt(s -> s.length).sum();
+    }
+
+    private static void putStringTable(ByteBuffer buffer, List<byte[]> strings) {
+        for (var string : strings) buffer.putInt(string.length);
+        for (var string : strings) buffer.put(string);
+    }
+
+    private static String[] getStringTable(ByteBuffer buffer, int count) {
+        var lengths = getInts(buffer, count);
+        var strings = new String[count];
+        var bytes = new byte[0];
+        for (var i = 0; i < count; i++) {
+            if (lengths[i] > buffer.remaining()) throw new BufferUnderflowException();
+            if (bytes.length < lengths[i]) bytes = new byte[Math.max(lengths[i], 2 * bytes.length)];
+            buffer.get(bytes, 0, lengths[i]);
+            strings[i] = new String(bytes, 0, lengths[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        if (count > buffer.remaining() / Integer.BYTES) throw new BufferUnderflowException();
+        var ints = new int[count];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return ints;
+    }
+}
@@ -0,0 +1,204 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
+import lv.continuum.scorer.common.IndexLoop;
+
+/**
+ * Overlap of the relationships of each concept in a student and a teacher {@link ConceptMap}, which is the common
+ * part of comparisons using closeness indexes and error analysis, calculated for both of them in a single pass.
+ * <p>
+ * Rows of a {@link ConceptGraph} are sorted, and concepts are indexed in the order of their ids, so a student row
+ * translated to teacher indexes stays sorted. Rows of similar lengths are intersected by merging them, while a row
+ * that is much shorter than the other one is looked up in it using binary search. Nothing is allocated per concept.
+ * Instances are immutable and can be shared between threads.
+ */
+public class ConceptOverlap {
+
+    // Rows that are this many times shorter than the other row are looked up in it
+    private static final int SEARCH_RATIO = 16;
+
+    private final int conceptCount;
+    private final int teacherConceptCount;
+    private final double[] closenessIndexes;
+    private final long correctRelationshipCount;
+
+    private ConceptOverlap(int conceptCount,
+                           int teacherConceptCount,
+                           double[] closenessIndexes,
+                           long correctRelationshipCount) {
+        this.conceptCount = conceptCount;
+        this.teacherConceptCount = teacherConceptCount;
+        this.closenessIndexes = closenessIndexes;
+        this.correctRelationshipCount = correctRelationshipCount;
+    }
+
+    /**
+     * @param loop Loop over student concepts, which may be parallel. Results do not depend on it.
+     */
+    public static BudgetedResult<ConceptOverlap> calculate(ConceptMap studentConceptMap,
+                                                           ConceptMap teacherConceptMap,
+                                                           Budget budget,
+                                                           IndexLoop loop) {
+        var student = studentConceptMap.graph;
+        var teacher = teacherConceptMap.graph;
+        var similar = studentConceptMap.isSimilar(teacherConceptMap);
+
+        // Similar concept maps index concepts in the same way, otherwise indexes are translated both ways
+        var teacherIndexes = similar ? null : translation(student, teacher);
+        var studentIndexes = similar ? null : translation(teacher, student);
+
+        // Concepts that are not present in the teacher concept map are marked with NaN
+        var closenessIndexes = new double[student.conceptCount()];
+        var correctCounts = similar ? new int[student.conceptCount()] : null;
+        var comparedCount = loop.run(student.conceptCount(), budget, c -> {
+            var t = teacherIndexes != null ? teacherIndexes[c] : c;
+            if (t < 0) {
+                closenessIndexes[c] = Double.NaN;
+                return;
+            }
+            double intersectionCount = intersectionCount(
+                    student, student.neighbourStart(c), student.neighbourEnd(c), teacherIndexes,
+                    teacher, teacher.neighbourStart(t), teacher.neighbourEnd(t), studentIndexes,
+                    true
+            );
+            double unionCount = student.neighbourCount(c) + teacher.neighbourCount(t) - intersectionCount;
+            closenessIndexes[c] = intersectionCount == 0 && unionCount == 0 ? 1 : intersectionCount / unionCount;
+            if (correctCounts != null) {
+                correctCounts[c] = intersectionCount(
+                        student, student.outgoingStart(c), student.outgoingEnd(c), null,
+                        teacher, teacher.outgoingStart(c), teacher.outgoingEnd(c), null,
+                        false
+                );
+            }
+        });
+        if (comparedCount < student.conceptCount()) {
+            return BudgetedResult.exceeded(null, (double) comparedCount / student.conceptCount());
+        }
+
+        var correctRelationshipCount = -1L;
+        if (correctCounts != null) {
+            correctRelationshipCount = 0;
+            for (var correctCount : correctCounts) {
+                correctRelationshipCount += correctCount;
+            }
+        }
+        return BudgetedResult.complete(new ConceptOverlap(
+                student.conceptCount(),
+                teacher.conceptCount(),
+                closenessIndexes,
+                correctRelationshipCount
+        ));
+    }
+
+    /**
+     * @return Mean closeness index of all concepts, where concepts present in only one of the concept maps have
+     * closeness index 0.
+     */
+    public double closenessSimilarityDegree() {
+
+        // Summed in index order, so that the result does not depend on how the overlap has been calculated
+        double closenessIndexSum = 0;
+        var commonConceptCount = 0;
+        for (var closenessIndex : closenessIndexes) {
+            if (Double.isNaN(closenessIndex)) continue;
+            commonConceptCount++;
+            closenessIndexSum += closenessIndex;
+        }
+        var differentConceptCount = conceptCount - commonConceptCount + teacherConceptCount - commonConceptCount;
+        return closenessIndexSum / (commonConceptCount + differentConceptCount);
+    }
+
+    /**
+     * @return Number of student relationships that are present in the teacher concept map.
+     * @throws IllegalStateException If the concept maps are not similar.
+     */
+    public long correctRelationshipCount() {
+        if (correctRelationshipCount < 0) {
+            throw new IllegalStateException("Relationships are only compared in similar concept maps");
+        }
+        return correctRelationshipCount;
+    }
+
+    private static int[] translation(ConceptGraph from, ConceptGraph to) {
+        var indexes = new int[from.conceptCount()];
+        for (var c = 0; c < indexes.length; c++) {
+            indexes[c] = to.indexOf(from.concept(c));
+        }
+        return indexes;
+    }
+
+    /**
+     * Counts concepts present in both rows, which belong to different graphs.
+     *
+     * @param teacherIndexes Translation of student indexes to teacher ones, or {@code null} if they are the same.
+     * @param studentIndexes Translation of teacher indexes to student ones, or {@code null} if they are the same.
+     * @param neighbours     Whether the rows are neighbour rows rather than outgoing ones.
+     */
+    private static int intersectionCount(ConceptGraph student, int studentStart, int studentEnd, int[] teacherIndexes,
+                                         ConceptGraph teacher, int teacherStart, int teacherEnd, int[] studentIndexes,
+                                         boolean neighbours) {
+        var studentLength = studentEnd - studentStart;
+        var teacherLength = teacherEnd - teacherStart;
+        if (studentLength == 0 || teacherLength == 0) return 0;
+
+        var count = 0;
+        if ((long) studentLength * SEARCH_RATIO < teacherLength) {
+            for (var s = studentStart; s < studentEnd; s++) {
+                var target = translate(target(student, s, neighbours), teacherIndexes);
+                if (target >= 0 && contains(teacher, teacherStart, teacherEnd, target, neighbours)) count++;
+            }
+        } else if ((long) teacherLength * SEARCH_RATIO < studentLength) {
+            for (var t = teacherStart; t < teacherEnd; t++) {
+                var target = translate(target(teacher, t, neighbours), studentIndexes);
+                if (target >= 0 && contains(student, studentStart, studentEnd, target, neighbours)) count++;
+            }
+        } else {
+
+            // Translation skips concepts missing from the other graph, but keeps the order of the rest
+            int s = studentStart, t = teacherStart;
+            while (s < studentEnd && t < teacherEnd) {
+                var studentTarget = translate(target(student, s, neighbours), teacherIndexes);
+                if (studentTarget < 0) {
+                    s++;
+                    continue;
+                }
+                var teacherTarget = target(teacher, t, neighbours);
+                if (studentTarget < teacherTarget) {
+                    s++;
+                } else if (studentTarget > teacherTarget) {
+                    t++;
+                } else {
+                    count++;
+                    s++;
+                    t++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int target(ConceptGraph graph, int i, boolean neighbours) {
+        return neighbours ? graph.neighbourTarget(i) : graph.outgoingTarget(i);
+    }
+
+    private static int translate(int index, int[] indexes) {
+        return indexes != null ? indexes[index] : index;
+    }
+
+    private static boolean contains(ConceptGraph graph, int start, int end, int index, boolean neighbours) {
+        int low = start, high = end - 1;
+        while (low <= high) {
+            var middle = (low + high) >>> 1;
+            var target = target(graph, middle, neighbours);
+            if (target < index) {
+                low = middle + 1;
+            } else if (target > index) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package lv.continuum.scorer.domain;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size open addressing set of {@code long} keys, which does not box the keys or allocate on lookups.
+ * <p>
+ * All keys are added on construction, so instances are immutable and can be shared between threads.
+ */
+class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long[] keys;
+    private final int mask;
+    private final boolean containsEmpty;
+    private final int size;
+
+    LongHashSet(long[] values) {
+        var capacity = Integer.highestOneBit(Math.max(values.length, 1) * 2 - 1) << 1;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+
+        var containsEmpty = false;
+        var size = 0;
+        for (var value : values) {
+            if (value == EMPTY) {
+                if (!containsEmpty) size++;
+                containsEmpty = true;
+                continue;
+            }
+            var i = index(value);
+            while (keys[i] != EMPTY && keys[i] != value) i = (i + 1) & mask;
+            if (keys[i] == EMPTY) {
+                keys[i] = value;
+                size++;
+            }
+        }
+        this.containsEmpty = containsEmpty;
+        this.size = size;
+    }
+
+    boolean contains(long value) {
+        if (value == EMPTY) return containsEmpty;
+        var i = index(value);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int index(long value) {
+        // Spread the bits of both halves of the key, as keys often differ only in the lowest bits of each half
+        var hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
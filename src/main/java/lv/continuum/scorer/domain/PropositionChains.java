@@ -0,0 +1,161 @@
+package lv.continuum.scorer.domain;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Maximal proposition chains of a {@link ConceptGraph}, i.e. paths that lead from concepts without incoming
+ * relationships to concepts without outgoing relationships.
+ * <p>
+ * Chains are only defined for acyclic graphs. The number of chains is calculated using dynamic programming over
+ * the topological order of concepts, while the chains themselves are enumerated lazily, as there can be
+ * exponentially many of them. Instances are immutable and can be shared between threads.
+ */
+public class PropositionChains implements Iterable<int[]> {
+
+    private final ConceptGraph graph;
+    private final int[] topologicalOrder;
+    private final long count;
+
+    PropositionChains(ConceptGraph graph) {
+        this.graph = graph;
+        var conceptCount = graph.conceptCount();
+
+        // Kahn's algorithm, which leaves out the concepts on or after cycles
+        var order = new int[conceptCount];
+        var incomingCounts = new int[conceptCount];
+        int head = 0, tail = 0;
+        for (var c = 0; c < conceptCount; c++) {
+            incomingCounts[c] = graph.incomingCount(c);
+            if (incomingCounts[c] == 0) order[tail++] = c;
+        }
+        while (head < tail) {
+            var concept = order[head++];
+            for (var i = graph.outgoingStart(concept); i < graph.outgoingEnd(concept); i++) {
+                var next = graph.outgoingTarget(i);
+                if (--incomingCounts[next] == 0) order[tail++] = next;
+            }
+        }
+        topologicalOrder = tail == conceptCount ? order : null;
+        count = topologicalOrder != null ? countChains() : 0;
+    }
+
+    public boolean isAcyclic() {
+        return topologicalOrder != null;
+    }
+
+    /**
+     * @return Number of chains, or {@link Long#MAX_VALUE} if there are more of them.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return Iterator over all chains, each being an array of concept indexes. The iterator is empty if the
+     * graph contains cycles.
+     */
+    @Override
+    public Iterator<int[]> iterator() {
+        return iterator(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return Iterator over at most {@code limit} chains.
+     */
+    public Iterator<int[]> iterator(long limit) {
+        return new ChainIterator(limit);
+    }
+
+    /**
+     * Counts the chains leading to each concept along its predecessors, in topological order.
+     */
+    private long countChains() {
+        var chainCounts = new long[graph.conceptCount()];
+        var count = 0L;
+        for (var concept : topologicalOrder) {
+            if (graph.incomingCount(concept) == 0) {
+                chainCounts[concept] = 1;
+                continue;
+            }
+            for (var i = graph.incomingStart(concept); i < graph.incomingEnd(concept); i++) {
+                chainCounts[concept] = saturatedAdd(chainCounts[concept], chainCounts[graph.incomingTarget(i)]);
+            }
+            if (graph.outgoingCount(concept) == 0) {
+                count = saturatedAdd(count, chainCounts[concept]);
+            }
+        }
+        return count;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        var sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Iterative depth-first search from each concept without incoming relationships.
+     */
+    private class ChainIterator implements Iterator<int[]> {
+
+        private final int[] path = new int[graph.conceptCount()];
+        private final int[] nextEdges = new int[graph.conceptCount()];
+        private long remaining;
+        private int root = -1;
+        private int depth = -1;
+        private int[] next;
+
+        ChainIterator(long limit) {
+            remaining = isAcyclic() ? limit : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && remaining > 0) {
+                next = findNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            var chain = next;
+            next = null;
+            remaining--;
+            return chain;
+        }
+
+        private int[] findNext() {
+            while (true) {
+                if (depth < 0 && !nextRoot()) return null;
+                var concept = path[depth];
+                if (nextEdges[concept] < graph.outgoingEnd(concept)) {
+                    var child = graph.outgoingTarget(nextEdges[concept]++);
+                    path[++depth] = child;
+                    nextEdges[child] = graph.outgoingStart(child);
+                    if (graph.outgoingCount(child) == 0) {
+                        var chain = Arrays.copyOf(path, depth + 1);
+                        depth--;
+                        return chain;
+                    }
+                } else {
+                    depth--;
+                }
+            }
+        }
+
+        private boolean nextRoot() {
+            while (++root < graph.conceptCount()) {
+                if (graph.incomingCount(root) == 0 && graph.outgoingCount(root) > 0) {
+                    path[0] = root;
+                    nextEdges[root] = graph.outgoingStart(root);
+                    depth = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
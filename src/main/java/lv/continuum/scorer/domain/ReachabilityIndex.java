@@ -0,0 +1,232 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.common.Interruptions;
+
+import java.util.Arrays;
+
+/**
+ * Reflexive transitive closure of a {@link ConceptGraph}, stored as bitsets over concept indexes.
+ * <p>
+ * Strongly connected components are condensed first, so that concepts on the same cycle share the same
+ * descendant and ancestor bitsets, and concept maps with cycles are handled the same way as acyclic ones.
+ * <p>
+ * Descendants of concept {@code c} are {@code c} and all concepts reachable from it. Ancestors of concept
+ * {@code c} are {@code c} and all concepts it can be reached from. Instances are immutable and can be shared
+ * between threads.
+ */
+public class ReachabilityIndex {
+
+    private final int words;
+    private final int[] components;
+    private final long[] descendants;
+    private final long[] ancestors;
+    private final int[] descendantCounts;
+    private final int[] ancestorCounts;
+
+    ReachabilityIndex(ConceptGraph graph) {
+        var conceptCount = graph.conceptCount();
+        words = (conceptCount + Long.SIZE - 1) / Long.SIZE;
+        components = new int[conceptCount];
+        var componentCount = findComponents(graph, components);
+
+        // Group concepts by component
+        var memberOffsets = new int[componentCount + 1];
+        for (var component : components) {
+            memberOffsets[component + 1]++;
+        }
+        for (var c = 0; c < componentCount; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        var members = new int[conceptCount];
+        var positions = Arrays.copyOf(memberOffsets, componentCount);
+        for (var concept = 0; concept < conceptCount; concept++) {
+            members[positions[components[concept]]++] = concept;
+        }
+
+        descendants = new long[componentCount * words];
+        ancestors = new long[componentCount * words];
+        for (var concept = 0; concept < conceptCount; concept++) {
+            var offset = components[concept] * words + concept / Long.SIZE;
+            descendants[offset] |= 1L << concept;
+            ancestors[offset] |= 1L << concept;
+        }
+
+        // Components are numbered in reverse topological order, so successors always have lower numbers
+        for (var c = 0; c < componentCount; c++) {
+            Interruptions.check();
+            for (var m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                var concept = members[m];
+                for (var i = graph.outgoingStart(concept); i < graph.outgoingEnd(concept); i++) {
+                    var successor = components[graph.outgoingTarget(i)];
+                    if (successor != c) or(descendants, c, successor);
+                }
+            }
+        }
+        for (var c = componentCount - 1; c >= 0; c--) {
+            Interruptions.check();
+            for (var m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                var concept = members[m];
+                for (var i = graph.incomingStart(concept); i < graph.incomingEnd(concept); i++) {
+                    var predecessor = components[graph.incomingTarget(i)];
+                    if (predecessor != c) or(ancestors, c, predecessor);
+                }
+            }
+        }
+
+        descendantCounts = new int[componentCount];
+        ancestorCounts = new int[componentCount];
+        for (var c = 0; c < componentCount; c++) {
+            descendantCounts[c] = bitCount(descendants, c * words, words);
+            ancestorCounts[c] = bitCount(ancestors, c * words, words);
+        }
+    }
+
+    public int componentCount() {
+        return descendantCounts.length;
+    }
+
+    /**
+     * @return Strongly connected component of the given concept. Components are numbered in reverse topological
+     * order, i.e. relationships between different components always lead to a component with a lower number.
+     */
+    public int component(int concept) {
+        return components[concept];
+    }
+
+    public int descendantCount(int concept) {
+        return descendantCounts[components[concept]];
+    }
+
+    public int ancestorCount(int concept) {
+        return ancestorCounts[components[concept]];
+    }
+
+    public boolean isDescendant(int concept, int descendant) {
+        return (descendants[components[concept] * words + descendant / Long.SIZE] & (1L << descendant)) != 0;
+    }
+
+    public int[] descendants(int concept) {
+        return indexes(descendants, components[concept] * words, descendantCount(concept));
+    }
+
+    public int[] ancestors(int concept) {
+        return indexes(ancestors, components[concept] * words, ancestorCount(concept));
+    }
+
+    /**
+     * Counts descendants that the given concept has in both indexes, which must be built for similar concept maps.
+     */
+    public static int commonDescendantCount(ReachabilityIndex index, ReachabilityIndex other, int concept) {
+        return commonCount(
+                index.descendants, index.components[concept] * index.words,
+                other.descendants, other.components[concept] * other.words,
+                index.words
+        );
+    }
+
+    /**
+     * Counts ancestors that the given concept has in both indexes, which must be built for similar concept maps.
+     */
+    public static int commonAncestorCount(ReachabilityIndex index, ReachabilityIndex other, int concept) {
+        return commonCount(
+                index.ancestors, index.components[concept] * index.words,
+                other.ancestors, other.components[concept] * other.words,
+                index.words
+        );
+    }
+
+    /**
+     * Finds strongly connected components using iterative Tarjan's algorithm.
+     *
+     * @return Number of components found.
+     */
+    private static int findComponents(ConceptGraph graph, int[] components) {
+        var conceptCount = graph.conceptCount();
+        var indexes = new int[conceptCount];
+        var lowLinks = new int[conceptCount];
+        var nextEdges = new int[conceptCount];
+        var onStack = new boolean[conceptCount];
+        var stack = new int[conceptCount];
+        var callStack = new int[conceptCount];
+        Arrays.fill(indexes, -1);
+
+        int index = 0, stackSize = 0, componentCount = 0;
+        for (var root = 0; root < conceptCount; root++) {
+            if (indexes[root] >= 0) continue;
+            var depth = 0;
+            callStack[0] = root;
+            indexes[root] = lowLinks[root] = index++;
+            nextEdges[root] = graph.outgoingStart(root);
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                var concept = callStack[depth];
+                if (nextEdges[concept] < graph.outgoingEnd(concept)) {
+                    var next = graph.outgoingTarget(nextEdges[concept]++);
+                    if (indexes[next] < 0) {
+                        indexes[next] = lowLinks[next] = index++;
+                        nextEdges[next] = graph.outgoingStart(next);
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        callStack[++depth] = next;
+                    } else if (onStack[next]) {
+                        lowLinks[concept] = Math.min(lowLinks[concept], indexes[next]);
+                    }
+                } else {
+                    if (lowLinks[concept] == indexes[concept]) {
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            components[member] = componentCount;
+                        } while (member != concept);
+                        componentCount++;
+                    }
+                    if (--depth >= 0) {
+                        var parent = callStack[depth];
+                        lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[concept]);
+                    }
+                }
+            }
+        }
+        return componentCount;
+    }
+
+    private void or(long[] bitsets, int target, int source) {
+        var targetOffset = target * words;
+        var sourceOffset = source * words;
+        for (var w = 0; w < words; w++) {
+            bitsets[targetOffset + w] |= bitsets[sourceOffset + w];
+        }
+    }
+
+    private static int bitCount(long[] bitsets, int offset, int words) {
+        var count = 0;
+        for (var w = 0; w < words; w++) {
+            count += Long.bitCount(bitsets[offset + w]);
+        }
+        return count;
+    }
+
+    private static int commonCount(long[] bitsets, int offset, long[] otherBitsets, int otherOffset, int words) {
+        var count = 0;
+        for (var w = 0; w < words; w++) {
+            count += Long.bitCount(bitsets[offset + w] & otherBitsets[otherOffset + w]);
+        }
+        return count;
+    }
+
+    private int[] indexes(long[] bitsets, int offset, int count) {
+        var indexes = new int[count];
+        var i = 0;
+        for (var w = 0; w < words; w++) {
+            var word = bitsets[offset + w];
+            while (word != 0) {
+                indexes[i++] = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,140 @@
+package lv.continuum.scorer.domain;
+
+/**
+ * Structural analysis of a {@link ConceptGraph}.
+ * <p>
+ * All algorithms are iterative and run in time linear in the number of concepts and relationships, so they can
+ * handle large and deep concept maps without overflowing the stack.
+ */
+public class StructureAnalysis {
+
+    private static final byte WHITE = 0;
+    private static final byte GREY = 1;
+    private static final byte BLACK = 2;
+
+    private StructureAnalysis() {
+        // Do nothing
+    }
+
+    /**
+     * Assigns hierarchical levels to concepts. Concepts without incoming relationships are at level 1, and every
+     * other concept is one level below the highest concept it is directly reachable from.
+     *
+     * @return Level of each concept, or {@code 0} for concepts that cannot be reached from any concept without
+     * incoming relationships.
+     */
+    public static int[] levels(ConceptGraph graph) {
+        var conceptCount = graph.conceptCount();
+        var levels = new int[conceptCount];
+        var queue = new int[conceptCount];
+        int head = 0, tail = 0;
+        for (var c = 0; c < conceptCount; c++) {
+            if (graph.incomingCount(c) == 0) {
+                levels[c] = 1;
+                queue[tail++] = c;
+            }
+        }
+        while (head < tail) {
+            var concept = queue[head++];
+            for (var i = graph.outgoingStart(concept); i < graph.outgoingEnd(concept); i++) {
+                var next = graph.outgoingTarget(i);
+                if (levels[next] == 0) {
+                    levels[next] = levels[concept] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * @return Number of hierarchical levels, or {@code 0} if the hierarchy is not explicit, i.e. some concepts
+     * do not have a level.
+     */
+    public static int levelCount(int[] levels) {
+        var levelCount = 0;
+        for (var level : levels) {
+            if (level == 0) return 0;
+            levelCount = Math.max(levelCount, level);
+        }
+        return levelCount;
+    }
+
+    /**
+     * Counts weakly connected components using union-find.
+     */
+    public static int subnetCount(ConceptGraph graph) {
+        var parents = new int[graph.conceptCount()];
+        for (var c = 0; c < parents.length; c++) {
+            parents[c] = c;
+        }
+        var subnetCount = graph.conceptCount();
+        for (var c = 0; c < graph.conceptCount(); c++) {
+            for (var i = graph.outgoingStart(c); i < graph.outgoingEnd(c); i++) {
+                if (union(parents, c, graph.outgoingTarget(i))) subnetCount--;
+            }
+        }
+        return subnetCount;
+    }
+
+    /**
+     * Merges the subsets of two concepts.
+     *
+     * @return {@code true} if the concepts were in different subsets.
+     */
+    private static boolean union(int[] parents, int a, int b) {
+        var rootA = find(parents, a);
+        var rootB = find(parents, b);
+        if (rootA == rootB) return false;
+        // Attach to the lower index, which keeps the trees shallow enough when combined with path halving
+        if (rootA < rootB) {
+            parents[rootB] = rootA;
+        } else {
+            parents[rootA] = rootB;
+        }
+        return true;
+    }
+
+    private static int find(int[] parents, int c) {
+        while (parents[c] != c) {
+            parents[c] = parents[parents[c]];
+            c = parents[c];
+        }
+        return c;
+    }
+
+    /**
+     * Detects cycles, including relationships of a concept to itself, using iterative three-colour depth-first
+     * search.
+     */
+    public static boolean containsCycles(ConceptGraph graph) {
+        var conceptCount = graph.conceptCount();
+        var colours = new byte[conceptCount];
+        var nextEdges = new int[conceptCount];
+        var stack = new int[conceptCount];
+        for (var root = 0; root < conceptCount; root++) {
+            if (colours[root] != WHITE) continue;
+            var depth = 0;
+            stack[0] = root;
+            colours[root] = GREY;
+            nextEdges[root] = graph.outgoingStart(root);
+            while (depth >= 0) {
+                var concept = stack[depth];
+                if (nextEdges[concept] < graph.outgoingEnd(concept)) {
+                    var next = graph.outgoingTarget(nextEdges[concept]++);
+                    if (colours[next] == GREY) {
+                        return true;
+                    } else if (colours[next] == WHITE) {
+                        colours[next] = GREY;
+                        nextEdges[next] = graph.outgoingStart(next);
+                        stack[++depth] = next;
+                    }
+                } else {
+                    colours[concept] = BLACK;
+                    depth--;
+                }
+            }
+        }
+        return false;
+    }
+}
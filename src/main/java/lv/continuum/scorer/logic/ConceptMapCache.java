@@ -0,0 +1,226 @@
+package lv.continuum.scorer.logic;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.ConceptMapSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of parsed {@link ConceptMap}s, keyed by the SHA-256 hash of the file contents, so that files with equal
+ * contents are parsed once regardless of their paths.
+ * <p>
+ * The path, size and modification time of every file are remembered together with its hash, so unchanged files
+ * are neither read nor hashed again. The cache is bounded both by the number of entries and by the estimated heap
+ * size of the concept maps, and evicts the least recently used ones first. Each file content is parsed only once,
+ * even if it is requested by several threads at the same time. Files with the {@value ConceptMapSnapshot#FILE_EXTENSION}
+ * extension are read as {@link ConceptMapSnapshot}s instead of being parsed. Instances can be shared between threads.
+ */
+@Slf4j
+public class ConceptMapCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Rough heap usage of a concept or relationship, including the strings and collections that refer to it
+    private static final long BYTES_PER_CONCEPT = 256;
+    private static final long BYTES_PER_RELATIONSHIP = 256;
+
+    // Number of file stamps per cache entry, as several files may have equal contents
+    private static final int STAMPS_PER_ENTRY = 4;
+
+    @Value
+    public static class Stats {
+        long hits;
+        long misses;
+        long evictions;
+        int entries;
+        long estimatedBytes;
+    }
+
+    @Value
+    private static class FileStamp {
+        long size;
+        long modifiedTime;
+        ByteBuffer hash;
+    }
+
+    @Value
+    private static class Entry {
+        ConceptMap conceptMap;
+        long estimatedBytes;
+    }
+
+    private final ConceptMapParser conceptMapParser;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // Guarded by this
+    private final LinkedHashMap<Path, FileStamp> stamps;
+    private final LinkedHashMap<ByteBuffer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long estimatedBytes;
+
+    private final Map<ByteBuffer, CompletableFuture<ConceptMap>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ConceptMapCache(ConceptMapParser conceptMapParser, int maxEntries, long maxBytes) {
+        this.conceptMapParser = conceptMapParser;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        var maxStamps = maxEntries * STAMPS_PER_ENTRY;
+        this.stamps = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, FileStamp> eldest) {
+                return size() > maxStamps;
+            }
+        };
+    }
+
+    public ConceptMapCache(ConceptMapParser conceptMapParser) {
+        this(conceptMapParser, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Same as {@link ConceptMapParser#parse(String)}, but returns the cached {@link ConceptMap} if the file
+     * contents have been parsed before.
+     */
+    public ConceptMap parse(String conceptMapPath) throws IOException, InvalidDataException {
+        var path = Path.of(conceptMapPath).toAbsolutePath().normalize();
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        var size = attributes.size();
+        var modifiedTime = attributes.lastModifiedTime().toMillis();
+
+        // Unchanged files are looked up without reading them
+        FileStamp stamp;
+        synchronized (this) {
+            stamp = stamps.get(path);
+        }
+        if (stamp != null && stamp.size == size && stamp.modifiedTime == modifiedTime) {
+            var conceptMap = lookup(stamp.hash);
+            if (conceptMap != null) return conceptMap;
+        }
+
+        var bytes = Files.readAllBytes(path);
+        var hash = hash(bytes);
+        synchronized (this) {
+            stamps.put(path, new FileStamp(size, modifiedTime, hash));
+        }
+        var conceptMap = lookup(hash);
+        return conceptMap != null ? conceptMap : load(hash, bytes, path);
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), estimatedBytes);
+        }
+    }
+
+    private ConceptMap lookup(ByteBuffer hash) {
+        synchronized (this) {
+            var entry = entries.get(hash);
+            if (entry == null) return null;
+            hits.increment();
+            return entry.conceptMap;
+        }
+    }
+
+    private ConceptMap load(ByteBuffer hash, byte[] bytes, Path path) throws IOException, InvalidDataException {
+        var future = new CompletableFuture<ConceptMap>();
+        var existingFuture = loading.putIfAbsent(hash, future);
+        if (existingFuture != null) {
+            hits.increment();
+            return await(existingFuture);
+        }
+
+        // Another thread may have finished loading between the lookup and registering the future
+        var conceptMap = lookup(hash);
+        if (conceptMap != null) {
+            loading.remove(hash);
+            future.complete(conceptMap);
+            return conceptMap;
+        }
+
+        misses.increment();
+        try {
+            var fileName = path.getFileName().toString();
+            conceptMap = ConceptMapSnapshot.isSnapshot(path)
+                    ? ConceptMapSnapshot.read(ByteBuffer.wrap(bytes), fileName)
+                    : conceptMapParser.parse(new ByteArrayInputStream(bytes), fileName);
+            put(hash, conceptMap);
+            future.complete(conceptMap);
+            return conceptMap;
+        } catch (InvalidDataException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(hash);
+        }
+    }
+
+    private ConceptMap await(CompletableFuture<ConceptMap> future) throws IOException, InvalidDataException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for concept map to be parsed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InvalidDataException) throw (InvalidDataException) e.getCause();
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private synchronized void put(ByteBuffer hash, ConceptMap conceptMap) {
+        var entry = new Entry(conceptMap, estimateBytes(conceptMap));
+        entries.put(hash, entry);
+        estimatedBytes += entry.estimatedBytes;
+
+        // The newest entry is kept even if it alone exceeds the limit
+        var iterator = entries.values().iterator();
+        while ((entries.size() > maxEntries || estimatedBytes > maxBytes) && entries.size() > 1) {
+            var eldest = iterator.next();
+            iterator.remove();
+            estimatedBytes -= eldest.estimatedBytes;
+            evictions.increment();
+        }
+        log.debug("Cached concept map, {} entries with {} estimated bytes", entries.size(), estimatedBytes);
+    }
+
+    /**
+     * Estimates heap usage of the concept map, including its reachability index, which takes two bitsets per concept.
+     */
+    static long estimateBytes(ConceptMap conceptMap) {
+        var conceptCount = conceptMap.conceptCount();
+        var reachabilityBytes = 2 * conceptCount * ((conceptCount + Long.SIZE - 1) / Long.SIZE) * Long.BYTES;
+        return conceptCount * BYTES_PER_CONCEPT +
+                conceptMap.relationshipCount() * BYTES_PER_RELATIONSHIP +
+                reachabilityBytes;
+    }
+
+    private static ByteBuffer hash(byte[] bytes) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
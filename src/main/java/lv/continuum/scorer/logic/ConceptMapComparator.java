@@ -1,106 +1,207 @@
 package lv.continuum.scorer.logic;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
+import lv.continuum.scorer.common.IndexLoop;
 import lv.continuum.scorer.common.InvalidDataException;
 import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
 import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.ConceptOverlap;
+import lv.continuum.scorer.domain.ReachabilityIndex;
+import lv.continuum.scorer.logic.ScoreCache.Score;
+import lv.continuum.scorer.monitoring.ComparisonEvent;
+import lv.continuum.scorer.monitoring.Monitoring;
+import lv.continuum.scorer.monitoring.Phase;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
 
-@RequiredArgsConstructor
+/**
+ * Compares a student {@link ConceptMap} with a teacher concept map.
+ * <p>
+ * Comparisons run on the calling thread, unless a {@link ForkJoinPool} is given, in which case the work on separate
+ * concepts is split across the pool. Either way the results are reduced in the same order, so they are exactly the
+ * same. Comparisons can be cancelled by interrupting the calling thread, in which case
+ * {@link java.util.concurrent.CancellationException} is thrown. Complete results are cached in the
+ * {@link ScoreCache} of the {@link ScoringKey}, if it has one.
+ */
 public class ConceptMapComparator {
 
-    @NonNull
     private final ConceptMap studentConceptMap;
-
-    @NonNull
     private final ConceptMap teacherConceptMap;
+    private final ScoringKey scoringKey;
+    private final ScoreCache scoreCache;
+    private final ForkJoinPool pool;
+    private final Thread owner;
 
-    public double compareUsingClosenessIndexes() {
-        var studentAllRelationships = new HashMap<>(studentConceptMap.allRelationships);
-        var teacherAllRelationships = new HashMap<>(teacherConceptMap.allRelationships);
+    private final Object overlapLock = new Object();
+
+    // Guarded by overlapLock
+    private ConceptOverlap overlap;
+
+    public ConceptMapComparator(@NonNull ConceptMap studentConceptMap, @NonNull ScoringKey scoringKey) {
+        this(studentConceptMap, scoringKey, null, null);
+    }
+
+    public ConceptMapComparator(@NonNull ConceptMap studentConceptMap,
+                                @NonNull ScoringKey scoringKey,
+                                @NonNull ForkJoinPool pool) {
+        this(studentConceptMap, scoringKey, pool, null);
+    }
 
-        var keyIntersection = new HashSet<>(studentAllRelationships.keySet());
-        keyIntersection.retainAll(teacherAllRelationships.keySet());
+    /**
+     * @param owner Thread whose interruption cancels the comparisons, or {@code null} if it is the calling thread.
+     */
+    ConceptMapComparator(ConceptMap studentConceptMap, ScoringKey scoringKey, ForkJoinPool pool, Thread owner) {
+        this.studentConceptMap = studentConceptMap;
+        this.teacherConceptMap = scoringKey.teacherConceptMap;
+        this.scoringKey = scoringKey;
+        this.scoreCache = scoringKey.scoreCache;
+        this.pool = pool;
+        this.owner = owner;
+    }
 
-        var closenessIndexes = new ArrayList<Double>();
-        for (var key : keyIntersection) {
-            var studentKeyRelationships = studentAllRelationships.get(key);
-            var teacherKeyRelationships = teacherAllRelationships.get(key);
+    public ConceptMapComparator(@NonNull ConceptMap studentConceptMap, @NonNull ConceptMap teacherConceptMap) {
+        this(studentConceptMap, new ScoringKey(teacherConceptMap));
+    }
 
-            var intersection = new HashSet<>(studentKeyRelationships);
-            intersection.retainAll(teacherKeyRelationships);
-            double intersectionCount = intersection.size();
+    public double compareUsingClosenessIndexes() {
+        return compareUsingClosenessIndexes(Budget.UNLIMITED).value;
+    }
 
-            var union = new HashSet<>(studentKeyRelationships);
-            union.addAll(teacherKeyRelationships);
-            double unionCount = union.size();
+    /**
+     * Same as {@link #compareUsingClosenessIndexes()}, but stops once the {@code budget} is exceeded.
+     */
+    public BudgetedResult<Double> compareUsingClosenessIndexes(Budget budget) {
+        var score = cached(ScoringMethod.CLOSENESS_INDEXES);
+        if (score != null) return BudgetedResult.complete(score.values[0]);
 
-            double closenessIndex = intersectionCount == 0 && unionCount == 0 ? 1 : intersectionCount / unionCount;
-            closenessIndexes.add(closenessIndex);
+        var event = new ComparisonEvent();
+        event.begin();
+        var start = Monitoring.start();
+        try {
+            return stored(ScoringMethod.CLOSENESS_INDEXES, closenessIndexes(budget));
+        } finally {
+            Monitoring.stop(Phase.CLOSENESS_INDEXES, start);
+            commit(event, ScoringMethod.CLOSENESS_INDEXES);
         }
-        studentAllRelationships.keySet().removeAll(keyIntersection);
-        teacherAllRelationships.keySet().removeAll(keyIntersection);
-        var differentConceptCount = studentAllRelationships.size() + teacherAllRelationships.size();
-        IntStream.range(0, differentConceptCount).forEach(i -> closenessIndexes.add(0.0));
+    }
 
-        var closenessIndexSum = closenessIndexes.stream().mapToDouble(Double::doubleValue).sum();
-        return closenessIndexSum / closenessIndexes.size();
+    private BudgetedResult<Double> closenessIndexes(Budget budget) {
+        var overlap = overlap(budget);
+        if (overlap.exceeded) return BudgetedResult.exceeded(null, overlap.progress);
+        return BudgetedResult.complete(overlap.value.closenessSimilarityDegree());
     }
 
     public double compareUsingImportanceIndexes() throws InvalidDataException {
-        checkAreSimilar(ErrorCode.DIFFERENT_CONCEPTS_IMPORTANCE_INDEXES);
+        return compareUsingImportanceIndexes(Budget.UNLIMITED).value;
+    }
 
-        var studentAllPaths = studentConceptMap.allPaths();
-        var teacherAllPaths = teacherConceptMap.allPaths();
+    /**
+     * Same as {@link #compareUsingImportanceIndexes()}, but stops once the {@code budget} is exceeded.
+     */
+    public BudgetedResult<Double> compareUsingImportanceIndexes(Budget budget) throws InvalidDataException {
+        var score = cached(ScoringMethod.IMPORTANCE_INDEXES);
+        if (score != null) return BudgetedResult.complete(values(score)[0]);
 
-        var keyIntersection = new HashSet<>(studentAllPaths.keySet());
-        keyIntersection.retainAll(teacherAllPaths.keySet());
+        var event = new ComparisonEvent();
+        event.begin();
+        var start = Monitoring.start();
+        try {
+            return stored(ScoringMethod.IMPORTANCE_INDEXES, importanceIndexes(budget));
+        } catch (InvalidDataException e) {
+            store(ScoringMethod.IMPORTANCE_INDEXES, Score.failed(e.errorCode));
+            throw e;
+        } finally {
+            Monitoring.stop(Phase.IMPORTANCE_INDEXES, start);
+            commit(event, ScoringMethod.IMPORTANCE_INDEXES);
+        }
+    }
 
-        double intersectionCount = 0, unionCount = 0;
-        for (var key : keyIntersection) {
-            var studentKeyPaths = studentAllPaths.get(key);
-            var teacherKeyPaths = teacherAllPaths.get(key);
+    private BudgetedResult<Double> importanceIndexes(Budget budget) throws InvalidDataException {
+        checkAreSimilar(ErrorCode.DIFFERENT_CONCEPTS_IMPORTANCE_INDEXES);
 
-            var intersection = new HashSet<>(studentKeyPaths);
-            intersection.retainAll(teacherKeyPaths);
-            intersectionCount += intersection.size();
+        // Paths that include relationship A -> B are pairs of A's ancestors and B's descendants, so paths that
+        // include the same relationship in both maps are pairs of common ancestors and common descendants
+        var studentGraph = studentConceptMap.graph;
+        var teacherGraph = teacherConceptMap.graph;
+        var studentReachability = studentConceptMap.reachability();
+        var teacherReachability = teacherConceptMap.reachability();
 
-            var union = new HashSet<>(studentKeyPaths);
-            union.addAll(teacherKeyPaths);
-            unionCount += union.size();
+        var intersectionPathCounts = new long[studentGraph.conceptCount()];
+        var comparedCount = loop().run(intersectionPathCounts.length, budget, c -> {
+            for (var i = studentGraph.outgoingStart(c); i < studentGraph.outgoingEnd(c); i++) {
+                var toConcept = studentGraph.outgoingTarget(i);
+                if (teacherGraph.containsRelationship(c, toConcept)) {
+                    intersectionPathCounts[c] +=
+                            (long) ReachabilityIndex.commonAncestorCount(studentReachability, teacherReachability, c) *
+                                    ReachabilityIndex.commonDescendantCount(studentReachability, teacherReachability, toConcept);
+                }
+            }
+        });
+        if (comparedCount < intersectionPathCounts.length) {
+            return BudgetedResult.exceeded(null, (double) comparedCount / intersectionPathCounts.length);
+        }
+        long intersectionPathCount = 0;
+        for (var count : intersectionPathCounts) {
+            intersectionPathCount += count;
         }
-        studentAllPaths.keySet().removeAll(keyIntersection);
-        teacherAllPaths.keySet().removeAll(keyIntersection);
-        unionCount += studentAllPaths.values().stream().mapToInt(Set::size).sum();
-        unionCount += teacherAllPaths.values().stream().mapToInt(Set::size).sum();
+        var unionPathCount = studentConceptMap.allPathCount() + scoringKey.allPathCount() - intersectionPathCount;
 
-        return intersectionCount / unionCount;
+        return BudgetedResult.complete((double) intersectionPathCount / unionPathCount);
     }
 
     public double compareUsingPropositionChains() throws InvalidDataException {
+        return compareUsingPropositionChains(Budget.UNLIMITED).value;
+    }
+
+    /**
+     * Same as {@link #compareUsingPropositionChains()}, but stops once the {@code budget} is exceeded.
+     */
+    public BudgetedResult<Double> compareUsingPropositionChains(Budget budget) throws InvalidDataException {
+        var score = cached(ScoringMethod.PROPOSITION_CHAINS);
+        if (score != null) return BudgetedResult.complete(values(score)[0]);
+
+        var event = new ComparisonEvent();
+        event.begin();
+        var start = Monitoring.start();
+        try {
+            return stored(ScoringMethod.PROPOSITION_CHAINS, propositionChains(budget));
+        } catch (InvalidDataException e) {
+            store(ScoringMethod.PROPOSITION_CHAINS, Score.failed(e.errorCode));
+            throw e;
+        } finally {
+            Monitoring.stop(Phase.PROPOSITION_CHAINS_COMPARISON, start);
+            commit(event, ScoringMethod.PROPOSITION_CHAINS);
+        }
+    }
+
+    private BudgetedResult<Double> propositionChains(Budget budget) throws InvalidDataException {
         checkAreSimilar(ErrorCode.DIFFERENT_CONCEPTS_PROPOSITION_CHAINS);
 
-        var studentLongestPaths = studentConceptMap.longestPaths();
-        var teacherLongestPaths = teacherConceptMap.longestPaths();
-        if (studentLongestPaths.isEmpty() || teacherLongestPaths.isEmpty()) {
+        var studentChains = studentConceptMap.propositionChains();
+        var teacherChains = teacherConceptMap.propositionChains();
+        if (!studentChains.isAcyclic() || !teacherChains.isAcyclic()) {
             throw new InvalidDataException(ErrorCode.CYCLES_PROPOSITION_CHAINS);
         }
 
+        // Similar concept maps index concepts in the same way
+        var studentGraph = studentConceptMap.graph;
         double teacherScore = 0, studentScore = 0, breakScore = 0;
-        for (var tlp : teacherLongestPaths) {
-            var tlpChainLength = tlp.size() - 1;
+        var chainCount = 0L;
+        var loop = loop();
+        for (var tlp : teacherChains) {
+            loop.check();
+            if (!budget.allows(++chainCount)) {
+                return BudgetedResult.exceeded(null, (double) (chainCount - 1) / teacherChains.count());
+            }
+            var tlpChainLength = tlp.length - 1;
             teacherScore += tlpChainLength;
 
             double currentBreakScore = 0, approvedCurrentBreakScore = 0;
             for (var i = 0; i < tlpChainLength; i++) {
-                if (studentConceptMap.containsRelationship(tlp.get(i), tlp.get(i + 1))) {
+                if (studentGraph.containsRelationship(tlp[i], tlp[i + 1])) {
                     studentScore++;
                     approvedCurrentBreakScore += currentBreakScore;
                     currentBreakScore = 0;
@@ -110,29 +211,54 @@ public class ConceptMapComparator {
             }
             breakScore += approvedCurrentBreakScore / tlpChainLength;
         }
-        return (studentScore - breakScore) / teacherScore;
+        return BudgetedResult.complete((studentScore - breakScore) / teacherScore);
     }
 
     public SimilarityDegrees compareUsingErrorAnalysis() throws InvalidDataException {
-        checkAreSimilar(ErrorCode.DIFFERENT_CONCEPTS_ERROR_ANALYSIS);
+        return compareUsingErrorAnalysis(Budget.UNLIMITED).value;
+    }
 
-        var studentOutgoingRelationships = studentConceptMap.outgoingRelationships;
-        var teacherOutgoingRelationships = teacherConceptMap.outgoingRelationships;
+    /**
+     * Same as {@link #compareUsingErrorAnalysis()}, but stops once the {@code budget} is exceeded.
+     */
+    public BudgetedResult<SimilarityDegrees> compareUsingErrorAnalysis(Budget budget) throws InvalidDataException {
+        var score = cached(ScoringMethod.ERROR_ANALYSIS);
+        if (score != null) {
+            var values = values(score);
+            return BudgetedResult.complete(new SimilarityDegrees(values[0], values[1]));
+        }
 
-        double totalRelationships = Math.pow(studentOutgoingRelationships.size(), 2);
-        double correctRelationships = 0, incorrectRelationships = 0;
-        for (var sor : studentOutgoingRelationships.entrySet()) {
-            var sorValue = sor.getValue();
-            var torValue = teacherOutgoingRelationships.get(sor.getKey());
+        var event = new ComparisonEvent();
+        event.begin();
+        var start = Monitoring.start();
+        try {
+            var result = errorAnalysis(budget);
+            if (!result.exceeded) {
+                var similarityDegrees = result.value;
+                store(ScoringMethod.ERROR_ANALYSIS, Score.of(
+                        similarityDegrees.similarityDegree,
+                        similarityDegrees.weightedSimilarityDegree
+                ));
+            }
+            return result;
+        } catch (InvalidDataException e) {
+            store(ScoringMethod.ERROR_ANALYSIS, Score.failed(e.errorCode));
+            throw e;
+        } finally {
+            Monitoring.stop(Phase.ERROR_ANALYSIS, start);
+            commit(event, ScoringMethod.ERROR_ANALYSIS);
+        }
+    }
 
-            var intersection = new HashSet<>(sorValue);
-            intersection.retainAll(torValue);
-            correctRelationships += intersection.size();
+    private BudgetedResult<SimilarityDegrees> errorAnalysis(Budget budget) throws InvalidDataException {
+        checkAreSimilar(ErrorCode.DIFFERENT_CONCEPTS_ERROR_ANALYSIS);
 
-            var difference = new HashSet<>(sorValue);
-            difference.removeAll(torValue);
-            incorrectRelationships += difference.size();
-        }
+        var overlap = overlap(budget);
+        if (overlap.exceeded) return BudgetedResult.exceeded(null, overlap.progress);
+
+        double totalRelationships = Math.pow(studentConceptMap.conceptCount(), 2);
+        double correctRelationships = overlap.value.correctRelationshipCount();
+        double incorrectRelationships = studentConceptMap.relationshipCount() - correctRelationships;
         var missingRelationships = teacherConceptMap.relationshipCount() - correctRelationships;
         var noRelationships = totalRelationships - correctRelationships - incorrectRelationships - missingRelationships;
 
@@ -146,7 +272,59 @@ public class ConceptMapComparator {
                 weight1 * noRelationships -
                 weight2 * incorrectRelationships -
                 weight1 * missingRelationships) / totalRelationships;
-        return new SimilarityDegrees(similarityDegree, weightedSimilarityDegree);
+        return BudgetedResult.complete(new SimilarityDegrees(similarityDegree, weightedSimilarityDegree));
+    }
+
+    /**
+     * @return {@link ConceptOverlap} shared by comparisons using closeness indexes and error analysis, which is
+     * calculated once, when first requested within the budget.
+     */
+    private BudgetedResult<ConceptOverlap> overlap(Budget budget) {
+        synchronized (overlapLock) {
+            if (overlap == null) {
+                var result = ConceptOverlap.calculate(studentConceptMap, teacherConceptMap, budget, loop());
+                if (result.exceeded) return result;
+                overlap = result.value;
+            }
+            return BudgetedResult.complete(overlap);
+        }
+    }
+
+    /**
+     * @return Result cached in the {@link ScoreCache}, or {@code null} if there is none.
+     */
+    private Score cached(ScoringMethod method) {
+        return scoreCache != null ? scoreCache.get(studentConceptMap, teacherConceptMap, method) : null;
+    }
+
+    private static double[] values(Score score) throws InvalidDataException {
+        if (score.errorCode != null) throw new InvalidDataException(score.errorCode);
+        return score.values;
+    }
+
+    private BudgetedResult<Double> stored(ScoringMethod method, BudgetedResult<Double> result) {
+        if (!result.exceeded) store(method, Score.of(result.value));
+        return result;
+    }
+
+    private void store(ScoringMethod method, Score score) {
+        if (scoreCache != null) scoreCache.put(studentConceptMap, teacherConceptMap, method, score);
+    }
+
+    private IndexLoop loop() {
+        if (pool == null) return IndexLoop.sequential();
+        return IndexLoop.parallel(pool, owner != null ? owner : Thread.currentThread());
+    }
+
+    private void commit(ComparisonEvent event, ScoringMethod method) {
+        if (event.shouldCommit()) {
+            event.method = method.key;
+            event.studentConceptCount = studentConceptMap.conceptCount();
+            event.studentRelationshipCount = studentConceptMap.relationshipCount();
+            event.teacherConceptCount = teacherConceptMap.conceptCount();
+            event.teacherRelationshipCount = teacherConceptMap.relationshipCount();
+            event.commit();
+        }
     }
 
     private void checkAreSimilar(ErrorCode errorCode) throws InvalidDataException {
@@ -1,9 +1,12 @@
 package lv.continuum.scorer.logic;
 
 import lombok.RequiredArgsConstructor;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
 import lv.continuum.scorer.common.InvalidDataException;
 import lv.continuum.scorer.common.Translations;
 import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.ConceptMapMetrics;
 import lv.continuum.scorer.logic.ConceptMapComparator.SimilarityDegrees;
 
 import java.util.List;
@@ -14,14 +17,18 @@ public class ConceptMapFormatter {
     private final Translations translations;
 
     public String formatCounts(String keyPrefix, ConceptMap conceptMap) {
+        return formatCounts(keyPrefix, conceptMap.metrics());
+    }
+
+    public String formatCounts(String keyPrefix, ConceptMapMetrics metrics) {
         var formattedCounts = List.of(
-                formatCount("concepts", conceptMap.conceptCount()),
-                formatCount("relationships", conceptMap.relationshipCount()),
-                formatCount("levels", conceptMap.levelCount()),
-                formatCount("branches", conceptMap.branchCount()),
-                formatCount("examples", conceptMap.exampleCount()),
-                formatCount("cycles", conceptMap.containsCycles()),
-                formatCount("subnets", conceptMap.subnetCount())
+                formatCount("concepts", metrics.getConceptCount()),
+                formatCount("relationships", metrics.getRelationshipCount()),
+                formatCount("levels", metrics.getLevelCount()),
+                formatCount("branches", metrics.getBranchCount()),
+                formatCount("examples", metrics.getExampleCount()),
+                formatCount("cycles", metrics.isContainsCycles()),
+                formatCount("subnets", metrics.getSubnetCount())
         );
         return translations.get(keyPrefix + "-concept-map-contains") + "\n" + String.join("\n", formattedCounts);
     }
@@ -57,4 +64,41 @@ public class ConceptMapFormatter {
             return translations.get(e.errorCode.translationKey);
         }
     }
+
+    /**
+     * Same as {@link #formatSimilarityDegree(String, Calculator)}, but reports an exceeded {@link Budget} instead
+     * of the similarity degree.
+     */
+    public String formatBudgetedSimilarityDegree(String keySuffix, Calculator<BudgetedResult<Double>> calculator) {
+        try {
+            var result = calculator.calculate();
+            return result.exceeded ? formatExceeded(result) : formatSimilarityDegree(keySuffix, result::getValue);
+        } catch (InvalidDataException e) {
+            return translations.get(e.errorCode.translationKey);
+        }
+    }
+
+    /**
+     * Same as {@link #formatSimilarityDegrees(String, Calculator)}, but reports an exceeded {@link Budget} instead
+     * of the similarity degrees.
+     */
+    public String formatBudgetedSimilarityDegrees(String keySuffix,
+                                                  Calculator<BudgetedResult<SimilarityDegrees>> calculator) {
+        try {
+            var result = calculator.calculate();
+            return result.exceeded ? formatExceeded(result) : formatSimilarityDegrees(keySuffix, result::getValue);
+        } catch (InvalidDataException e) {
+            return translations.get(e.errorCode.translationKey);
+        }
+    }
+
+    private String formatExceeded(BudgetedResult<?> result) {
+        return translations.format("budget-exceeded", result.progress * 100);
+    }
+
+    public String formatError(InvalidDataException e) {
+        return e.fileName != null ?
+                translations.format(e.errorCode.translationKey, e.fileName) :
+                translations.get(e.errorCode.translationKey);
+    }
 }
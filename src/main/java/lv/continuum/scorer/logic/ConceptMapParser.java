@@ -4,124 +4,376 @@ import lombok.extern.slf4j.Slf4j;
 import lv.continuum.scorer.common.InvalidDataException;
 import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
 import lv.continuum.scorer.domain.Concept;
+import lv.continuum.scorer.domain.ConceptDictionary;
 import lv.continuum.scorer.domain.ConceptMap;
 import lv.continuum.scorer.domain.Relationship;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
+import lv.continuum.scorer.monitoring.Monitoring;
+import lv.continuum.scorer.monitoring.ParseEvent;
+import lv.continuum.scorer.monitoring.Phase;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.util.Collection;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Parses concept maps in standard and IKAS XML formats in a single streaming pass.
+ * <p>
+ * The format is detected from the root element: {@code <conceptmap>} for the standard format and any element
+ * with {@code name="root"} attribute for the IKAS format. Instances can be shared between threads.
+ * <p>
+ * Parsers created with a {@link ConceptDictionary} take concepts from it, so that concept maps of a cohort share them.
+ */
 @Slf4j
 public class ConceptMapParser {
 
-    public ConceptMap parse(String conceptMapPath)
-            throws IOException, ParserConfigurationException, SAXException, InvalidDataException {
-        var file = new File(conceptMapPath);
-        var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
-        document.getDocumentElement().normalize();
+    // XMLInputFactory is not guaranteed to be thread-safe, so each thread gets its own
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY =
+            ThreadLocal.withInitial(ConceptMapParser::createXmlInputFactory);
 
+    private final ConceptDictionary conceptDictionary;
+
+    public ConceptMapParser(ConceptDictionary conceptDictionary) {
+        this.conceptDictionary = conceptDictionary;
+    }
+
+    public ConceptMapParser() {
+        this(null);
+    }
+
+    public ConceptMap parse(String conceptMapPath) throws IOException, InvalidDataException {
+        var path = Path.of(conceptMapPath);
+        try (var inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+            return parse(inputStream, path.getFileName().toString());
+        }
+    }
+
+    public ConceptMap parse(InputStream inputStream, String fileName) throws InvalidDataException {
+        return parseDocument(inputStream, fileName, reader -> parse(reader, fileName));
+    }
+
+    /**
+     * Parses concept maps embedded in an envelope document, in which every child element of the root element
+     * contains a single concept map, e.g. {@code <score><student>...</student><teacher>...</teacher></score>}.
+     *
+     * @return Concept maps by the names of the child elements that contain them. These names are also reported as
+     * file names in {@link InvalidDataException}s caused by the concept maps.
+     */
+    public Map<String, ConceptMap> parseEnvelope(InputStream inputStream, String fileName) throws InvalidDataException {
+        return parseDocument(inputStream, fileName, reader -> {
+            var conceptMaps = new LinkedHashMap<String, ConceptMap>();
+            while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+                var name = reader.getLocalName();
+                if (reader.nextTag() != XMLStreamReader.START_ELEMENT) {
+                    throw new InvalidDataException(ErrorCode.INVALID_XML, name);
+                }
+                conceptMaps.put(name, parse(reader, name));
+                if (reader.nextTag() != XMLStreamReader.END_ELEMENT) {
+                    throw new InvalidDataException(ErrorCode.INVALID_XML, name);
+                }
+            }
+            return conceptMaps;
+        });
+    }
+
+    private interface DocumentParser<T> {
+        T parse(XMLStreamReader reader) throws XMLStreamException, InvalidDataException;
+    }
+
+    private <T> T parseDocument(InputStream inputStream, String fileName, DocumentParser<T> documentParser)
+            throws InvalidDataException {
+        XMLStreamReader reader = null;
         try {
-            var fileName = file.getName();
-            if (document.getDocumentElement().getNodeName().equals("conceptmap")) {
-                return parseStandard(document, fileName);
-            } else if (document.getDocumentElement().getAttributes().getNamedItem("name").getNodeValue().equals("root")) {
-                return parseIkas(document, fileName);
+            reader = XML_INPUT_FACTORY.get().createXMLStreamReader(inputStream);
+            reader.nextTag();
+            try {
+                return documentParser.parse(reader);
+            } catch (InvalidDataException e) {
+                // A document that is not well-formed is invalid regardless of its contents
+                while (reader.hasNext()) reader.next();
+                throw e;
+            }
+        } catch (XMLStreamException e) {
+            log.debug("Issue while reading XML file {}", fileName, e);
+            throw new InvalidDataException(ErrorCode.INVALID_XML, fileName);
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * Parses the concept map starting at the element the {@code reader} is positioned at, so that concept maps
+     * embedded in other XML documents can be parsed as well. Once parsed, the {@code reader} is positioned at the
+     * matching end element.
+     */
+    public ConceptMap parse(XMLStreamReader reader, String fileName) throws XMLStreamException, InvalidDataException {
+        try {
+            if (reader.getLocalName().equals("conceptmap")) {
+                return parseMeasured(reader, fileName, Phase.PARSE_STANDARD, "standard", r -> parseStandard(r, fileName));
+            } else if (reader.getAttributeValue(null, "name").equals("root")) {
+                return parseMeasured(reader, fileName, Phase.PARSE_IKAS, "ikas", r -> parseIkas(r, fileName));
             } else {
-                throw new InvalidDataException(ErrorCode.INVALID_XML, file.getName());
+                throw new InvalidDataException(ErrorCode.INVALID_XML, fileName);
             }
         } catch (NumberFormatException | NullPointerException e) {
-            throw new InvalidDataException(ErrorCode.INVALID_XML, file.getName());
+            throw new InvalidDataException(ErrorCode.INVALID_XML, fileName);
         }
     }
 
-    private ConceptMap parseStandard(Document document, String fileName) throws InvalidDataException {
+    private ConceptMap parseMeasured(XMLStreamReader reader,
+                                     String fileName,
+                                     Phase phase,
+                                     String format,
+                                     DocumentParser<ConceptMap> formatParser)
+            throws XMLStreamException, InvalidDataException {
+        var event = new ParseEvent();
+        event.begin();
+        var start = Monitoring.start();
+        ConceptMap conceptMap = null;
+        try {
+            conceptMap = formatParser.parse(reader);
+            return conceptMap;
+        } finally {
+            Monitoring.stop(phase, start);
+            if (event.shouldCommit()) {
+                event.fileName = fileName;
+                event.format = format;
+                if (conceptMap != null) {
+                    event.conceptCount = conceptMap.conceptCount();
+                    event.relationshipCount = conceptMap.relationshipCount();
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private ConceptMap parseStandard(XMLStreamReader reader, String fileName)
+            throws XMLStreamException, InvalidDataException {
         log.debug("Started parsing standard XML file");
 
-        var conceptNodes = document.getElementsByTagName("concept");
-        var concepts = new HashMap<Integer, Concept>();
-        for (var i = 0; i < conceptNodes.getLength(); i++) {
-            var node = conceptNodes.item(i);
-            var name = node.getTextContent();
-            if (hasDuplicateConcept(concepts.values(), name)) {
-                throw new InvalidDataException(ErrorCode.CONCEPT_MAP_DUPLICATE_CONCEPTS, fileName);
+        var concepts = new Concepts(fileName);
+        var documentConcepts = new HashMap<Integer, Concept>();
+        var documentRelationships = new ArrayList<DocumentRelationship>();
+        var depth = 1;
+        while (depth > 0) {
+            var event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "concept": {
+                        var idValue = reader.getAttributeValue(null, "id");
+                        var name = readTextContent(reader);
+                        concepts.checkNotDuplicate(name);
+                        var documentId = Integer.parseInt(idValue);
+                        concepts.replace(documentConcepts.put(documentId, concepts.add(concept(name))));
+                        break;
+                    }
+                    case "relationship": {
+                        var fromValue = reader.getAttributeValue(null, "from");
+                        var toValue = reader.getAttributeValue(null, "to");
+                        documentRelationships.add(new DocumentRelationship(fromValue, toValue, readTextContent(reader)));
+                        break;
+                    }
+                    default:
+                        depth++;
+                }
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
             }
-            var documentId = Integer.parseInt(node.getAttributes().getNamedItem("id").getNodeValue());
-            concepts.put(documentId, new Concept(name));
         }
 
-        var relationshipNodes = document.getElementsByTagName("relationship");
+        // Relationships are resolved once all concepts are known, as they may precede concepts in the document
         var relationships = new HashSet<Relationship>();
-        for (var i = 0; i < relationshipNodes.getLength(); i++) {
-            var node = relationshipNodes.item(i);
-            var fromDocumentId = Integer.parseInt(node.getAttributes().getNamedItem("from").getNodeValue());
-            var toDocumentId = Integer.parseInt(node.getAttributes().getNamedItem("to").getNodeValue());
-            var fromConcept = concepts.get(fromDocumentId);
-            var toConcept = concepts.get(toDocumentId);
-            relationships.add(new Relationship(fromConcept, toConcept, node.getTextContent()));
+        for (var dr : documentRelationships) {
+            var fromConcept = documentConcepts.get(Integer.parseInt(dr.from));
+            var toConcept = documentConcepts.get(Integer.parseInt(dr.to));
+            relationships.add(new Relationship(fromConcept, toConcept, dr.name));
         }
 
-        var conceptMap = new ConceptMap(new HashSet<>(concepts.values()), relationships, fileName);
+        var conceptMap = new ConceptMap(new HashSet<>(documentConcepts.values()), relationships, fileName);
         log.debug("Finished parsing standard XML file\n{}", conceptMap);
         return conceptMap;
     }
 
-    private ConceptMap parseIkas(Document document, String fileName) throws InvalidDataException {
+    private ConceptMap parseIkas(XMLStreamReader reader, String fileName)
+            throws XMLStreamException, InvalidDataException {
         log.debug("Started parsing IKAS XML file");
 
-        var concepts = new HashMap<String, Concept>();
-        var elementNodes = document.getElementsByTagName("element");
-        for (var i = 0; i < elementNodes.getLength(); i++) {
-            var node = elementNodes.item(i);
-            if (node.getAttributes().getNamedItem("name").getNodeValue().equals("node")) {
-                var name = node.getAttributes().getNamedItem("value").getNodeValue();
-                if (hasDuplicateConcept(concepts.values(), name)) {
-                    throw new InvalidDataException(ErrorCode.CONCEPT_MAP_DUPLICATE_CONCEPTS, fileName);
+        var concepts = new Concepts(fileName);
+        var namedConcepts = new HashMap<String, Concept>();
+        var documentRelationships = new ArrayList<DocumentRelationship>();
+
+        // Relationship elements that are currently open, with their depths
+        var openRelationships = new ArrayList<DocumentRelationship>();
+        var openRelationshipDepths = new ArrayList<Integer>();
+
+        var depth = 1;
+        while (depth > 0) {
+            var event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                depth++;
+                if (!reader.getLocalName().equals("element")) continue;
+
+                var elementName = reader.getAttributeValue(null, "name");
+                var elementValue = reader.getAttributeValue(null, "value");
+                switch (elementName) {
+                    case "node":
+                        concepts.checkNotDuplicate(elementValue);
+                        concepts.replace(namedConcepts.put(elementValue, concepts.add(concept(elementValue))));
+                        break;
+                    case "relation":
+                        var documentRelationship = new DocumentRelationship(null, null, elementValue);
+                        documentRelationship.valid = elementValue != null;
+                        documentRelationships.add(documentRelationship);
+                        openRelationships.add(documentRelationship);
+                        openRelationshipDepths.add(depth);
+                        break;
+                    case "source":
+                    case "target":
+                        for (var dr : openRelationships) {
+                            dr.valid &= elementValue != null;
+                            if (elementName.equals("source")) {
+                                dr.from = elementValue;
+                            } else {
+                                dr.to = elementValue;
+                            }
+                        }
+                        break;
+                    default:
+                        for (var dr : openRelationships) {
+                            dr.valid &= elementValue != null;
+                        }
                 }
-                concepts.put(name, new Concept(name));
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                var last = openRelationshipDepths.size() - 1;
+                if (last >= 0 && openRelationshipDepths.get(last) == depth) {
+                    openRelationships.remove(last);
+                    openRelationshipDepths.remove(last);
+                }
+                depth--;
             }
         }
 
         var relationships = new HashSet<Relationship>();
-        for (var i = 0; i < elementNodes.getLength(); i++) {
-            var node = elementNodes.item(i);
-            if (node.getAttributes().getNamedItem("name").getNodeValue().equals("relation")) {
-                String fromConceptName = null, toConceptName = null;
-                var nodeValue = node.getAttributes().getNamedItem("value").getNodeValue();
-                var relationshipNodes = ((Element) node).getElementsByTagName("element");
-                for (var j = 0; j < relationshipNodes.getLength(); j++) {
-                    var relationshipNode = relationshipNodes.item(j);
-                    var relationshipNodeName = relationshipNode.getAttributes().getNamedItem("name").getNodeValue();
-                    var relationshipNodeValue = relationshipNode.getAttributes().getNamedItem("value").getNodeValue();
-                    if (relationshipNodeName.equals("source")) {
-                        fromConceptName = relationshipNodeValue;
-                    } else if (relationshipNodeName.equals("target")) {
-                        toConceptName = relationshipNodeValue;
-                    }
-                }
-                if (fromConceptName == null || toConceptName == null) {
-                    throw new InvalidDataException(ErrorCode.CONCEPT_MAP_INVALID_RELATIONSHIP, fileName);
-                }
-
-                var fromConcept = concepts.get(fromConceptName);
-                var toConcept = concepts.get(toConceptName);
-                relationships.add(new Relationship(fromConcept, toConcept, nodeValue));
+        for (var dr : documentRelationships) {
+            if (!dr.valid) {
+                throw new InvalidDataException(ErrorCode.INVALID_XML, fileName);
             }
+            if (dr.from == null || dr.to == null) {
+                throw new InvalidDataException(ErrorCode.CONCEPT_MAP_INVALID_RELATIONSHIP, fileName);
+            }
+            var fromConcept = namedConcepts.get(dr.from);
+            var toConcept = namedConcepts.get(dr.to);
+            relationships.add(new Relationship(fromConcept, toConcept, dr.name));
         }
 
-        var conceptMap = new ConceptMap(new HashSet<>(concepts.values()), relationships, fileName);
+        var conceptMap = new ConceptMap(new HashSet<>(namedConcepts.values()), relationships, fileName);
         log.debug("Finished parsing IKAS XML file\n{}", conceptMap);
         return conceptMap;
     }
 
-    private boolean hasDuplicateConcept(Collection<Concept> concepts, String name) {
-        var id = Concept.deriveId(name);
-        return concepts.stream().anyMatch(c -> c.id.equals(id));
+    private Concept concept(String name) throws InvalidDataException {
+        return conceptDictionary != null ? conceptDictionary.concept(name) : new Concept(name);
+    }
+
+    /**
+     * Reads all text within the current element, including the text of its descendants.
+     */
+    private String readTextContent(XMLStreamReader reader) throws XMLStreamException {
+        var textContent = new StringBuilder();
+        var depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamReader.CHARACTERS:
+                case XMLStreamReader.CDATA:
+                case XMLStreamReader.SPACE:
+                    textContent.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamReader.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamReader.END_ELEMENT:
+                    depth--;
+                    break;
+                default:
+                    // Ignore comments and processing instructions
+            }
+        }
+        return textContent.toString();
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        var xmlInputFactory = XMLInputFactory.newFactory();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return xmlInputFactory;
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                log.debug("Issue while closing XML reader", e);
+            }
+        }
+    }
+
+    /**
+     * Concepts parsed so far, indexed by id to detect duplicates in constant time.
+     */
+    private static class Concepts {
+
+        private final String fileName;
+        private final Map<String, Integer> idCounts = new HashMap<>();
+
+        Concepts(String fileName) {
+            this.fileName = fileName;
+        }
+
+        void checkNotDuplicate(String name) throws InvalidDataException {
+            if (idCounts.containsKey(Concept.deriveId(name))) {
+                throw new InvalidDataException(ErrorCode.CONCEPT_MAP_DUPLICATE_CONCEPTS, fileName);
+            }
+        }
+
+        Concept add(Concept concept) {
+            idCounts.merge(concept.id, 1, Integer::sum);
+            return concept;
+        }
+
+        /**
+         * Forgets a concept that has been replaced by another one with the same document id or name.
+         */
+        void replace(Concept replacedConcept) {
+            if (replacedConcept != null) {
+                idCounts.computeIfPresent(replacedConcept.id, (id, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    /**
+     * Relationship as it is defined in the document, before its concepts are resolved.
+     */
+    private static class DocumentRelationship {
+
+        String from;
+        String to;
+        final String name;
+        boolean valid = true;
+
+        DocumentRelationship(String from, String to, String name) {
+            this.from = from;
+            this.to = to;
+            this.name = name;
+        }
     }
 }
@@ -0,0 +1,222 @@
+package lv.continuum.scorer.logic;
+
+import lombok.NonNull;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
+import lv.continuum.scorer.common.Interruptions;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.ConceptMapComparator.SimilarityDegrees;
+import lv.continuum.scorer.logic.ConceptMapFormatter.Calculator;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Scores a student {@link ConceptMap} using the selected {@link ScoringMethod}s and formats the results.
+ * <p>
+ * Comparisons run one after another on the calling thread, unless a {@link ForkJoinPool} is given, in which case
+ * they run concurrently in the pool and each of them is split further across it, see {@link ConceptMapComparator}.
+ * Sections are passed to the listener in the same order and with the same results either way.
+ * <p>
+ * Scoring can be cancelled by interrupting the thread it runs on, in which case {@link CancellationException} is
+ * thrown.
+ */
+public class ConceptMapScorer {
+
+    /**
+     * Receives the progress of scoring as it happens.
+     */
+    public interface Listener {
+
+        default void methodStarted(ScoringMethod method) {
+            // Do nothing
+        }
+
+        void sectionScored(String section);
+
+        default void budgetExceeded(ScoringMethod method) {
+            // Do nothing
+        }
+    }
+
+    private final ConceptMapFormatter conceptMapFormatter;
+    private final ForkJoinPool pool;
+
+    public ConceptMapScorer(ConceptMapFormatter conceptMapFormatter) {
+        this.conceptMapFormatter = conceptMapFormatter;
+        this.pool = null;
+    }
+
+    public ConceptMapScorer(ConceptMapFormatter conceptMapFormatter, @NonNull ForkJoinPool pool) {
+        this.conceptMapFormatter = conceptMapFormatter;
+        this.pool = pool;
+    }
+
+    /**
+     * @return Formatted sections in the order they should be presented.
+     * Comparison methods are skipped if {@code teacherConceptMap} is empty.
+     */
+    public List<String> score(ConceptMap studentConceptMap,
+                              Optional<ConceptMap> teacherConceptMap,
+                              Set<ScoringMethod> methods) {
+        return scoreAgainst(studentConceptMap, teacherConceptMap.map(ScoringKey::new), methods);
+    }
+
+    /**
+     * Same as {@link #score(ConceptMap, Optional, Set)}, but reuses the given {@link ScoringKey}.
+     */
+    public List<String> scoreAgainst(ConceptMap studentConceptMap,
+                                     Optional<ScoringKey> scoringKey,
+                                     Set<ScoringMethod> methods) {
+        var strings = new ArrayList<String>();
+        scoreAgainst(studentConceptMap, scoringKey, methods, strings::add);
+        return strings;
+    }
+
+    /**
+     * Same as {@link #scoreAgainst(ConceptMap, Optional, Set)}, but passes each section to the {@code listener} as
+     * soon as it is formatted.
+     */
+    public void scoreAgainst(ConceptMap studentConceptMap,
+                             Optional<ScoringKey> scoringKey,
+                             Set<ScoringMethod> methods,
+                             Listener listener) {
+        scoreAgainst(studentConceptMap, scoringKey, methods, Budget.UNLIMITED, listener);
+    }
+
+    /**
+     * Same as {@link #scoreAgainst(ConceptMap, Optional, Set, Listener)}, but stops each comparison once the
+     * {@code budget} is exceeded, reports it to the {@code listener} and formats the progress instead of the result.
+     */
+    public void scoreAgainst(ConceptMap studentConceptMap,
+                             Optional<ScoringKey> scoringKey,
+                             Set<ScoringMethod> methods,
+                             Budget budget,
+                             Listener listener) {
+        if (methods.contains(ScoringMethod.ELEMENT_COUNT)) {
+            listener.methodStarted(ScoringMethod.ELEMENT_COUNT);
+            var studentMetrics = scoringKey
+                    .map(sk -> sk.metrics(studentConceptMap))
+                    .orElseGet(studentConceptMap::metrics);
+            listener.sectionScored(conceptMapFormatter.formatCounts("student", studentMetrics));
+            scoringKey.ifPresent(sk -> listener.sectionScored(
+                    conceptMapFormatter.formatCounts("teacher", sk.metrics(sk.teacherConceptMap))));
+        }
+        if (scoringKey.isEmpty()) return;
+
+        var comparator = pool != null
+                ? new ConceptMapComparator(studentConceptMap, scoringKey.get(), pool, Thread.currentThread())
+                : new ConceptMapComparator(studentConceptMap, scoringKey.get());
+        var comparisons = new EnumMap<ScoringMethod, Callable<Section>>(ScoringMethod.class);
+        if (methods.contains(ScoringMethod.CLOSENESS_INDEXES)) {
+            comparisons.put(ScoringMethod.CLOSENESS_INDEXES, similarityDegree(
+                    ScoringMethod.CLOSENESS_INDEXES, () -> comparator.compareUsingClosenessIndexes(budget)));
+        }
+        if (methods.contains(ScoringMethod.IMPORTANCE_INDEXES)) {
+            comparisons.put(ScoringMethod.IMPORTANCE_INDEXES, similarityDegree(
+                    ScoringMethod.IMPORTANCE_INDEXES, () -> comparator.compareUsingImportanceIndexes(budget)));
+        }
+        if (methods.contains(ScoringMethod.PROPOSITION_CHAINS)) {
+            comparisons.put(ScoringMethod.PROPOSITION_CHAINS, similarityDegree(
+                    ScoringMethod.PROPOSITION_CHAINS, () -> comparator.compareUsingPropositionChains(budget)));
+        }
+        if (methods.contains(ScoringMethod.ERROR_ANALYSIS)) {
+            comparisons.put(ScoringMethod.ERROR_ANALYSIS, similarityDegrees(
+                    ScoringMethod.ERROR_ANALYSIS, () -> comparator.compareUsingErrorAnalysis(budget)));
+        }
+        if (pool != null) {
+            scoreConcurrently(comparisons, listener);
+            return;
+        }
+        for (var comparison : comparisons.entrySet()) {
+            start(listener, comparison.getKey());
+            report(listener, comparison.getKey(), call(comparison.getValue()));
+        }
+    }
+
+    /**
+     * Runs the comparisons in the pool and reports them in order as they finish.
+     */
+    private void scoreConcurrently(Map<ScoringMethod, Callable<Section>> comparisons, Listener listener) {
+        var tasks = new EnumMap<ScoringMethod, ForkJoinTask<Section>>(ScoringMethod.class);
+        comparisons.forEach((method, comparison) -> tasks.put(method, pool.submit(comparison)));
+        try {
+            for (var task : tasks.entrySet()) {
+                start(listener, task.getKey());
+                report(listener, task.getKey(), task.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Scoring has been interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Issue while comparing concept maps", e.getCause());
+        } finally {
+
+            // Comparisons that are already running stop on their own, as they check the interrupted status
+            tasks.values().forEach(task -> task.cancel(false));
+        }
+    }
+
+    private Callable<Section> similarityDegree(ScoringMethod method, Calculator<BudgetedResult<Double>> calculator) {
+        return () -> {
+            var section = new Section();
+            section.text = conceptMapFormatter.formatBudgetedSimilarityDegree(
+                    method.key, () -> section.recorded(calculator.calculate()));
+            return section;
+        };
+    }
+
+    private Callable<Section> similarityDegrees(ScoringMethod method,
+                                                Calculator<BudgetedResult<SimilarityDegrees>> calculator) {
+        return () -> {
+            var section = new Section();
+            section.text = conceptMapFormatter.formatBudgetedSimilarityDegrees(
+                    method.key, () -> section.recorded(calculator.calculate()));
+            return section;
+        };
+    }
+
+    private static Section call(Callable<Section> comparison) {
+        try {
+            return comparison.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Issue while comparing concept maps", e);
+        }
+    }
+
+    private static void report(Listener listener, ScoringMethod method, Section section) {
+        if (section.exceeded) listener.budgetExceeded(method);
+        listener.sectionScored(section.text);
+    }
+
+    private void start(Listener listener, ScoringMethod method) {
+        Interruptions.check();
+        listener.methodStarted(method);
+    }
+
+    /**
+     * Formatted result of a comparison.
+     */
+    private static class Section {
+
+        private String text;
+        private boolean exceeded;
+
+        private <T> BudgetedResult<T> recorded(BudgetedResult<T> result) {
+            exceeded = result.exceeded;
+            return result;
+        }
+    }
+}
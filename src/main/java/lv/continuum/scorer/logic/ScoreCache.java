@@ -0,0 +1,396 @@
+package lv.continuum.scorer.logic;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.common.VersionUtils;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.ConceptMapMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of scoring results, keyed by the {@link ConceptMap#fingerprint()}s of the student and teacher
+ * concept maps, the {@link ScoringMethod} and the version of the scorer, so that unchanged pairs are not scored
+ * again, even by another run. Relationship names do not affect comparisons, so they are only included in the
+ * {@link ConceptMap#namedFingerprint()} of the metrics.
+ * <p>
+ * Results are appended to a single file, which starts with a header ({@code SCOR} magic and format version) and
+ * contains a record per result: its length, the fingerprints, method, scorer version, error code and values, and a
+ * CRC32 checksum. All results are read into memory when the file is opened; results of other scorer versions are
+ * ignored, and so is a record that has been written incompletely, e.g. because the process has been killed. Once the
+ * file grows over its size limit, it is compacted by writing the latest result of each key to a new file, which
+ * replaces the old one, leaving out the least recently used results until the file takes at most half of the limit.
+ * <p>
+ * Only complete results are cached, including the errors of methods that cannot compare the concept maps, but not
+ * results that have exceeded the budget. Issues while writing are logged and do not stop scoring. Instances can be
+ * shared between threads, but a file can only be opened by one instance at a time.
+ */
+@Slf4j
+public class ScoreCache implements Closeable {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    static final int MAGIC = 0x53434f52;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final Set<Path> OPEN_PATHS = ConcurrentHashMap.newKeySet();
+
+    @Value
+    public static class Stats {
+        long hits;
+        long misses;
+        int entries;
+        long fileBytes;
+    }
+
+    /**
+     * Cached result of a {@link ScoringMethod}, which consists either of values or of an error code.
+     */
+    public static class Score {
+
+        public final double[] values;
+        public final ErrorCode errorCode;
+
+        private Score(double[] values, ErrorCode errorCode) {
+            this.values = values;
+            this.errorCode = errorCode;
+        }
+
+        public static Score of(double... values) {
+            return new Score(values, null);
+        }
+
+        public static Score failed(ErrorCode errorCode) {
+            return new Score(null, errorCode);
+        }
+    }
+
+    @Value
+    private static class Key {
+        String studentFingerprint;
+        String teacherFingerprint;
+        ScoringMethod method;
+    }
+
+    private final Path path;
+    private final long maxBytes;
+    private final String version;
+
+    // Guarded by this
+    private final LinkedHashMap<Key, Score> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private FileChannel channel;
+    private long fileBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private ScoreCache(Path path, long maxBytes, String version) {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.version = version;
+    }
+
+    /**
+     * Opens the cache file of the current scorer version, which is created if it does not exist.
+     */
+    public static ScoreCache open(Path path) throws IOException {
+        return open(path, DEFAULT_MAX_BYTES, VersionUtils.getVersionNumber());
+    }
+
+    /**
+     * @param maxBytes Size of the file, after reaching which it is compacted.
+     * @param version  Version of the scorer, results of other versions are ignored.
+     * @throws IOException if the file cannot be read or is already open.
+     */
+    public static ScoreCache open(Path path, long maxBytes, String version) throws IOException {
+        var normalizedPath = path.toAbsolutePath().normalize();
+        if (!OPEN_PATHS.add(normalizedPath)) {
+            throw new IOException("Score cache " + normalizedPath + " is already open");
+        }
+        try {
+            var scoreCache = new ScoreCache(normalizedPath, maxBytes, version);
+            scoreCache.load();
+            return scoreCache;
+        } catch (IOException | RuntimeException e) {
+            OPEN_PATHS.remove(normalizedPath);
+            throw e;
+        }
+    }
+
+    /**
+     * @param teacherConceptMap Teacher concept map, or {@code null} if the method does not compare concept maps.
+     * @return Cached result, or {@code null} if there is none.
+     */
+    public Score get(ConceptMap studentConceptMap, ConceptMap teacherConceptMap, ScoringMethod method) {
+        var key = key(studentConceptMap, teacherConceptMap, method);
+        Score score;
+        synchronized (this) {
+            score = entries.get(key);
+        }
+        if (score != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return score;
+    }
+
+    /**
+     * @param teacherConceptMap Teacher concept map, or {@code null} if the method does not compare concept maps.
+     */
+    public void put(ConceptMap studentConceptMap, ConceptMap teacherConceptMap, ScoringMethod method, Score score) {
+        var key = key(studentConceptMap, teacherConceptMap, method);
+        var record = record(key, score);
+        synchronized (this) {
+            entries.put(key, score);
+            try {
+                write(channel, record, fileBytes);
+                fileBytes += record.limit();
+                if (fileBytes > maxBytes) compact();
+            } catch (IOException e) {
+                log.warn("Issue while writing score cache {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link ConceptMap#metrics()}, but returns the cached metrics if the concept map has been measured before.
+     */
+    public ConceptMapMetrics metrics(ConceptMap conceptMap) {
+        var score = get(conceptMap, null, ScoringMethod.ELEMENT_COUNT);
+        if (score != null) {
+            var values = score.values;
+            return new ConceptMapMetrics(
+                    (long) values[0],
+                    (long) values[1],
+                    (long) values[2],
+                    (long) values[3],
+                    (long) values[4],
+                    values[5] != 0,
+                    (long) values[6]
+            );
+        }
+        var metrics = conceptMap.metrics();
+        put(conceptMap, null, ScoringMethod.ELEMENT_COUNT, Score.of(
+                metrics.getConceptCount(),
+                metrics.getRelationshipCount(),
+                metrics.getLevelCount(),
+                metrics.getBranchCount(),
+                metrics.getExampleCount(),
+                metrics.isContainsCycles() ? 1 : 0,
+                metrics.getSubnetCount()
+        ));
+        return metrics;
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.sum(), misses.sum(), entries.size(), fileBytes);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            OPEN_PATHS.remove(path);
+        }
+    }
+
+    private synchronized void load() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load(channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void load(long size) throws IOException {
+        if (size == 0) {
+            write(channel, header(), 0);
+            fileBytes = HEADER_BYTES;
+            return;
+        }
+
+        // Any other file is left as it is, unless it starts with the header
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("File " + path + " is not a score cache of version " + VERSION);
+        }
+        long validBytes = HEADER_BYTES;
+        var ignoredCount = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            var length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining() - Integer.BYTES) break;
+            var body = buffer.slice().limit(length);
+            buffer.position(buffer.position() + length);
+            if (buffer.getInt() != checksum(body.duplicate())) break;
+            validBytes = buffer.position();
+            try {
+                if (!read(body)) ignoredCount++;
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                log.debug("Ignored invalid record in score cache {}", path, e);
+                ignoredCount++;
+            }
+        }
+        if (validBytes < size) {
+            log.warn("Ignored {} bytes of incomplete records at the end of score cache {}", size - validBytes, path);
+            channel.truncate(validBytes);
+        }
+        fileBytes = validBytes;
+        log.debug("Loaded {} results from score cache {}, ignored {}", entries.size(), path, ignoredCount);
+    }
+
+    /**
+     * @return Whether the record has been added to the entries, as it belongs to the current version.
+     */
+    private boolean read(ByteBuffer body) {
+        var studentFingerprint = readString(body);
+        var teacherFingerprint = readString(body);
+        var method = ScoringMethod.fromKey(readString(body));
+        var recordVersion = readString(body);
+        var errorCode = readString(body);
+        var values = new double[body.getShort()];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = body.getDouble();
+        }
+        if (!recordVersion.equals(version)) return false;
+
+        var score = errorCode.isEmpty() ? Score.of(values) : Score.failed(ErrorCode.valueOf(errorCode));
+        entries.put(new Key(studentFingerprint, teacherFingerprint, method), score);
+        return true;
+    }
+
+    /**
+     * Rewrites the latest result of each key, leaving out the least recently used ones.
+     */
+    private void compact() throws IOException {
+        var records = new ArrayList<ByteBuffer>(entries.size());
+        long compactedBytes = HEADER_BYTES;
+        for (var entry : entries.entrySet()) {
+            var record = record(entry.getKey(), entry.getValue());
+            records.add(record);
+            compactedBytes += record.limit();
+        }
+
+        // Entries are iterated from the least recently used one
+        var keys = entries.keySet().iterator();
+        var droppedCount = 0;
+        while (compactedBytes > maxBytes / 2 && droppedCount < records.size()) {
+            keys.next();
+            keys.remove();
+            compactedBytes -= records.get(droppedCount++).limit();
+        }
+
+        var compactedPath = path.resolveSibling(path.getFileName() + ".compacted");
+        try (var compacted = FileChannel.open(compactedPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            position += write(compacted, header(), position);
+            for (var record : records.subList(droppedCount, records.size())) {
+                position += write(compacted, record, position);
+            }
+            compacted.force(false);
+        }
+        channel.close();
+        try {
+            Files.move(compactedPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            fileBytes = channel.size();
+        }
+        log.debug("Compacted score cache {} to {} results, dropped {}", path, entries.size(), droppedCount);
+    }
+
+    private Key key(ConceptMap studentConceptMap, ConceptMap teacherConceptMap, ScoringMethod method) {
+        return new Key(
+                method == ScoringMethod.ELEMENT_COUNT
+                        ? studentConceptMap.namedFingerprint()
+                        : studentConceptMap.fingerprint(),
+                teacherConceptMap != null ? teacherConceptMap.fingerprint() : "",
+                method
+        );
+    }
+
+    private ByteBuffer record(Key key, Score score) {
+        var strings = new byte[][]{
+                bytes(key.studentFingerprint),
+                bytes(key.teacherFingerprint),
+                bytes(key.method.key),
+                bytes(version),
+                bytes(score.errorCode != null ? score.errorCode.name() : "")
+        };
+        var values = score.values != null ? score.values : new double[0];
+        var length = Short.BYTES + values.length * Double.BYTES;
+        for (var string : strings) {
+            length += Short.BYTES + string.length;
+        }
+
+        var record = ByteBuffer.allocate(Integer.BYTES + length + Integer.BYTES);
+        record.putInt(length);
+        for (var string : strings) {
+            record.putShort((short) string.length);
+            record.put(string);
+        }
+        record.putShort((short) values.length);
+        for (var value : values) {
+            record.putDouble(value);
+        }
+        record.putInt(checksum(record.duplicate().flip().position(Integer.BYTES)));
+        return record.flip();
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+    }
+
+    private static int checksum(ByteBuffer body) {
+        var crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Number of bytes written.
+     */
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        var remaining = buffer.duplicate();
+        var written = 0;
+        while (remaining.hasRemaining()) {
+            written += channel.write(remaining, position + written);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,68 @@
+package lv.continuum.scorer.logic;
+
+import lombok.NonNull;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.Lazy;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.ConceptMapMetrics;
+import lv.continuum.scorer.logic.ConceptMapComparator.SimilarityDegrees;
+
+/**
+ * Teacher {@link ConceptMap} compiled for comparison with any number of student concept maps.
+ * <p>
+ * The teacher-side structures needed by {@link ConceptMapComparator} are calculated once, when they are first
+ * needed, and then reused by every comparison. Structures such as the reachability index and proposition chains
+ * are kept by the teacher concept map itself. If a {@link ScoreCache} is given, comparisons and metrics are looked
+ * up in it first and stored in it once complete. Instances are immutable and can be shared between threads.
+ */
+public class ScoringKey {
+
+    public final ConceptMap teacherConceptMap;
+
+    /**
+     * Cache of scoring results, or {@code null} if results are not cached.
+     */
+    public final ScoreCache scoreCache;
+
+    private final Lazy<Long> allPathCount;
+
+    public ScoringKey(@NonNull ConceptMap teacherConceptMap) {
+        this(teacherConceptMap, null);
+    }
+
+    public ScoringKey(@NonNull ConceptMap teacherConceptMap, ScoreCache scoreCache) {
+        this.teacherConceptMap = teacherConceptMap;
+        this.scoreCache = scoreCache;
+        this.allPathCount = new Lazy<>(teacherConceptMap::allPathCount);
+    }
+
+    public double compareUsingClosenessIndexes(ConceptMap studentConceptMap) {
+        return new ConceptMapComparator(studentConceptMap, this).compareUsingClosenessIndexes();
+    }
+
+    public double compareUsingImportanceIndexes(ConceptMap studentConceptMap) throws InvalidDataException {
+        return new ConceptMapComparator(studentConceptMap, this).compareUsingImportanceIndexes();
+    }
+
+    public double compareUsingPropositionChains(ConceptMap studentConceptMap) throws InvalidDataException {
+        return new ConceptMapComparator(studentConceptMap, this).compareUsingPropositionChains();
+    }
+
+    public SimilarityDegrees compareUsingErrorAnalysis(ConceptMap studentConceptMap) throws InvalidDataException {
+        return new ConceptMapComparator(studentConceptMap, this).compareUsingErrorAnalysis();
+    }
+
+    /**
+     * @return {@link ConceptMap#metrics()} of the concept map, which are looked up in the {@link ScoreCache} first.
+     */
+    public ConceptMapMetrics metrics(ConceptMap conceptMap) {
+        return scoreCache != null ? scoreCache.metrics(conceptMap) : conceptMap.metrics();
+    }
+
+    /**
+     * @return Total number of paths in {@link ConceptMap#allPaths()} of the teacher concept map.
+     */
+    long allPathCount() {
+        return allPathCount.get();
+    }
+}
@@ -0,0 +1,47 @@
+package lv.continuum.scorer.logic;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public enum ScoringMethod {
+    ELEMENT_COUNT("element-count"),
+    CLOSENESS_INDEXES("closeness-indexes"),
+    IMPORTANCE_INDEXES("importance-indexes"),
+    PROPOSITION_CHAINS("proposition-chains"),
+    ERROR_ANALYSIS("error-analysis");
+
+    /**
+     * Key used on the command line and as a suffix of the related translation keys.
+     */
+    public final String key;
+
+    /**
+     * @throws IllegalArgumentException if there is no {@link ScoringMethod} with the given {@code key}.
+     */
+    public static ScoringMethod fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(m -> m.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown scoring method " + key));
+    }
+
+    /**
+     * @param keys Comma-separated list of keys or {@code all}.
+     * @throws IllegalArgumentException if there is no {@link ScoringMethod} with any of the given {@code keys}.
+     */
+    public static Set<ScoringMethod> fromKeys(String keys) {
+        if (keys.equals("all")) {
+            return EnumSet.allOf(ScoringMethod.class);
+        }
+        var methods = EnumSet.noneOf(ScoringMethod.class);
+        Arrays.stream(keys.split(","))
+                .map(String::trim)
+                .map(ScoringMethod::fromKey)
+                .forEach(methods::add);
+        return methods;
+    }
+}
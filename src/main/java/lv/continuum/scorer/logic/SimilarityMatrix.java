@@ -0,0 +1,405 @@
+package lv.continuum.scorer.logic;
+
+import lombok.NonNull;
+import lombok.Value;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.ConceptMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Similarity degrees of every pair of concept maps in a cohort, e.g. to find students whose concept maps are alike,
+ * together with the nearest concept maps of each of them.
+ * <p>
+ * Pairs are compared by {@link ConceptMapComparator} with the first concept map as the student one. Only the
+ * {@link #METHODS} whose results do not depend on which concept map is the teacher one are supported, so that the
+ * matrix is symmetric and only its upper triangle is calculated. Error analysis only gives its unweighted similarity
+ * degree, as the weighted one is not symmetric. Pairs that a method cannot compare, e.g. because their concepts are
+ * different, have similarity degree {@link Double#NaN}.
+ * <p>
+ * Every concept map is compiled into a {@link ScoringKey} once, and the structures it memoises are reused by all of
+ * its pairs. The upper triangle is split into square tiles that are calculated in a {@link ForkJoinPool}, and each
+ * pair is calculated on its own, so results do not depend on the number of threads. Matrices that would take more
+ * than the given amount of memory are stored in a temporary memory-mapped file instead, which is deleted once the
+ * matrix is closed. Instances can be shared between threads once calculated.
+ */
+public class SimilarityMatrix implements Closeable {
+
+    /**
+     * Scoring methods that can be used to calculate the matrix.
+     */
+    public static final Set<ScoringMethod> METHODS = Collections.unmodifiableSet(EnumSet.of(
+            ScoringMethod.CLOSENESS_INDEXES,
+            ScoringMethod.IMPORTANCE_INDEXES,
+            ScoringMethod.ERROR_ANALYSIS
+    ));
+
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 256L * 1024 * 1024;
+
+    // Pairs per tile side, so that the concept maps of a tile stay in the processor caches while it is calculated
+    private static final int TILE_SIZE = 32;
+
+    private final int size;
+    private final List<ScoringMethod> methods;
+    private final Storage storage;
+
+    private SimilarityMatrix(int size, List<ScoringMethod> methods, Storage storage) {
+        this.size = size;
+        this.methods = methods;
+        this.storage = storage;
+    }
+
+    /**
+     * Same as {@link #calculate(List, Set, ForkJoinPool, long, Path)}, but keeps matrices of up to
+     * {@link #DEFAULT_MAX_MEMORY_BYTES} in memory and stores larger ones in the default temporary directory.
+     */
+    public static SimilarityMatrix calculate(@NonNull List<ConceptMap> conceptMaps,
+                                             @NonNull Set<ScoringMethod> methods,
+                                             @NonNull ForkJoinPool pool) throws IOException {
+        return calculate(conceptMaps, methods, pool, DEFAULT_MAX_MEMORY_BYTES, null);
+    }
+
+    /**
+     * Calculates the matrix in the {@code pool}. The calculation is cancelled by interrupting the calling thread, in
+     * which case {@link CancellationException} is thrown.
+     *
+     * @param maxMemoryBytes Size above which the matrix is stored in a memory-mapped file.
+     * @param spillDirectory Directory of the memory-mapped file, or {@code null} if it is the default temporary one.
+     * @throws IllegalArgumentException If any of the methods is not one of the {@link #METHODS}.
+     */
+    public static SimilarityMatrix calculate(@NonNull List<ConceptMap> conceptMaps,
+                                             @NonNull Set<ScoringMethod> methods,
+                                             @NonNull ForkJoinPool pool,
+                                             long maxMemoryBytes,
+                                             Path spillDirectory) throws IOException {
+        for (var method : methods) {
+            if (!METHODS.contains(method)) {
+                throw new IllegalArgumentException("Scoring method " + method.key + " is not symmetric");
+            }
+        }
+        var size = conceptMaps.size();
+        var orderedMethods = new ArrayList<>(methods);
+        orderedMethods.sort(Comparator.naturalOrder());
+        var valueCount = pairCount(size) * orderedMethods.size();
+        var storage = valueCount * Double.BYTES > maxMemoryBytes
+                ? new MappedStorage(spillDirectory, valueCount)
+                : new ArrayStorage(valueCount);
+        var matrix = new SimilarityMatrix(size, List.copyOf(orderedMethods), storage);
+        try {
+            matrix.fill(conceptMaps, pool);
+        } catch (RuntimeException e) {
+            matrix.close();
+            throw e;
+        }
+        return matrix;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<ScoringMethod> methods() {
+        return methods;
+    }
+
+    /**
+     * @return Similarity degree of the concept maps with the given indexes, in either order, or {@link Double#NaN}
+     * if the method cannot compare them.
+     * @throws IllegalArgumentException If the method has not been calculated.
+     */
+    public double similarity(ScoringMethod method, int i, int j) {
+        return storage.get(valueIndex(methodIndex(method), Math.min(i, j), Math.max(i, j)));
+    }
+
+    /**
+     * @return Up to {@code k} other concept maps that are the most similar to the concept map with the given index,
+     * from the most similar one, and by index if they are equally similar. Concept maps that the method cannot
+     * compare with it are left out.
+     * @throws IllegalArgumentException If the method has not been calculated.
+     */
+    public List<Neighbour> nearest(ScoringMethod method, int i, int k) {
+        var m = methodIndex(method);
+        Comparator<Neighbour> order = Comparator
+                .comparingDouble((Neighbour n) -> n.similarity)
+                .reversed()
+                .thenComparingInt(n -> n.index);
+
+        // The head of the queue is the least similar of the nearest concept maps found so far
+        var nearest = new PriorityQueue<>(Math.max(1, k), order.reversed());
+        for (var j = 0; j < size && k > 0; j++) {
+            if (j == i) continue;
+            var similarity = storage.get(valueIndex(m, Math.min(i, j), Math.max(i, j)));
+            if (Double.isNaN(similarity)) continue;
+            var neighbour = new Neighbour(j, similarity);
+            if (nearest.size() < k) {
+                nearest.add(neighbour);
+            } else if (order.compare(neighbour, nearest.peek()) < 0) {
+                nearest.poll();
+                nearest.add(neighbour);
+            }
+        }
+        var sorted = new ArrayList<>(nearest);
+        sorted.sort(order);
+        return sorted;
+    }
+
+    /**
+     * @return Whether the matrix is stored in a memory-mapped file rather than in memory.
+     */
+    public boolean isSpilled() {
+        return storage instanceof MappedStorage;
+    }
+
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
+    private void fill(List<ConceptMap> conceptMaps, ForkJoinPool pool) {
+        var scoringKeys = new ScoringKey[size];
+        for (var i = 0; i < size; i++) {
+            scoringKeys[i] = new ScoringKey(conceptMaps.get(i));
+        }
+        var tileCount = (size + TILE_SIZE - 1) / TILE_SIZE;
+        var tiles = new ArrayList<int[]>();
+        for (var row = 0; row < tileCount; row++) {
+            for (var column = row; column < tileCount; column++) {
+                tiles.add(new int[]{row * TILE_SIZE, column * TILE_SIZE});
+            }
+        }
+        if (tiles.isEmpty()) return;
+        var run = new Run(scoringKeys, tiles, Thread.currentThread());
+        try {
+
+            // Unlike invoke, waiting for the result can be interrupted
+            pool.submit(new Tiles(run, 0, tiles.size())).get();
+        } catch (InterruptedException e) {
+            run.cancelled = true;
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Calculation has been interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void fillTile(ScoringKey[] scoringKeys, int rowStart, int columnStart) {
+        var rowEnd = Math.min(rowStart + TILE_SIZE, size);
+        var columnEnd = Math.min(columnStart + TILE_SIZE, size);
+        for (var i = rowStart; i < rowEnd; i++) {
+            var conceptMap = scoringKeys[i].teacherConceptMap;
+            for (var j = Math.max(i, columnStart); j < columnEnd; j++) {
+                var comparator = new ConceptMapComparator(conceptMap, scoringKeys[j]);
+                for (var m = 0; m < methods.size(); m++) {
+                    storage.set(valueIndex(m, i, j), compare(comparator, methods.get(m)));
+                }
+            }
+        }
+    }
+
+    private static double compare(ConceptMapComparator comparator, ScoringMethod method) {
+        try {
+            switch (method) {
+                case CLOSENESS_INDEXES:
+                    return comparator.compareUsingClosenessIndexes();
+                case IMPORTANCE_INDEXES:
+                    return comparator.compareUsingImportanceIndexes();
+                case ERROR_ANALYSIS:
+                    return comparator.compareUsingErrorAnalysis().similarityDegree;
+                default:
+                    throw new IllegalStateException("Scoring method " + method.key + " is not symmetric");
+            }
+        } catch (InvalidDataException e) {
+            return Double.NaN;
+        }
+    }
+
+    private int methodIndex(ScoringMethod method) {
+        var m = methods.indexOf(method);
+        if (m < 0) throw new IllegalArgumentException("Scoring method " + method.key + " has not been calculated");
+        return m;
+    }
+
+    /**
+     * @return Index of the value of pair {@code i <= j} in the upper triangle, including the diagonal, stored row by
+     * row with the values of all methods of a pair next to each other.
+     */
+    private long valueIndex(int m, int i, int j) {
+        if (i < 0 || j >= size) throw new IndexOutOfBoundsException("Pair " + i + ", " + j + " is out of bounds");
+        var pairIndex = (long) i * size - (long) i * (i - 1) / 2 + (j - i);
+        return pairIndex * methods.size() + m;
+    }
+
+    private static long pairCount(int size) {
+        return (long) size * (size + 1) / 2;
+    }
+
+    @Value
+    public static class Neighbour {
+
+        /**
+         * Index of the concept map in the cohort.
+         */
+        public int index;
+        public double similarity;
+    }
+
+    /**
+     * Values of the matrix, which are set once by separate threads before they are read.
+     */
+    private interface Storage extends Closeable {
+
+        double get(long index);
+
+        void set(long index, double value);
+    }
+
+    private static class ArrayStorage implements Storage {
+
+        private final double[] values;
+
+        ArrayStorage(long valueCount) {
+            if (valueCount > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Matrix of " + valueCount + " values does not fit in memory");
+            }
+            this.values = new double[(int) valueCount];
+        }
+
+        @Override
+        public double get(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public void set(long index, double value) {
+            values[(int) index] = value;
+        }
+
+        @Override
+        public void close() {
+            // Do nothing
+        }
+    }
+
+    /**
+     * Values in a temporary file, which is mapped in segments, as a single mapping cannot exceed 2 GB. Segment sizes
+     * are multiples of {@link Double#BYTES}, so no value spans two segments.
+     */
+    private static class MappedStorage implements Storage {
+
+        private static final int SEGMENT_SHIFT = 30;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+        private final FileChannel channel;
+        private final ByteBuffer[] segments;
+
+        MappedStorage(Path directory, long valueCount) throws IOException {
+            var path = directory != null
+                    ? Files.createTempFile(directory, "similarity-", ".matrix")
+                    : Files.createTempFile("similarity-", ".matrix");
+            this.channel = FileChannel.open(
+                    path,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE
+            );
+            try {
+                var byteCount = valueCount * Double.BYTES;
+                segments = new ByteBuffer[(int) ((byteCount + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+                for (var s = 0; s < segments.length; s++) {
+                    var position = (long) s << SEGMENT_SHIFT;
+                    var length = Math.min(byteCount - position, 1L << SEGMENT_SHIFT);
+                    segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public double get(long index) {
+            var position = index * Double.BYTES;
+            return segments[(int) (position >>> SEGMENT_SHIFT)].getDouble((int) (position & SEGMENT_MASK));
+        }
+
+        @Override
+        public void set(long index, double value) {
+            var position = index * Double.BYTES;
+            segments[(int) (position >>> SEGMENT_SHIFT)].putDouble((int) (position & SEGMENT_MASK), value);
+        }
+
+        /**
+         * Deletes the file, unless the file system has already deleted it when it was opened. Its pages are released
+         * once the segments are garbage collected.
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * State shared by the tiles of a single calculation.
+     */
+    private static class Run {
+
+        private final ScoringKey[] scoringKeys;
+        private final List<int[]> tiles;
+        private final Thread owner;
+        private volatile boolean cancelled;
+
+        Run(ScoringKey[] scoringKeys, List<int[]> tiles, Thread owner) {
+            this.scoringKeys = scoringKeys;
+            this.tiles = tiles;
+            this.owner = owner;
+        }
+    }
+
+    private class Tiles extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final int from;
+        private final int to;
+
+        Tiles(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                var middle = (from + to) >>> 1;
+                invokeAll(new Tiles(run, from, middle), new Tiles(run, middle, to));
+                return;
+            }
+            if (run.cancelled || run.owner.isInterrupted()) {
+                throw new CancellationException("Calculation has been interrupted");
+            }
+            var tile = run.tiles.get(from);
+            fillTile(run.scoringKeys, tile[0], tile[1]);
+        }
+    }
+}
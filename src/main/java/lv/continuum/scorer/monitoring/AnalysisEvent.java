@@ -0,0 +1,33 @@
+package lv.continuum.scorer.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of analysing the structure of a concept map, disabled unless it is enabled in the recording
+ * settings.
+ */
+@Name("lv.continuum.scorer.Analysis")
+@Label("Concept Map Analysis")
+@Category("Concept Map Scorer")
+@Enabled(false)
+@StackTrace(false)
+public class AnalysisEvent extends jdk.jfr.Event {
+
+    @Label("Analysis")
+    public String analysis;
+
+    @Label("Concept Count")
+    public long conceptCount;
+
+    @Label("Relationship Count")
+    public long relationshipCount;
+
+    @Label("Result")
+    @Description("Number of paths, levels or subnets found")
+    public long result;
+}
@@ -0,0 +1,34 @@
+package lv.continuum.scorer.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of comparing a student concept map with a teacher concept map, disabled unless it is enabled
+ * in the recording settings.
+ */
+@Name("lv.continuum.scorer.Comparison")
+@Label("Concept Map Comparison")
+@Category("Concept Map Scorer")
+@Enabled(false)
+@StackTrace(false)
+public class ComparisonEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Student Concept Count")
+    public long studentConceptCount;
+
+    @Label("Student Relationship Count")
+    public long studentRelationshipCount;
+
+    @Label("Teacher Concept Count")
+    public long teacherConceptCount;
+
+    @Label("Teacher Relationship Count")
+    public long teacherRelationshipCount;
+}
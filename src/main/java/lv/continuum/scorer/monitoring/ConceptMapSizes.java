@@ -0,0 +1,46 @@
+package lv.continuum.scorer.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+class ConceptMapSizes implements ConceptMapSizesMXBean {
+
+    // Up to about a million elements
+    private static final int SIZE_BUCKETS = 21;
+
+    private final LongAdder count = new LongAdder();
+    private final Histogram conceptCounts = new Histogram(SIZE_BUCKETS);
+    private final Histogram relationshipCounts = new Histogram(SIZE_BUCKETS);
+
+    void record(long conceptCount, long relationshipCount) {
+        count.increment();
+        conceptCounts.record(conceptCount);
+        relationshipCounts.record(relationshipCount);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long[] getConceptCountHistogram() {
+        return conceptCounts.counts();
+    }
+
+    @Override
+    public long[] getRelationshipCountHistogram() {
+        return relationshipCounts.counts();
+    }
+
+    @Override
+    public long[] getBucketUpperBounds() {
+        return conceptCounts.upperBounds();
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        conceptCounts.reset();
+        relationshipCounts.reset();
+    }
+}
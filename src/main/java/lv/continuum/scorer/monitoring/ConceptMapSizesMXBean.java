@@ -0,0 +1,23 @@
+package lv.continuum.scorer.monitoring;
+
+/**
+ * Distribution of the sizes of the concept maps that have been constructed.
+ */
+public interface ConceptMapSizesMXBean {
+
+    long getCount();
+
+    /**
+     * @return Number of concept maps in each bucket of {@link #getBucketUpperBounds()} by concept count.
+     */
+    long[] getConceptCountHistogram();
+
+    /**
+     * @return Number of concept maps in each bucket of {@link #getBucketUpperBounds()} by relationship count.
+     */
+    long[] getRelationshipCountHistogram();
+
+    long[] getBucketUpperBounds();
+
+    void reset();
+}
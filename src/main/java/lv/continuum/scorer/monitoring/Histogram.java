@@ -0,0 +1,48 @@
+package lv.continuum.scorer.monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with power-of-two buckets: bucket {@code 0} counts value {@code 0} and
+ * bucket {@code i} counts values from {@code 2^(i-1)} to {@code 2^i - 1}. Values beyond the last bucket are counted
+ * in the last bucket.
+ */
+class Histogram {
+
+    private final AtomicLongArray counts;
+
+    Histogram(int bucketCount) {
+        counts = new AtomicLongArray(bucketCount);
+    }
+
+    void record(long value) {
+        var bucket = Long.SIZE - Long.numberOfLeadingZeros(Math.max(value, 0));
+        counts.incrementAndGet(Math.min(bucket, counts.length() - 1));
+    }
+
+    long[] counts() {
+        var snapshot = new long[counts.length()];
+        for (var i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return Exclusive upper bound of the values of each bucket, the last bucket being unbounded.
+     */
+    long[] upperBounds() {
+        var upperBounds = new long[counts.length()];
+        for (var i = 0; i < upperBounds.length - 1; i++) {
+            upperBounds[i] = 1L << i;
+        }
+        upperBounds[upperBounds.length - 1] = Long.MAX_VALUE;
+        return upperBounds;
+    }
+
+    void reset() {
+        for (var i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+}
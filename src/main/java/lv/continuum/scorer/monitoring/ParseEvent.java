@@ -0,0 +1,30 @@
+package lv.continuum.scorer.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of parsing a concept map, disabled unless it is enabled in the recording settings.
+ */
+@Name("lv.continuum.scorer.Parse")
+@Label("Concept Map Parse")
+@Category("Concept Map Scorer")
+@Enabled(false)
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event {
+
+    @Label("File Name")
+    public String fileName;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Concept Count")
+    public long conceptCount;
+
+    @Label("Relationship Count")
+    public long relationshipCount;
+}
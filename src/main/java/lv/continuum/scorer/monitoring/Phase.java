@@ -0,0 +1,25 @@
+package lv.continuum.scorer.monitoring;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Phase of scoring whose time is measured by {@link Monitoring}.
+ */
+@RequiredArgsConstructor
+public enum Phase {
+    PARSE_STANDARD("parse-standard"),
+    PARSE_IKAS("parse-ikas"),
+    CONCEPT_MAP_CONSTRUCTION("concept-map-construction"),
+    METRICS("metrics"),
+    REACHABILITY("reachability"),
+    PROPOSITION_CHAINS("proposition-chains"),
+    CLOSENESS_INDEXES("compare-closeness-indexes"),
+    IMPORTANCE_INDEXES("compare-importance-indexes"),
+    PROPOSITION_CHAINS_COMPARISON("compare-proposition-chains"),
+    ERROR_ANALYSIS("compare-error-analysis");
+
+    /**
+     * Key used as the name of the MBean.
+     */
+    public final String key;
+}
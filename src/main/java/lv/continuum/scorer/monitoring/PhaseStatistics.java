@@ -0,0 +1,63 @@
+package lv.continuum.scorer.monitoring;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+class PhaseStatistics implements PhaseStatisticsMXBean {
+
+    // Up to about 9 minutes in microseconds
+    private static final int LATENCY_BUCKETS = 30;
+
+    private static final double NANOS_PER_MILLI = 1_000_000D;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final Histogram latencyMicros = new Histogram(LATENCY_BUCKETS);
+
+    void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        latencyMicros.record(nanos / 1000);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getTotalTimeMillis() {
+        return totalNanos.sum() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanTimeMillis() {
+        var count = getCount();
+        return count > 0 ? getTotalTimeMillis() / count : 0;
+    }
+
+    @Override
+    public double getMaxTimeMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        return latencyMicros.counts();
+    }
+
+    @Override
+    public long[] getLatencyBucketUpperBoundsMicros() {
+        return latencyMicros.upperBounds();
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        latencyMicros.reset();
+    }
+}
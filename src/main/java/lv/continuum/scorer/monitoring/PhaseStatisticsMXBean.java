@@ -0,0 +1,24 @@
+package lv.continuum.scorer.monitoring;
+
+/**
+ * Cumulative timing of a {@link Phase}.
+ */
+public interface PhaseStatisticsMXBean {
+
+    long getCount();
+
+    double getTotalTimeMillis();
+
+    double getMeanTimeMillis();
+
+    double getMaxTimeMillis();
+
+    /**
+     * @return Number of measurements in each bucket of {@link #getLatencyBucketUpperBoundsMicros()}.
+     */
+    long[] getLatencyHistogram();
+
+    long[] getLatencyBucketUpperBoundsMicros();
+
+    void reset();
+}
@@ -0,0 +1,30 @@
+package lv.continuum.scorer.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of scoring a student concept map file, disabled unless it is enabled in the recording
+ * settings. Analysis and comparison events of the file are nested in it on the same thread.
+ */
+@Name("lv.continuum.scorer.Scoring")
+@Label("Concept Map Scoring")
+@Category("Concept Map Scorer")
+@Description("Scoring of a student concept map file against the teacher concept map")
+@Enabled(false)
+@StackTrace(false)
+public class ScoringEvent extends jdk.jfr.Event {
+
+    @Label("File Name")
+    public String fileName;
+
+    @Label("Concept Count")
+    public long conceptCount;
+
+    @Label("Relationship Count")
+    public long relationshipCount;
+}
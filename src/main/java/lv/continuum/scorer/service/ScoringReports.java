@@ -0,0 +1,109 @@
+package lv.continuum.scorer.service;
+
+import lombok.RequiredArgsConstructor;
+import lv.continuum.scorer.common.Interruptions;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.ConceptMapComparator.SimilarityDegrees;
+import lv.continuum.scorer.logic.ConceptMapFormatter;
+import lv.continuum.scorer.logic.ScoringKey;
+import lv.continuum.scorer.logic.ScoringMethod;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Creates reports of scoring results that can be written as JSON. Besides numbers, reports contain the same
+ * formatted text as the other modes of the application.
+ */
+@RequiredArgsConstructor
+class ScoringReports {
+
+    private final ConceptMapFormatter conceptMapFormatter;
+
+    Map<String, Object> score(ConceptMap studentConceptMap,
+                              Optional<ScoringKey> scoringKey,
+                              Set<ScoringMethod> methods) {
+        var report = new LinkedHashMap<String, Object>();
+        if (methods.contains(ScoringMethod.ELEMENT_COUNT)) {
+            report.put("student", counts("student", studentConceptMap));
+            scoringKey.ifPresent(sk -> report.put("teacher", counts("teacher", sk.teacherConceptMap)));
+        }
+        if (scoringKey.isEmpty()) return report;
+
+        var sk = scoringKey.get();
+        if (methods.contains(ScoringMethod.CLOSENESS_INDEXES)) {
+            Interruptions.check();
+            var similarityDegree = sk.compareUsingClosenessIndexes(studentConceptMap);
+            report.put(ScoringMethod.CLOSENESS_INDEXES.key, similarity(ScoringMethod.CLOSENESS_INDEXES, similarityDegree));
+        }
+        if (methods.contains(ScoringMethod.IMPORTANCE_INDEXES)) {
+            Interruptions.check();
+            try {
+                var similarityDegree = sk.compareUsingImportanceIndexes(studentConceptMap);
+                report.put(ScoringMethod.IMPORTANCE_INDEXES.key, similarity(ScoringMethod.IMPORTANCE_INDEXES, similarityDegree));
+            } catch (InvalidDataException e) {
+                report.put(ScoringMethod.IMPORTANCE_INDEXES.key, error(e));
+            }
+        }
+        if (methods.contains(ScoringMethod.PROPOSITION_CHAINS)) {
+            Interruptions.check();
+            try {
+                var similarityDegree = sk.compareUsingPropositionChains(studentConceptMap);
+                report.put(ScoringMethod.PROPOSITION_CHAINS.key, similarity(ScoringMethod.PROPOSITION_CHAINS, similarityDegree));
+            } catch (InvalidDataException e) {
+                report.put(ScoringMethod.PROPOSITION_CHAINS.key, error(e));
+            }
+        }
+        if (methods.contains(ScoringMethod.ERROR_ANALYSIS)) {
+            Interruptions.check();
+            try {
+                var similarityDegrees = sk.compareUsingErrorAnalysis(studentConceptMap);
+                report.put(ScoringMethod.ERROR_ANALYSIS.key, similarities(similarityDegrees));
+            } catch (InvalidDataException e) {
+                report.put(ScoringMethod.ERROR_ANALYSIS.key, error(e));
+            }
+        }
+        return report;
+    }
+
+    Map<String, Object> counts(String keyPrefix, ConceptMap conceptMap) {
+        var metrics = conceptMap.metrics();
+        var counts = new LinkedHashMap<String, Object>();
+        counts.put("concepts", metrics.getConceptCount());
+        counts.put("relationships", metrics.getRelationshipCount());
+        counts.put("levels", metrics.getLevelCount());
+        counts.put("branches", metrics.getBranchCount());
+        counts.put("examples", metrics.getExampleCount());
+        counts.put("cycles", metrics.isContainsCycles());
+        counts.put("subnets", metrics.getSubnetCount());
+        counts.put("text", conceptMapFormatter.formatCounts(keyPrefix, conceptMap));
+        return counts;
+    }
+
+    Map<String, Object> error(String text) {
+        return Map.of("error", text);
+    }
+
+    Map<String, Object> error(InvalidDataException e) {
+        return error(conceptMapFormatter.formatError(e));
+    }
+
+    private Map<String, Object> similarity(ScoringMethod method, double similarityDegree) {
+        var similarity = new LinkedHashMap<String, Object>();
+        similarity.put("similarity", similarityDegree);
+        similarity.put("text", conceptMapFormatter.formatSimilarityDegree(method.key, () -> similarityDegree));
+        return similarity;
+    }
+
+    private Map<String, Object> similarities(SimilarityDegrees similarityDegrees) {
+        var similarities = new LinkedHashMap<String, Object>();
+        similarities.put("similarity", similarityDegrees.similarityDegree);
+        similarities.put("weightedSimilarity", similarityDegrees.weightedSimilarityDegree);
+        similarities.put("text", conceptMapFormatter.formatSimilarityDegrees(
+                ScoringMethod.ERROR_ANALYSIS.key, () -> similarityDegrees));
+        return similarities;
+    }
+}
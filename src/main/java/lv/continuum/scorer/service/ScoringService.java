@@ -0,0 +1,308 @@
+package lv.continuum.scorer.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.common.Json;
+import lv.continuum.scorer.common.Translations;
+import lv.continuum.scorer.logic.ConceptMapFormatter;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.logic.ScoringKey;
+import lv.continuum.scorer.logic.ScoringMethod;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Scores concept maps sent over HTTP and responds with JSON reports, so that the application can be called by
+ * other systems without starting a new JVM for every submission.
+ * <ul>
+ * <li>{@code POST /score?methods=<method,...>|all&teacher=<id>} scores the {@code <student>} concept map of the
+ * {@code <score><student>...</student><teacher>...</teacher></score>} envelope against either the
+ * {@code <teacher>} concept map of the envelope or the resident teacher concept map with the given id.</li>
+ * <li>{@code PUT /teachers/<id>} parses the teacher concept map in the request body and keeps it resident.</li>
+ * <li>{@code GET /teachers/<id>} and {@code DELETE /teachers/<id>} show and remove a resident teacher concept map.</li>
+ * </ul>
+ * Requests are processed by a bounded worker pool. Requests that would exceed the queue limit are rejected with
+ * status 429, and requests that are not processed within the timeout are cancelled and answered with status 503.
+ * Request bodies larger than the limit are rejected with status 413 before they take a place in the queue.
+ */
+@Slf4j
+public class ScoringService {
+
+    private static final Pattern TEACHER_ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final String TEACHERS_PATH = "/teachers/";
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final int REJECTED_QUEUE = 64;
+
+    private final ServiceOptions options;
+    private final Translations translations;
+    private final ConceptMapParser conceptMapParser;
+    private final ScoringReports scoringReports;
+    private final Map<String, ScoringKey> teachers = new ConcurrentHashMap<>();
+
+    // Admits requests that are either being processed or waiting for a worker thread
+    final Semaphore permits;
+    private final ExecutorService workers;
+    final ThreadPoolExecutor handlers;
+    private final ThreadPoolExecutor rejecter;
+    private final ThreadLocal<Boolean> rejecting = ThreadLocal.withInitial(() -> false);
+    private HttpServer server;
+
+    public ScoringService(Translations translations, ServiceOptions options) {
+        this.options = options;
+        this.translations = translations;
+        this.conceptMapParser = new ConceptMapParser();
+        this.scoringReports = new ScoringReports(new ConceptMapFormatter(translations));
+        this.permits = new Semaphore(options.getThreads() + options.getQueue());
+        this.workers = Executors.newFixedThreadPool(options.getThreads());
+
+        // Requests that find all handlers busy are rejected by a single thread, so that the server thread never
+        // handles them itself. Once its queue is full as well, the server closes their connections.
+        this.rejecter = new ThreadPoolExecutor(
+                0,
+                1,
+                1L,
+                TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(REJECTED_QUEUE),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        // Handlers mostly wait for workers, so there can be one for each admitted request and one more to reject the
+        // others, while request bodies are being read
+        this.handlers = new ThreadPoolExecutor(
+                0,
+                options.getThreads() + options.getQueue() + 1,
+                1L,
+                TimeUnit.MINUTES,
+                new SynchronousQueue<>(),
+                (exchange, executor) -> rejecter.execute(() -> reject(exchange))
+        );
+    }
+
+    static boolean isValidTeacherId(String teacherId) {
+        return TEACHER_ID_PATTERN.matcher(teacherId).matches();
+    }
+
+    /**
+     * Loads the teacher concept maps given in the options and starts accepting requests.
+     *
+     * @throws InvalidDataException if any of the teacher concept maps cannot be parsed.
+     */
+    public void start() throws IOException, InvalidDataException {
+        for (var teacher : options.getTeacherPaths().entrySet()) {
+            try (var inputStream = Files.newInputStream(Path.of(teacher.getValue()))) {
+                teachers.put(teacher.getKey(), new ScoringKey(conceptMapParser.parse(inputStream, teacher.getKey())));
+            } catch (IOException e) {
+                log.debug("Issue while reading teacher concept map {}", teacher.getValue(), e);
+                throw new InvalidDataException(ErrorCode.INVALID_FILE, teacher.getValue());
+            }
+        }
+
+        server = HttpServer.create(new InetSocketAddress(options.getPort()), 0);
+        server.setExecutor(handlers);
+        server.createContext("/score", exchange -> handle(exchange, this::handleScore));
+        server.createContext(TEACHERS_PATH, exchange -> handle(exchange, this::handleTeacher));
+        server.start();
+        log.info("Started scoring service on port {}", getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) server.stop(0);
+        workers.shutdownNow();
+        handlers.shutdownNow();
+        rejecter.shutdownNow();
+        log.info("Stopped scoring service");
+    }
+
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private interface Task {
+        Response call(InputStream body) throws InvalidDataException;
+    }
+
+    @Value
+    private static class Response {
+        int status;
+        Object body;
+    }
+
+    /**
+     * Runs the {@code exchange} so that its request is answered with status 429 without reading it.
+     */
+    private void reject(Runnable exchange) {
+        rejecting.set(true);
+        try {
+            exchange.run();
+        } finally {
+            rejecting.remove();
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try {
+            var response = rejecting.get() ? busy() : handler.handle(exchange);
+            if (response.status == 429) exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            if (response.body != null) {
+                var bytes = Json.write(response.body).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(response.status, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            } else {
+                exchange.sendResponseHeaders(response.status, -1);
+            }
+        } catch (Exception e) {
+            log.warn("Issue while handling request {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response handleScore(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return new Response(405, null);
+        }
+        var query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Set<ScoringMethod> methods;
+        try {
+            methods = ScoringMethod.fromKeys(query.getOrDefault("methods", "all"));
+        } catch (IllegalArgumentException e) {
+            return new Response(400, scoringReports.error(e.getMessage() + "."));
+        }
+        var teacherId = Optional.ofNullable(query.get("teacher"));
+        var residentTeacher = teacherId.map(teachers::get);
+        if (teacherId.isPresent() && residentTeacher.isEmpty()) {
+            return unknownTeacher(teacherId.get());
+        }
+
+        return process(exchange, body -> {
+            var conceptMaps = conceptMapParser.parseEnvelope(body, "score");
+            var studentConceptMap = conceptMaps.get("student");
+            if (studentConceptMap == null) {
+                throw new InvalidDataException(ErrorCode.INVALID_XML, "student");
+            }
+            var scoringKey = residentTeacher.or(() -> Optional.ofNullable(conceptMaps.get("teacher")).map(ScoringKey::new));
+            return new Response(200, scoringReports.score(studentConceptMap, scoringKey, methods));
+        });
+    }
+
+    private Response handleTeacher(HttpExchange exchange) throws IOException {
+        var teacherId = exchange.getRequestURI().getPath().substring(TEACHERS_PATH.length());
+        if (!isValidTeacherId(teacherId)) {
+            return new Response(404, null);
+        }
+        switch (exchange.getRequestMethod()) {
+            case "PUT":
+                return process(exchange, body -> {
+                    var scoringKey = new ScoringKey(conceptMapParser.parse(body, teacherId));
+                    var previous = teachers.put(teacherId, scoringKey);
+                    log.debug("Loaded teacher concept map {}", teacherId);
+                    return new Response(previous == null ? 201 : 200, teacher(scoringKey));
+                });
+            case "GET":
+                var scoringKey = teachers.get(teacherId);
+                return scoringKey != null ? new Response(200, teacher(scoringKey)) : unknownTeacher(teacherId);
+            case "DELETE":
+                return teachers.remove(teacherId) != null ? new Response(204, null) : unknownTeacher(teacherId);
+            default:
+                return new Response(405, null);
+        }
+    }
+
+    /**
+     * Reads the request body and runs the {@code task} on a worker thread, provided the body size and queue limits are
+     * not exceeded, and waits for its result until the timeout.
+     */
+    private Response process(HttpExchange exchange, Task task) throws IOException {
+
+        // Slow or large uploads are read before taking a permit, so that they do not hold up admitted requests
+        var body = exchange.getRequestBody().readNBytes(options.getMaxBodyBytes() + 1);
+        if (body.length > options.getMaxBodyBytes()) {
+            return new Response(413, scoringReports.error(translations.get("service-too-large")));
+        }
+        if (!permits.tryAcquire()) {
+            return busy();
+        }
+
+        // Whoever claims the task first, either the worker or the handler after the timeout, releases the permit
+        var claimed = new AtomicBoolean();
+        Future<Response> future;
+        try {
+            future = workers.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) return null;
+                try {
+                    return task.call(new ByteArrayInputStream(body));
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+
+        try {
+            return future.get(options.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof InvalidDataException) {
+                return new Response(400, scoringReports.error((InvalidDataException) cause));
+            }
+            log.error("Issue while processing request {}", exchange.getRequestURI(), cause);
+            return new Response(500, scoringReports.error(translations.get(ErrorCode.INVALID_FILE.translationKey)));
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            future.cancel(true);
+            if (claimed.compareAndSet(false, true)) permits.release();
+            log.debug("Cancelled request {} after timeout", exchange.getRequestURI());
+            return new Response(503, scoringReports.error(translations.get("service-timeout")));
+        }
+    }
+
+    private Response busy() {
+        return new Response(429, scoringReports.error(translations.get("service-busy")));
+    }
+
+    private Response unknownTeacher(String teacherId) {
+        return new Response(404, scoringReports.error(translations.format("service-unknown-teacher", teacherId)));
+    }
+
+    private Map<String, Object> teacher(ScoringKey scoringKey) {
+        return scoringReports.counts("teacher", scoringKey.teacherConceptMap);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        var query = new HashMap<String, String>();
+        if (rawQuery == null) return query;
+        for (var parameter : rawQuery.split("&")) {
+            var nameAndValue = parameter.split("=", 2);
+            query.put(
+                    URLDecoder.decode(nameAndValue[0], StandardCharsets.UTF_8),
+                    nameAndValue.length > 1 ? URLDecoder.decode(nameAndValue[1], StandardCharsets.UTF_8) : ""
+            );
+        }
+        return query;
+    }
+}
@@ -0,0 +1,87 @@
+package lv.continuum.scorer.service;
+
+import lombok.Value;
+import lv.continuum.scorer.common.Arguments;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the service mode, e.g.:
+ * <p>
+ * {@code service --port 8080 --threads 4 --queue 16 --timeout 30 --max-body 4 --teacher physics=teacher.xml}
+ */
+@Value
+public class ServiceOptions {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_MAX_BODY_MEGABYTES = 4;
+
+    // Number of waiting requests per worker thread, unless specified explicitly
+    private static final int DEFAULT_QUEUE_PER_THREAD = 4;
+
+    int port;
+    int threads;
+    int queue;
+    Duration timeout;
+    int maxBodyBytes;
+
+    /**
+     * Teacher concept map paths by their ids, which are loaded when the service starts.
+     */
+    Map<String, String> teacherPaths;
+
+    /**
+     * @throws IllegalArgumentException if the arguments are invalid.
+     */
+    public static ServiceOptions parse(String... args) {
+        var port = DEFAULT_PORT;
+        var threads = Runtime.getRuntime().availableProcessors();
+        Integer queue = null;
+        var timeout = Duration.ofSeconds(DEFAULT_TIMEOUT_SECONDS);
+        var maxBodyMegabytes = DEFAULT_MAX_BODY_MEGABYTES;
+        var teacherPaths = new LinkedHashMap<String, String>();
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Arguments.parseNonNegative(Arguments.value(args, ++i));
+                    break;
+                case "--threads":
+                    threads = Arguments.parsePositive(Arguments.value(args, ++i));
+                    break;
+                case "--queue":
+                    queue = Arguments.parseNonNegative(Arguments.value(args, ++i));
+                    break;
+                case "--timeout":
+                    timeout = Duration.ofSeconds(Arguments.parsePositive(Arguments.value(args, ++i)));
+                    break;
+                case "--max-body":
+                    maxBodyMegabytes = Arguments.parsePositive(Arguments.value(args, ++i));
+                    if (maxBodyMegabytes > Integer.MAX_VALUE / (1024 * 1024)) {
+                        throw new IllegalArgumentException("Maximum body size is too large, got " + args[i]);
+                    }
+                    break;
+                case "--teacher":
+                    var teacher = Arguments.value(args, ++i).split("=", 2);
+                    if (teacher.length != 2 || !ScoringService.isValidTeacherId(teacher[0])) {
+                        throw new IllegalArgumentException("Expected teacher as <id>=<file>, got " + args[i]);
+                    }
+                    teacherPaths.put(teacher[0], teacher[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        return new ServiceOptions(
+                port,
+                threads,
+                queue != null ? queue : threads * DEFAULT_QUEUE_PER_THREAD,
+                timeout,
+                maxBodyMegabytes * 1024 * 1024,
+                Map.copyOf(teacherPaths)
+        );
+    }
+}
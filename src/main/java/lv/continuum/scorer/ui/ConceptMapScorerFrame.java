@@ -6,16 +6,24 @@ import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
 import lv.continuum.scorer.common.Translations;
 import lv.continuum.scorer.common.VersionUtils;
 import lv.continuum.scorer.domain.ConceptMap;
-import lv.continuum.scorer.logic.ConceptMapComparator;
+import lv.continuum.scorer.logic.ConceptMapCache;
 import lv.continuum.scorer.logic.ConceptMapFormatter;
 import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.logic.ConceptMapScorer;
+import lv.continuum.scorer.logic.ScoringKey;
+import lv.continuum.scorer.logic.ScoringMethod;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 @Slf4j
 public class ConceptMapScorerFrame extends JFrame {
@@ -25,13 +33,16 @@ public class ConceptMapScorerFrame extends JFrame {
     private static final int SCORE_SCROLL_PANE_HEIGHT = 260;
 
     private final Translations translations;
-    private final ConceptMapParser conceptMapParser;
+    private final ConceptMapCache conceptMapCache;
     private final ConceptMapFormatter conceptMapFormatter;
+    private final ConceptMapScorer conceptMapScorer;
 
     private final JTextField studentTextField;
     private final JTextField teacherTextField;
     private final JFileChooser fileChooser;
     private final JButton scoreButton;
+    private final JButton cancelButton;
+    private final JProgressBar progressBar;
     private final JTextArea scoreTextArea;
 
     private final JCheckBox elementsCheckBox;
@@ -41,10 +52,14 @@ public class ConceptMapScorerFrame extends JFrame {
     private final JCheckBox errorAnalysisCheckBox;
     private final Set<JCheckBox> checkBoxes;
 
+    // Accessed on the Event Dispatch Thread only
+    private ScoringWorker scoringWorker;
+
     public ConceptMapScorerFrame(Translations translations) {
         this.translations = translations;
-        this.conceptMapParser = new ConceptMapParser();
+        this.conceptMapCache = new ConceptMapCache(new ConceptMapParser());
         this.conceptMapFormatter = new ConceptMapFormatter(translations);
+        this.conceptMapScorer = new ConceptMapScorer(conceptMapFormatter, ForkJoinPool.commonPool());
 
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setTitle(translations.format("title", VersionUtils.getVersionNumber()));
@@ -72,6 +87,7 @@ public class ConceptMapScorerFrame extends JFrame {
         teacherTextField.addKeyListener(keyAdapter);
 
         fileChooser = new JFileChooser(System.getProperty("user.dir"));
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("Concept Map Snapshots", "cmap"));
         fileChooser.setFileFilter(new XmlFileFilter());
 
         scoreButton = new JButton(translations.get("score"));
@@ -79,6 +95,16 @@ public class ConceptMapScorerFrame extends JFrame {
         scoreButton.setEnabled(false);
         scoreButton.addActionListener(e -> scoreButtonActionPerformed());
 
+        cancelButton = new JButton(translations.get("cancel"));
+        cancelButton.setName("cancelButton");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> cancelButtonActionPerformed());
+
+        progressBar = new JProgressBar();
+        progressBar.setName("progressBar");
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+
         elementsCheckBox = new JCheckBox(translations.get("method-element-count"));
         elementsCheckBox.setSelected(true);
 
@@ -135,8 +161,11 @@ public class ConceptMapScorerFrame extends JFrame {
                 .addComponent(propositionChainsCheckBox)
                 .addComponent(errorAnalysisCheckBox)
                 .addComponent(elementsCheckBox);
-        var scoreButtonAndCheckBoxesHorizontalGroup = layout.createSequentialGroup()
+        var buttonsHorizontalGroup = layout.createParallelGroup()
                 .addComponent(scoreButton)
+                .addComponent(cancelButton);
+        var scoreButtonAndCheckBoxesHorizontalGroup = layout.createSequentialGroup()
+                .addGroup(buttonsHorizontalGroup)
                 .addPreferredGap(LayoutStyle.ComponentPlacement.UNRELATED)
                 .addGroup(checkBoxesHorizontalGroup);
 
@@ -156,10 +185,15 @@ public class ConceptMapScorerFrame extends JFrame {
                 .addComponent(propositionChainsCheckBox)
                 .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(errorAnalysisCheckBox);
-        var scoreButtonAndCheckBoxesVerticalGroup = layout.createParallelGroup()
+        var buttonsVerticalGroup = layout.createSequentialGroup()
                 .addComponent(scoreButton)
+                .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(cancelButton);
+        var scoreButtonAndCheckBoxesVerticalGroup = layout.createParallelGroup()
+                .addGroup(buttonsVerticalGroup)
                 .addGroup(checkBoxesVerticalGroup);
 
+        layout.linkSize(SwingConstants.HORIZONTAL, scoreButton, cancelButton);
         layout.setAutoCreateContainerGaps(true);
         layout.setHorizontalGroup(layout.createParallelGroup()
                 .addComponent(studentLabel)
@@ -167,6 +201,7 @@ public class ConceptMapScorerFrame extends JFrame {
                 .addComponent(teacherLabel)
                 .addGroup(teacherTextFieldHorizontalGroup)
                 .addGroup(scoreButtonAndCheckBoxesHorizontalGroup)
+                .addComponent(progressBar)
                 .addComponent(scoreScrollPane, GroupLayout.DEFAULT_SIZE, SCORE_SCROLL_PANE_WIDTH, Short.MAX_VALUE)
         );
         layout.setVerticalGroup(layout.createSequentialGroup()
@@ -180,6 +215,8 @@ public class ConceptMapScorerFrame extends JFrame {
                 .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(scoreButtonAndCheckBoxesVerticalGroup)
                 .addPreferredGap(LayoutStyle.ComponentPlacement.UNRELATED)
+                .addComponent(progressBar)
+                .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(scoreScrollPane, GroupLayout.DEFAULT_SIZE, SCORE_SCROLL_PANE_HEIGHT, Short.MAX_VALUE)
         );
         pack();
@@ -188,70 +225,137 @@ public class ConceptMapScorerFrame extends JFrame {
     }
 
     private void scoreButtonActionPerformed() {
-        try {
-            var studentText = studentTextField.getText();
-            var teacherText = teacherTextField.getText();
-
-            ConceptMap studentConceptMap;
-            Optional<ConceptMap> teacherConceptMap;
-            if (!studentText.isBlank() && !teacherText.isBlank()) {
-                studentConceptMap = conceptMapParser.parse(studentText);
-                teacherConceptMap = Optional.of(conceptMapParser.parse(teacherText));
-            } else if (!studentText.isBlank()) {
-                studentConceptMap = conceptMapParser.parse(studentText);
-                teacherConceptMap = Optional.empty();
-            } else {
-                throw new InvalidDataException(ErrorCode.INVALID_FILE);
-            }
 
-            var strings = new ArrayList<String>();
-            if (elementsCheckBox.isSelected()) {
-                strings.add(conceptMapFormatter.formatCounts("student", studentConceptMap));
-            }
-            teacherConceptMap.ifPresent(tcm -> {
-                var comparator = new ConceptMapComparator(studentConceptMap, tcm);
-                if (elementsCheckBox.isSelected()) {
-                    strings.add(conceptMapFormatter.formatCounts("teacher", tcm));
-                }
-                if (closenessIndexesCheckBox.isSelected()) {
-                    strings.add(conceptMapFormatter.formatSimilarityDegree(
-                            "closeness-indexes", comparator::compareUsingClosenessIndexes));
+        // Repeated clicks while scoring is in progress are coalesced into the current run
+        if (isScoring()) return;
+
+        var studentText = studentTextField.getText();
+        var teacherText = teacherTextField.getText();
+        if (studentText.isBlank()) {
+            showError(new InvalidDataException(ErrorCode.INVALID_FILE));
+            return;
+        }
+
+        var methods = EnumSet.noneOf(ScoringMethod.class);
+        if (elementsCheckBox.isSelected()) methods.add(ScoringMethod.ELEMENT_COUNT);
+        if (!teacherText.isBlank()) {
+            if (closenessIndexesCheckBox.isSelected()) methods.add(ScoringMethod.CLOSENESS_INDEXES);
+            if (importanceIndexesCheckBox.isSelected()) methods.add(ScoringMethod.IMPORTANCE_INDEXES);
+            if (propositionChainsCheckBox.isSelected()) methods.add(ScoringMethod.PROPOSITION_CHAINS);
+            if (errorAnalysisCheckBox.isSelected()) methods.add(ScoringMethod.ERROR_ANALYSIS);
+        }
+
+        scoreTextArea.setText("");
+        progressBar.setMaximum(methods.size() + 1); // Parsing is the first step
+        progressBar.setValue(0);
+        progressBar.setString(translations.get("progress-parsing"));
+        cancelButton.setEnabled(true);
+
+        scoringWorker = new ScoringWorker(studentText, teacherText.isBlank() ? null : teacherText, methods);
+        scoringWorker.execute();
+        updateScoreButtonAndCheckBoxes(false);
+    }
+
+    private void cancelButtonActionPerformed() {
+        if (isScoring()) {
+            scoringWorker.cancel(true);
+            log.debug("Cancelled scoring of concept map");
+        }
+    }
+
+    private boolean isScoring() {
+        return scoringWorker != null && !scoringWorker.isDone();
+    }
+
+    private void showError(InvalidDataException e) {
+        JOptionPane.showMessageDialog(
+                this,
+                conceptMapFormatter.formatError(e),
+                translations.get("error"),
+                JOptionPane.ERROR_MESSAGE
+        );
+    }
+
+    /**
+     * Parses and scores concept maps in the background, publishing either started {@link ScoringMethod}s or
+     * formatted sections as they become available.
+     */
+    private class ScoringWorker extends SwingWorker<Void, Object> {
+
+        private final String studentPath;
+        private final String teacherPath;
+        private final Set<ScoringMethod> methods;
+
+        ScoringWorker(String studentPath, String teacherPath, Set<ScoringMethod> methods) {
+            this.studentPath = studentPath;
+            this.teacherPath = teacherPath;
+            this.methods = methods;
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            var studentConceptMap = conceptMapCache.parse(studentPath);
+            var scoringKey = teacherPath != null ?
+                    Optional.of(new ScoringKey(conceptMapCache.parse(teacherPath))) :
+                    Optional.<ScoringKey>empty();
+            conceptMapScorer.scoreAgainst(studentConceptMap, scoringKey, methods, new ConceptMapScorer.Listener() {
+
+                @Override
+                public void methodStarted(ScoringMethod method) {
+                    publish(method);
                 }
-                if (importanceIndexesCheckBox.isSelected()) {
-                    strings.add(conceptMapFormatter.formatSimilarityDegree(
-                            "importance-indexes", comparator::compareUsingImportanceIndexes));
+
+                @Override
+                public void sectionScored(String section) {
+                    publish(section);
                 }
-                if (propositionChainsCheckBox.isSelected()) {
-                    strings.add(conceptMapFormatter.formatSimilarityDegree(
-                            "proposition-chains", comparator::compareUsingPropositionChains));
+            });
+            return null;
+        }
+
+        @Override
+        protected void process(List<Object> chunks) {
+            if (isCancelled()) return;
+            for (var chunk : chunks) {
+                if (chunk instanceof ScoringMethod) {
+                    progressBar.setValue(progressBar.getValue() + 1);
+                    progressBar.setString(translations.get("method-" + ((ScoringMethod) chunk).key));
+                } else {
+                    if (!scoreTextArea.getText().isEmpty()) scoreTextArea.append("\n\n");
+                    scoreTextArea.append((String) chunk);
+                    scoreTextArea.setEnabled(true);
                 }
-                if (errorAnalysisCheckBox.isSelected()) {
-                    strings.add(conceptMapFormatter.formatSimilarityDegrees(
-                            "error-analysis", comparator::compareUsingErrorAnalysis));
+            }
+        }
+
+        @Override
+        protected void done() {
+            cancelButton.setEnabled(false);
+            updateScoreButtonAndCheckBoxes(false);
+            try {
+                get();
+                progressBar.setValue(progressBar.getMaximum());
+                progressBar.setString("");
+                log.debug("Scored concept map");
+            } catch (CancellationException e) {
+                progressBar.setString(translations.get("scoring-cancelled"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.debug("Issue while scoring concept map", e.getCause());
+                progressBar.setValue(0);
+                progressBar.setString("");
+                if (e.getCause() instanceof InvalidDataException) {
+                    showError((InvalidDataException) e.getCause());
+                } else {
+                    JOptionPane.showMessageDialog(
+                            ConceptMapScorerFrame.this,
+                            translations.get("invalid-file"),
+                            translations.get("error"),
+                            JOptionPane.ERROR_MESSAGE
+                    );
                 }
-            });
-            scoreTextArea.setText(String.join("\n\n", strings));
-            scoreTextArea.setEnabled(true);
-            log.debug("Scored concept map");
-        } catch (InvalidDataException e) {
-            log.debug("Issue while scoring concept map", e);
-            var message = e.fileName != null ?
-                    translations.format(e.errorCode.translationKey, e.fileName) :
-                    translations.get(e.errorCode.translationKey);
-            JOptionPane.showMessageDialog(
-                    this,
-                    message,
-                    translations.get("error"),
-                    JOptionPane.ERROR_MESSAGE
-            );
-        } catch (Exception e) {
-            log.debug("Issue while scoring concept map", e);
-            JOptionPane.showMessageDialog(
-                    this,
-                    translations.get("invalid-file"),
-                    translations.get("error"),
-                    JOptionPane.ERROR_MESSAGE
-            );
+            }
         }
     }
 
@@ -291,6 +395,8 @@ public class ConceptMapScorerFrame extends JFrame {
                 cb.setEnabled(selectedEnabled);
             });
         }
-        scoreButton.setEnabled(!studentText.isBlank() && checkBoxes.stream().anyMatch(JCheckBox::isSelected));
+        scoreButton.setEnabled(!isScoring() &&
+                !studentText.isBlank() &&
+                checkBoxes.stream().anyMatch(JCheckBox::isSelected));
     }
 }
@@ -0,0 +1,99 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.logic.ScoringMethod;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchOptionsTest {
+
+    @Test
+    void parseValid() {
+        var options = BatchOptions.parse(
+                "--teacher", "teacher.xml",
+                "--methods", "closeness-indexes,error-analysis",
+                "--threads", "3",
+                "students", "other/*.xml"
+        );
+        assertEquals("teacher.xml", options.getTeacherPath());
+        assertEquals(List.of("students", "other/*.xml"), options.getStudentPatterns());
+        assertEquals(Set.of(ScoringMethod.CLOSENESS_INDEXES, ScoringMethod.ERROR_ANALYSIS), options.getMethods());
+        assertEquals(3, options.getThreads());
+        assertEquals(3, options.getParseThreads());
+        assertEquals(3, options.getScoreThreads());
+        assertEquals(12, options.getBufferSize());
+    }
+
+    @Test
+    void parseStages() {
+        var options = BatchOptions.parse(
+                "--teacher", "teacher.xml",
+                "--parse-threads", "2",
+                "--score-threads", "6",
+                "--buffer", "1",
+                "students"
+        );
+        assertEquals(2, options.getParseThreads());
+        assertEquals(6, options.getScoreThreads());
+        assertEquals(1, options.getBufferSize());
+        assertEquals(ResultFormat.TEXT, options.getFormat());
+        assertNull(options.getOutputPath());
+        assertEquals(Long.MAX_VALUE, options.getMaxPaths());
+        assertNull(options.getMaxTime());
+    }
+
+    @Test
+    void parseBudget() {
+        var options = BatchOptions.parse(
+                "--teacher", "teacher.xml",
+                "--max-paths", "1000",
+                "--max-time", "5",
+                "students"
+        );
+        assertEquals(1000, options.getMaxPaths());
+        assertEquals(Duration.ofSeconds(5), options.getMaxTime());
+
+        // Paths are counted in longs
+        var largeOptions = BatchOptions.parse("--teacher", "teacher.xml", "--max-paths", "10000000000", "students");
+        assertEquals(10_000_000_000L, largeOptions.getMaxPaths());
+    }
+
+    @Test
+    void parseCache() {
+        var options = BatchOptions.parse("--teacher", "teacher.xml", "--cache", "scores.cache", "students");
+        assertEquals("scores.cache", options.getCachePath());
+        assertNull(BatchOptions.parse("--teacher", "teacher.xml", "students").getCachePath());
+    }
+
+    @Test
+    void parseDefaults() {
+        var options = BatchOptions.parse("--teacher", "teacher.xml", "student.xml");
+        assertEquals(EnumSet.allOf(ScoringMethod.class), options.getMethods());
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.getThreads());
+    }
+
+    @Test
+    void parseInvalid() {
+        String[][] invalidArgs = {
+                {},
+                {"student.xml"},
+                {"--teacher", "teacher.xml"},
+                {"--teacher"},
+                {"--teacher", "teacher.xml", "--methods", "whatever", "student.xml"},
+                {"--teacher", "teacher.xml", "--threads", "0", "student.xml"},
+                {"--teacher", "teacher.xml", "--buffer", "0", "student.xml"},
+                {"--teacher", "teacher.xml", "--format", "xml", "student.xml"},
+                {"--teacher", "teacher.xml", "--unknown", "student.xml"}
+        };
+        for (var args : invalidArgs) {
+            assertThrows(IllegalArgumentException.class, () -> BatchOptions.parse(args));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.Translations;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchScorerTest {
+
+    private static final String SAMPLES = "src/test/resources/samples";
+
+    private final Translations translations = new Translations();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void runDirectory() throws Exception {
+        var options = BatchOptions.parse("--teacher", SAMPLES + "/similar-map-1.xml", "--threads", "2", SAMPLES);
+        var output = new ByteArrayOutputStream();
+        var summary = new BatchScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Invalid concept map is reported without stopping the run
+        assertEquals(9, summary.getScored());
+        assertEquals(1, summary.getFailed());
+
+        var text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("similar-map-7.xml"));
+        assertTrue(text.contains(translations.format("concept-map-no-relationships", "concept-map-invalid.xml")));
+    }
+
+    @Test
+    void runGlob() throws Exception {
+        var options = BatchOptions.parse("--teacher", SAMPLES + "/similar-map-1.xml", SAMPLES + "/similar-*.xml");
+        var summary = new BatchScorer(translations, options).run(new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(7, summary.getScored());
+        assertEquals(0, summary.getFailed());
+    }
+
+    @Test
+    void runBackPressured() throws Exception {
+
+        // A single buffered concept map per stage still lets every concept map through
+        var options = BatchOptions.parse(
+                "--teacher", SAMPLES + "/similar-map-1.xml",
+                "--parse-threads", "3",
+                "--score-threads", "1",
+                "--buffer", "1",
+                SAMPLES
+        );
+        var output = new ByteArrayOutputStream();
+        var summary = new BatchScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+        assertEquals(9, summary.getScored());
+        assertEquals(1, summary.getFailed());
+        var text = output.toString(StandardCharsets.UTF_8);
+        for (var i = 1; i <= 7; i++) {
+            assertTrue(text.contains("similar-map-" + i + ".xml"));
+        }
+    }
+
+    @Test
+    void runJsonLines() throws Exception {
+        var outputPath = directory.resolve("results.jsonl");
+        var options = BatchOptions.parse(
+                "--teacher", SAMPLES + "/similar-map-1.xml",
+                "--format", "jsonl",
+                "--output", outputPath.toString(),
+                SAMPLES
+        );
+        var output = new ByteArrayOutputStream();
+        new BatchScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        var lines = Files.readAllLines(outputPath);
+        assertEquals(10, lines.size());
+        for (var i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).startsWith("{\"sequence\":" + (i + 1) + ","));
+        }
+        assertTrue(lines.stream().anyMatch(l -> l.contains("concept-map-invalid.xml\",\"error\":\"CONCEPT_MAP_NO_RELATIONSHIPS\"")));
+        assertTrue(lines.stream().anyMatch(l -> l.contains("\"error-analysis-weighted\":")));
+
+        // Only the summary is printed
+        assertEquals(1, output.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    @Test
+    void runExceeded() throws Exception {
+
+        // Proposition chains of the teacher concept map cannot be compared within a single path
+        var options = BatchOptions.parse(
+                "--teacher", SAMPLES + "/similar-map-1.xml",
+                "--methods", "closeness-indexes,proposition-chains",
+                "--max-paths", "1",
+                "--format", "jsonl",
+                SAMPLES + "/similar-map-4.xml"
+        );
+        var output = new ByteArrayOutputStream();
+        var summary = new BatchScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+        assertEquals(1, summary.getScored());
+        assertEquals(0, summary.getFailed());
+        assertEquals(1, summary.getExceeded());
+
+        var record = output.toString(StandardCharsets.UTF_8).lines().findFirst().orElseThrow();
+        assertTrue(record.contains("\"exceeded\":\"proposition-chains\""));
+        assertTrue(record.contains("\"closeness-indexes\":"));
+        assertFalse(record.contains("\"proposition-chains\":"));
+    }
+
+    @Test
+    void runCached() throws Exception {
+        var cachePath = directory.resolve("scores.cache");
+        var options = BatchOptions.parse(
+                "--teacher", SAMPLES + "/similar-map-1.xml",
+                "--cache", cachePath.toString(),
+                "--threads", "1",
+                SAMPLES
+        );
+        var output = new ByteArrayOutputStream();
+        new BatchScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+        var cacheSize = Files.size(cachePath);
+        assertTrue(cacheSize > 0);
+
+        // Results of the second run are all found in the cache, so nothing is written to it
+        var cachedOutput = new ByteArrayOutputStream();
+        new BatchScorer(translations, options).run(new PrintStream(cachedOutput, true, StandardCharsets.UTF_8));
+        assertEquals(cacheSize, Files.size(cachePath));
+
+        // Only the elapsed time in the summary differs
+        var text = output.toString(StandardCharsets.UTF_8);
+        var cachedText = cachedOutput.toString(StandardCharsets.UTF_8);
+        assertEquals(
+                text.substring(0, text.lastIndexOf("Scored")),
+                cachedText.substring(0, cachedText.lastIndexOf("Scored"))
+        );
+    }
+
+    @Test
+    void runInvalidTeacher() {
+        var options = BatchOptions.parse("--teacher", SAMPLES + "/whatever.xml", SAMPLES);
+        assertThrows(
+                InvalidDataException.class,
+                () -> new BatchScorer(translations, options).run(new PrintStream(new ByteArrayOutputStream()))
+        );
+    }
+}
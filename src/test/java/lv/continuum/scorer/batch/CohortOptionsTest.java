@@ -0,0 +1,62 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.logic.ScoringMethod;
+import lv.continuum.scorer.logic.SimilarityMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CohortOptionsTest {
+
+    @Test
+    void parseValid() {
+        var options = CohortOptions.parse(
+                "--methods", "closeness-indexes,error-analysis",
+                "--threads", "2",
+                "--top", "3",
+                "--max-memory", "16",
+                "--format", "csv",
+                "--output", "neighbours.csv",
+                "students/*.xml",
+                "late.xml"
+        );
+        assertEquals(List.of("students/*.xml", "late.xml"), options.getStudentPatterns());
+        assertEquals(Set.of(ScoringMethod.CLOSENESS_INDEXES, ScoringMethod.ERROR_ANALYSIS), options.getMethods());
+        assertEquals(2, options.getThreads());
+        assertEquals(3, options.getTop());
+        assertEquals(16L * 1024 * 1024, options.getMaxMemoryBytes());
+        assertEquals(ResultFormat.CSV, options.getFormat());
+        assertEquals("neighbours.csv", options.getOutputPath());
+    }
+
+    @Test
+    void parseDefaults() {
+        var options = CohortOptions.parse("--methods", "all", "students");
+        assertEquals(SimilarityMatrix.METHODS, options.getMethods());
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.getThreads());
+        assertEquals(5, options.getTop());
+        assertEquals(SimilarityMatrix.DEFAULT_MAX_MEMORY_BYTES, options.getMaxMemoryBytes());
+        assertEquals(ResultFormat.TEXT, options.getFormat());
+        assertNull(options.getOutputPath());
+    }
+
+    @Test
+    void parseInvalid() {
+        String[][] invalidArgs = {
+                {},
+                {"--top", "3"},
+                {"--methods", "proposition-chains", "students"},
+                {"--top", "0", "students"},
+                {"--max-memory", "students"},
+                {"--teacher", "teacher.xml", "students"}
+        };
+        for (var args : invalidArgs) {
+            assertThrows(IllegalArgumentException.class, () -> CohortOptions.parse(args));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.common.Translations;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CohortScorerTest {
+
+    private static final String SAMPLES = "src/test/resources/samples";
+
+    private final Translations translations = new Translations();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void runDirectory() throws Exception {
+        var options = CohortOptions.parse("--top", "2", "--threads", "2", SAMPLES);
+        var output = new ByteArrayOutputStream();
+        var summary = new CohortScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Invalid concept map is reported and left out of the comparisons
+        assertEquals(9, summary.getCompared());
+        assertEquals(1, summary.getFailed());
+
+        var text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains(translations.format("concept-map-no-relationships", "concept-map-invalid.xml")));
+        assertTrue(text.contains(translations.get("method-closeness-indexes") + ":\n1. " + SAMPLES));
+        assertTrue(text.contains(translations.get("method-error-analysis") + ":\n"));
+        assertFalse(text.contains(translations.get("method-proposition-chains")));
+        assertTrue(text.contains(translations.format("cohort-summary", 9, 10, 0D).substring(0, 20)));
+    }
+
+    @Test
+    void runCsv() throws Exception {
+        var outputPath = directory.resolve("neighbours.csv");
+        var options = CohortOptions.parse(
+                "--methods", "closeness-indexes",
+                "--top", "3",
+                "--format", "csv",
+                "--output", outputPath.toString(),
+                SAMPLES + "/similar-*.xml",
+                SAMPLES + "/concept-map-invalid.xml"
+        );
+        var output = new ByteArrayOutputStream();
+        new CohortScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Header, 3 neighbours of each of 7 student concept maps and the invalid concept map
+        var lines = Files.readAllLines(outputPath);
+        assertEquals(1 + 7 * 3 + 1, lines.size());
+        assertEquals("file,error,method,rank,neighbour,similarity", lines.get(0));
+        assertTrue(lines.get(1).startsWith(SAMPLES + "/similar-map-1.xml,,closeness-indexes,1," + SAMPLES));
+        assertEquals(SAMPLES + "/concept-map-invalid.xml,CONCEPT_MAP_NO_RELATIONSHIPS,,,,", lines.get(22));
+
+        // Only the summary is printed
+        assertEquals(1, output.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    @Test
+    void runJsonLines() throws Exception {
+        var options = CohortOptions.parse("--format", "jsonl", "--top", "1", SAMPLES + "/similar-*.xml");
+        var output = new ByteArrayOutputStream();
+        var summary = new CohortScorer(translations, options).run(new PrintStream(output, true, StandardCharsets.UTF_8));
+        assertEquals(0, summary.getFailed());
+
+        var lines = output.toString(StandardCharsets.UTF_8).lines().toArray(String[]::new);
+        assertEquals(7, lines.length);
+        assertTrue(lines[0].startsWith("{\"file\":\"" + SAMPLES + "/similar-map-1.xml\",\"closeness-indexes\":[{\"file\""));
+        assertTrue(lines[0].contains("\"error-analysis\":[{\"file\""));
+    }
+}
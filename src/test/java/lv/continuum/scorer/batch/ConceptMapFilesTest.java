@@ -0,0 +1,31 @@
+package lv.continuum.scorer.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConceptMapFilesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resolve() throws IOException {
+        var anna = Files.createFile(directory.resolve("anna.xml"));
+        var annaSnapshot = Files.createFile(directory.resolve("anna.xml.cmap"));
+        var berta = Files.createFile(directory.resolve("berta.xml"));
+        var cilda = Files.createFile(directory.resolve("cilda.xml.cmap"));
+        Files.createFile(directory.resolve("notes.txt"));
+
+        // XML files that have snapshots are resolved once, as snapshots
+        assertEquals(List.of(annaSnapshot, berta, cilda), ConceptMapFiles.resolve(List.of(directory.toString())));
+        assertEquals(List.of(annaSnapshot), ConceptMapFiles.resolve(List.of(directory + "/anna*")));
+        assertEquals(List.of(anna, berta), ConceptMapFiles.resolveXml(List.of(directory.toString())));
+    }
+}
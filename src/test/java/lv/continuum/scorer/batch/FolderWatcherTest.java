@@ -0,0 +1,143 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.Translations;
+import lv.continuum.scorer.logic.ConceptMapComparator;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FolderWatcherTest {
+
+    private static final Path SAMPLES = Path.of("src/test/resources/samples");
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final Translations translations = new Translations();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void scoreNextToInput() throws Exception {
+        var folder = Files.createDirectory(directory.resolve("students"));
+        var options = WatchOptions.parse(
+                "--folder", folder + "=" + SAMPLES.resolve("similar-map-1.xml"),
+                "--methods", "closeness-indexes",
+                "--debounce", "50"
+        );
+        try (var watcher = new FolderWatcher(translations, options)) {
+            watcher.start();
+            Files.copy(SAMPLES.resolve("similar-map-2.xml"), folder.resolve("anna.xml"));
+            var resultPath = folder.resolve("anna.xml.txt");
+            awaitFile(resultPath);
+            var parser = new ConceptMapParser();
+            var similarityDegree = new ConceptMapComparator(
+                    parser.parse(SAMPLES.resolve("similar-map-2.xml").toString()),
+                    parser.parse(SAMPLES.resolve("similar-map-1.xml").toString())
+            ).compareUsingClosenessIndexes();
+            assertEquals(
+                    translations.format("similarity-closeness-indexes", similarityDegree) + "\n",
+                    Files.readString(resultPath)
+            );
+        }
+    }
+
+    @Test
+    void scoreToOutput() throws Exception {
+        var folder = Files.createDirectory(directory.resolve("students"));
+        var outputPath = directory.resolve("results.jsonl");
+        var options = WatchOptions.parse(
+                "--folder", folder + "=" + SAMPLES.resolve("similar-map-1.xml"),
+                "--methods", "closeness-indexes",
+                "--debounce", "300",
+                "--format", "jsonl",
+                "--output", outputPath.toString()
+        );
+        try (var watcher = new FolderWatcher(translations, options)) {
+            watcher.start();
+
+            // The file is written in two parts, but scored only once, when it is complete
+            var bytes = Files.readAllBytes(SAMPLES.resolve("similar-map-2.xml"));
+            var path = folder.resolve("anna.xml");
+            Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+            Thread.sleep(100);
+            Files.write(path, Arrays.copyOfRange(bytes, bytes.length / 2, bytes.length), StandardOpenOption.APPEND);
+            Files.copy(SAMPLES.resolve("concept-map-invalid.xml"), folder.resolve("invalid.xml"));
+
+            var lines = awaitLines(outputPath, 2);
+            assertTrue(lines.stream().anyMatch(l -> l.contains("anna.xml\",\"closeness-indexes\":")));
+            assertTrue(lines.stream().anyMatch(l -> l.contains("invalid.xml\",\"error\":\"CONCEPT_MAP_NO_RELATIONSHIPS\"")));
+
+            // A change that is reported without changing the file does not score it again
+            Files.setLastModifiedTime(path, Files.getLastModifiedTime(path));
+            Files.copy(SAMPLES.resolve("similar-map-3.xml"), folder.resolve("berta.xml"));
+            assertEquals(3, awaitLines(outputPath, 3).size());
+            Thread.sleep(500);
+            assertEquals(3, Files.readAllLines(outputPath).size());
+        }
+    }
+
+    @Test
+    void skipTeacher() throws Exception {
+        var folder = Files.createDirectory(directory.resolve("physics"));
+        var teacherPath = Files.copy(SAMPLES.resolve("similar-map-1.xml"), folder.resolve("teacher.xml"));
+        var options = WatchOptions.parse(
+                "--folder", folder + "=" + folder.resolve("..").resolve("physics/teacher.xml"),
+                "--methods", "closeness-indexes",
+                "--debounce", "50"
+        );
+        try (var watcher = new FolderWatcher(translations, options)) {
+            watcher.start();
+
+            // The teacher concept map in the watched folder is changed before the student one, but only the student one
+            // is scored
+            Files.setLastModifiedTime(teacherPath, FileTime.fromMillis(System.currentTimeMillis()));
+            Files.copy(SAMPLES.resolve("similar-map-2.xml"), folder.resolve("anna.xml"));
+            awaitFile(folder.resolve("anna.xml.txt"));
+            Thread.sleep(200);
+            assertFalse(Files.exists(folder.resolve("teacher.xml.txt")));
+        }
+    }
+
+    @Test
+    void startInvalid() {
+        var missingFolder = WatchOptions.parse(
+                "--folder", directory.resolve("missing") + "=" + SAMPLES.resolve("similar-map-1.xml"));
+        assertThrows(NoSuchFileException.class, () -> new FolderWatcher(translations, missingFolder).start());
+
+        var invalidTeacher = WatchOptions.parse(
+                "--folder", directory + "=" + SAMPLES.resolve("concept-map-invalid.xml"));
+        assertThrows(InvalidDataException.class, () -> new FolderWatcher(translations, invalidTeacher).start());
+    }
+
+    private static void awaitFile(Path path) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!Files.exists(path)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + path);
+            Thread.sleep(20);
+        }
+    }
+
+    private static List<String> awaitLines(Path path, int count) throws InterruptedException, IOException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            if (Files.exists(path)) {
+                var lines = Files.readAllLines(path);
+                if (lines.size() >= count) return lines;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + path);
+            Thread.sleep(20);
+        }
+    }
+}
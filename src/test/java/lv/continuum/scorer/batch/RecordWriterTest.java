@@ -0,0 +1,138 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordWriterTest {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Test
+    void writeJsonLines() throws Exception {
+        try (var writer = new RecordWriter(Channels.newChannel(output), ResultFormat.JSONL, Duration.ofHours(1))) {
+            assertEquals(1, writer.write(ResultRecords.failed(Path.of("a.xml"), ErrorCode.INVALID_XML)));
+            assertEquals(2, writer.write(record("b.xml")));
+
+            // Records are buffered until flushed
+            assertEquals(0, output.size());
+        }
+        assertEquals(
+                "{\"sequence\":1,\"file\":\"a.xml\",\"error\":\"INVALID_XML\"}\n" +
+                        "{\"sequence\":2,\"file\":\"b.xml\",\"concepts\":7,\"closeness-indexes\":0.5}\n",
+                output.toString(StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    void writeCsv() throws Exception {
+        try (var writer = new RecordWriter(Channels.newChannel(output), ResultFormat.CSV, Duration.ofHours(1))) {
+            writer.write(record("with, comma \"quoted\".xml"));
+        }
+        var lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(String.join(",", ResultRecords.COLUMNS), lines[0]);
+        assertTrue(lines[1].startsWith("1,\"with, comma \"\"quoted\"\".xml\",,7,"));
+        assertEquals(ResultRecords.COLUMNS.size(), lines[1].split(",", -1).length - 1);
+    }
+
+    @Test
+    void writeFlushedPeriodically() throws Exception {
+        try (var writer = new RecordWriter(Channels.newChannel(output), ResultFormat.JSONL, Duration.ofMillis(10))) {
+            writer.write(record("a.xml"));
+            var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (output.size() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(output.size() > 0);
+        }
+    }
+
+    @Test
+    void closeWhileFlushing() throws Exception {
+        var channel = new BlockingChannel();
+        var writer = new RecordWriter(channel, ResultFormat.JSONL, Duration.ofMillis(10));
+        writer.write(record("a.xml"));
+        assertTrue(channel.writing.await(5, TimeUnit.SECONDS));
+
+        var closing = new Thread(() -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        closing.start();
+        Thread.sleep(50);
+        channel.released.countDown();
+        closing.join(5000);
+        assertFalse(closing.isAlive());
+
+        // The periodic flush has not been interrupted, so the channel is still open and the record is written
+        assertTrue(channel.isOpen());
+        assertTrue(channel.output.toString(StandardCharsets.UTF_8).contains("a.xml"));
+    }
+
+    private static LinkedHashMap<String, Object> record(String file) {
+        var record = new LinkedHashMap<String, Object>();
+        record.put(ResultRecords.FILE, file);
+        record.put("concepts", 7L);
+        record.put("closeness-indexes", 0.5);
+        return record;
+    }
+
+    /**
+     * Channel whose writes block until released, and which is closed if a writing thread is interrupted, the same
+     * way as interruptible channels such as {@link java.nio.channels.FileChannel}.
+     */
+    private static class BlockingChannel implements WritableByteChannel {
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private volatile boolean open = true;
+
+        @Override
+        public synchronized int write(ByteBuffer buffer) throws IOException {
+            if (!open) throw new ClosedChannelException();
+            writing.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                open = false;
+                throw new ClosedByInterruptException();
+            }
+            var length = buffer.remaining();
+            var bytes = new byte[length];
+            buffer.get(bytes);
+            output.write(bytes);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
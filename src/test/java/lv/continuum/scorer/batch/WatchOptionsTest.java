@@ -0,0 +1,66 @@
+package lv.continuum.scorer.batch;
+
+import lv.continuum.scorer.logic.ScoringMethod;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WatchOptionsTest {
+
+    @Test
+    void parseValid() {
+        var options = WatchOptions.parse(
+                "--folder", "physics=physics/teacher.xml",
+                "--folder", "biology=biology/teacher.xml",
+                "--methods", "closeness-indexes",
+                "--threads", "2",
+                "--debounce", "200",
+                "--format", "jsonl",
+                "--output", "results.jsonl",
+                "--cache", "scores.cache"
+        );
+        assertEquals(
+                Map.of("physics", "physics/teacher.xml", "biology", "biology/teacher.xml"),
+                options.getTeacherPaths()
+        );
+        assertEquals(Set.of(ScoringMethod.CLOSENESS_INDEXES), options.getMethods());
+        assertEquals(2, options.getThreads());
+        assertEquals(Duration.ofMillis(200), options.getDebounce());
+        assertEquals(ResultFormat.JSONL, options.getFormat());
+        assertEquals("results.jsonl", options.getOutputPath());
+        assertEquals("scores.cache", options.getCachePath());
+    }
+
+    @Test
+    void parseDefaults() {
+        var options = WatchOptions.parse("--folder", "students=teacher.xml");
+        assertEquals(EnumSet.allOf(ScoringMethod.class), options.getMethods());
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.getThreads());
+        assertEquals(Duration.ofMillis(500), options.getDebounce());
+        assertEquals(ResultFormat.TEXT, options.getFormat());
+        assertNull(options.getOutputPath());
+        assertNull(options.getCachePath());
+    }
+
+    @Test
+    void parseInvalid() {
+        String[][] invalidArgs = {
+                {},
+                {"--folder"},
+                {"--folder", "students"},
+                {"--folder", "=teacher.xml"},
+                {"--folder", "students=teacher.xml", "--debounce", "0"},
+                {"--folder", "students=teacher.xml", "student.xml"}
+        };
+        for (var args : invalidArgs) {
+            assertThrows(IllegalArgumentException.class, () -> WatchOptions.parse(args));
+        }
+    }
+}
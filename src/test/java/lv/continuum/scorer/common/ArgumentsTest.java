@@ -0,0 +1,37 @@
+package lv.continuum.scorer.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ArgumentsTest {
+
+    @Test
+    void value() {
+        String[] args = {"--threads", "4"};
+        assertEquals("4", Arguments.value(args, 1));
+        assertThrows(IllegalArgumentException.class, () -> Arguments.value(args, 2));
+    }
+
+    @Test
+    void parsePositive() {
+        assertEquals(4, Arguments.parsePositive("4"));
+        assertThrows(IllegalArgumentException.class, () -> Arguments.parsePositive("0"));
+        assertThrows(IllegalArgumentException.class, () -> Arguments.parsePositive("x"));
+    }
+
+    @Test
+    void parsePositiveLong() {
+        assertEquals(10_000_000_000L, Arguments.parsePositiveLong("10000000000"));
+        assertThrows(IllegalArgumentException.class, () -> Arguments.parsePositiveLong("0"));
+        assertThrows(IllegalArgumentException.class, () -> Arguments.parsePositiveLong("99999999999999999999"));
+    }
+
+    @Test
+    void parseNonNegative() {
+        assertEquals(0, Arguments.parseNonNegative("0"));
+        assertThrows(IllegalArgumentException.class, () -> Arguments.parseNonNegative("-1"));
+        assertThrows(IllegalArgumentException.class, () -> Arguments.parseNonNegative(""));
+    }
+}
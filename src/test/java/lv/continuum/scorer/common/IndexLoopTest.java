@@ -0,0 +1,48 @@
+package lv.continuum.scorer.common;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexLoopTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void afterEach() {
+        pool.shutdown();
+        Thread.interrupted(); // Clear interrupted status
+    }
+
+    @Test
+    void run() {
+        var size = 1000;
+        var sequential = new long[size];
+        var parallel = new long[size];
+        assertEquals(size, IndexLoop.sequential().run(size, Budget.UNLIMITED, i -> sequential[i] = (long) i * i));
+        assertEquals(size, IndexLoop.parallel(pool, Thread.currentThread())
+                .run(size, Budget.UNLIMITED, i -> parallel[i] = (long) i * i));
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    void runExpired() {
+        var expired = Budget.of(Long.MAX_VALUE, Duration.ZERO);
+        assertEquals(0, IndexLoop.sequential().run(10, expired, i -> fail()));
+        assertEquals(0, IndexLoop.parallel(pool, Thread.currentThread()).run(10, expired, i -> fail()));
+    }
+
+    @Test
+    void runInterrupted() {
+        Thread.currentThread().interrupt();
+        var loop = IndexLoop.parallel(pool, Thread.currentThread());
+        assertThrows(CancellationException.class, () -> loop.run(10, Budget.UNLIMITED, i -> {
+        }));
+        assertThrows(CancellationException.class, loop::check);
+    }
+}
@@ -0,0 +1,28 @@
+package lv.continuum.scorer.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonTest {
+
+    @Test
+    void write() {
+        var object = new LinkedHashMap<String, Object>();
+        object.put("text", "Line \"one\"\nLine\ttwo\u0001");
+        object.put("count", 3L);
+        object.put("similarity", 0.5);
+        object.put("undefined", Double.NaN);
+        object.put("cycles", false);
+        object.put("values", Arrays.asList(1, null, List.of()));
+        assertEquals(
+                "{\"text\":\"Line \\\"one\\\"\\nLine\\ttwo\\u0001\",\"count\":3,\"similarity\":0.5," +
+                        "\"undefined\":null,\"cycles\":false,\"values\":[1,null,[]]}",
+                Json.write(object)
+        );
+    }
+}
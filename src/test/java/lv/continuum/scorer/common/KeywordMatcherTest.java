@@ -0,0 +1,55 @@
+package lv.continuum.scorer.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordMatcherTest {
+
+    @Test
+    void containsAny() {
+        var matcher = new KeywordMatcher(List.of("he", "she", "his", "hers", "piemēr"));
+        assertTrue(matcher.containsAny("ushers"));
+        assertTrue(matcher.containsAny("HIS"));
+        assertTrue(matcher.containsAny("ir PIEMĒRS"));
+        assertTrue(matcher.containsAny("line\nhe"));
+        assertFalse(matcher.containsAny("piemers"));
+        assertFalse(matcher.containsAny("hi s"));
+        assertFalse(matcher.containsAny(""));
+        assertFalse(new KeywordMatcher(List.of()).containsAny("anything"));
+    }
+
+    @Test
+    void containsAnyOverlapping() {
+
+        // The failure link of "abcd" after "abc" leads to "bc", which must be found as well
+        var matcher = new KeywordMatcher(List.of("abcd", "bce"));
+        assertTrue(matcher.containsAny("abce"));
+        assertFalse(matcher.containsAny("abc"));
+    }
+
+    @Test
+    void constructInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new KeywordMatcher(List.of("valid", "")));
+    }
+
+    @Test
+    void load() {
+        var matcher = KeywordMatcher.load("examples", List.of("keywords/lv.properties", "keywords/en.properties"));
+        assertTrue(matcher.containsAny("ir eksemplārs"));
+        assertTrue(matcher.containsAny("is an Example of"));
+        assertFalse(matcher.containsAny("contains"));
+        assertThrows(IllegalStateException.class, () -> KeywordMatcher.load("examples", List.of("invalid.properties")));
+    }
+
+    @Test
+    void loadLanguages() {
+        var matcher = KeywordMatcher.loadLanguages("examples", "keywords");
+        assertTrue(matcher.containsAny("ir eksemplārs"));
+        assertTrue(matcher.containsAny("is an Example of"));
+        assertFalse(matcher.containsAny("contains"));
+        assertThrows(IllegalStateException.class, () -> KeywordMatcher.loadLanguages("examples", "invalid"));
+    }
+}
@@ -0,0 +1,26 @@
+package lv.continuum.scorer.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LazyTest {
+
+    @Test
+    void constructInvalid() {
+        assertThrows(NullPointerException.class, () -> new Lazy<>(null));
+    }
+
+    @Test
+    void getCalculatesOnce() {
+        var calculations = new AtomicInteger();
+        var lazy = new Lazy<>(() -> "value " + calculations.incrementAndGet());
+        assertEquals(0, calculations.get());
+        assertEquals("value 1", lazy.get());
+        assertEquals("value 1", lazy.get());
+        assertEquals(1, calculations.get());
+    }
+}
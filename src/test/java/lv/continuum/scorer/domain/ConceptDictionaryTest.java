@@ -0,0 +1,78 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptDictionaryTest {
+
+    private final ConceptDictionary dictionary = new ConceptDictionary();
+
+    @Test
+    void concept() throws InvalidDataException {
+        var concept = dictionary.concept("Water");
+        assertSame(concept, dictionary.concept(" Water "));
+        assertEquals(new Concept("Water"), concept);
+        assertEquals("Water", concept.name);
+
+        // Different names of the same id
+        var otherConcept = dictionary.concept("water");
+        assertNotSame(concept, otherConcept);
+        assertEquals(concept, otherConcept);
+        assertEquals("water", otherConcept.name);
+        assertSame(concept.id, otherConcept.id);
+
+        assertNotEquals(concept, dictionary.concept("Ice"));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void conceptInvalid() {
+        String[] invalidNames = {" ", "", null};
+        for (var invalidName : invalidNames) {
+            assertThrows(InvalidDataException.class, () -> dictionary.concept(invalidName));
+        }
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void conceptConcurrently() throws Exception {
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var tasks = new ArrayList<Callable<Concept>>();
+            for (var i = 0; i < 64; i++) {
+                var name = "Concept " + (i % 4);
+                tasks.add(() -> dictionary.concept(name));
+            }
+            var concepts = new ArrayList<Concept>();
+            for (var future : executor.invokeAll(tasks)) {
+                concepts.add(future.get());
+            }
+            for (var i = 4; i < concepts.size(); i++) {
+                assertSame(concepts.get(i % 4), concepts.get(i));
+            }
+            assertEquals(4, dictionary.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void parse() throws Exception {
+        var parser = new ConceptMapParser(dictionary);
+        var conceptMap1 = parser.parse("src/test/resources/samples/similar-map-1.xml");
+        var conceptMap2 = parser.parse("src/test/resources/samples/similar-map-3.xml");
+        assertEquals(new ConceptMapParser().parse("src/test/resources/samples/similar-map-1.xml"), conceptMap1);
+        for (var c = 0; c < conceptMap1.graph.conceptCount(); c++) {
+            var concept = conceptMap1.graph.concept(c);
+            var index = conceptMap2.graph.indexOf(concept);
+            if (index >= 0) assertSame(concept, conceptMap2.graph.concept(index));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.TestData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptGraphTest {
+
+    private final TestData data = TestData.getInstance();
+
+    @Test
+    void indexes() throws Exception {
+        var graph = data.conceptMapWithLevels.graph;
+        assertEquals(7, graph.conceptCount());
+        assertEquals(6, graph.relationshipCount());
+
+        // Concepts are indexed in the order of their ids
+        assertEquals(data.a, graph.concept(0));
+        assertEquals(data.g, graph.concept(6));
+        assertEquals(2, graph.indexOf(data.c));
+        assertEquals(-1, graph.indexOf(new Concept("Z")));
+
+        // Equal concepts are indexed in the same way in similar concept maps
+        for (var c = 0; c < graph.conceptCount(); c++) {
+            assertEquals(graph.concept(c), data.conceptMapWithCycles.graph.concept(c));
+        }
+    }
+
+    @Test
+    void rows() {
+        var graph = data.conceptMapWithCycles.graph;
+        var a = graph.indexOf(data.a);
+        var e = graph.indexOf(data.e);
+        assertEquals(List.of(data.a, data.b), outgoing(graph, a));
+        assertEquals(List.of(data.d, data.f, data.g), incoming(graph, e));
+        assertEquals(List.of(data.a, data.b, data.c), neighbours(graph, a));
+        assertEquals(2, graph.outgoingCount(a));
+        assertEquals(3, graph.incomingCount(e));
+        assertEquals(3, graph.neighbourCount(e));
+    }
+
+    @Test
+    void containsRelationship() {
+        var graph = data.conceptMapWithCycles.graph;
+        assertTrue(graph.containsRelationship(graph.indexOf(data.a), graph.indexOf(data.a)));
+        assertTrue(graph.containsRelationship(graph.indexOf(data.g), graph.indexOf(data.e)));
+        assertFalse(graph.containsRelationship(graph.indexOf(data.e), graph.indexOf(data.g)));
+    }
+
+    private List<Concept> outgoing(ConceptGraph graph, int concept) {
+        var concepts = new ArrayList<Concept>();
+        for (var i = graph.outgoingStart(concept); i < graph.outgoingEnd(concept); i++) {
+            concepts.add(graph.concept(graph.outgoingTarget(i)));
+        }
+        return concepts;
+    }
+
+    private List<Concept> incoming(ConceptGraph graph, int concept) {
+        var concepts = new ArrayList<Concept>();
+        for (var i = graph.incomingStart(concept); i < graph.incomingEnd(concept); i++) {
+            concepts.add(graph.concept(graph.incomingTarget(i)));
+        }
+        return concepts;
+    }
+
+    private List<Concept> neighbours(ConceptGraph graph, int concept) {
+        var concepts = new ArrayList<Concept>();
+        for (var i = graph.neighbourStart(concept); i < graph.neighbourEnd(concept); i++) {
+            concepts.add(graph.concept(graph.neighbourTarget(i)));
+        }
+        return concepts;
+    }
+}
@@ -0,0 +1,74 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptMapSnapshotTest {
+
+    private static final Path SAMPLES = Path.of("src/test/resources/samples");
+
+    private final TestData data = TestData.getInstance();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndRead() throws Exception {
+        for (var fileName : new String[]{"concept-map-with-levels.xml", "concept-map-with-cycles.xml", "similar-map-1.xml"}) {
+            var xmlPath = SAMPLES.resolve(fileName);
+            var conceptMap = new ConceptMapParser().parse(xmlPath.toString());
+            var snapshotPath = directory.resolve(fileName + ConceptMapSnapshot.FILE_EXTENSION);
+            ConceptMapSnapshot.write(conceptMap, snapshotPath);
+
+            var snapshot = ConceptMapSnapshot.read(snapshotPath);
+            assertEquals(conceptMap, snapshot);
+            assertEquals(conceptMap.metrics(), snapshot.metrics());
+            assertTrue(Files.size(snapshotPath) < Files.size(xmlPath));
+        }
+    }
+
+    @Test
+    void writeAndReadNames() throws InvalidDataException {
+        var snapshot = ConceptMapSnapshot.read(ConceptMapSnapshot.write(data.conceptMapWithCycles), data.fileName);
+        assertEquals(data.conceptMapWithCycles, snapshot);
+        for (var relationship : data.relationshipsWithCycles) {
+            var name = snapshot.relationships.stream().filter(relationship::equals).findFirst().orElseThrow().name;
+            assertEquals(relationship.name, name);
+        }
+    }
+
+    @Test
+    void readInvalid() {
+        var bytes = ConceptMapSnapshot.write(data.conceptMapWithLevels).array();
+
+        // Truncated
+        assertInvalid(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+        assertInvalid(ByteBuffer.allocate(0));
+
+        // Unsupported version
+        var buffer = ByteBuffer.wrap(bytes.clone());
+        buffer.putInt(Integer.BYTES, ConceptMapSnapshot.VERSION + 1);
+        assertInvalid(buffer);
+
+        // Relationship referring to an unknown concept
+        buffer = ByteBuffer.wrap(bytes.clone());
+        buffer.putInt(bytes.length - 3 * data.relationshipsWithLevels.size() * Integer.BYTES, 100);
+        assertInvalid(buffer);
+    }
+
+    private void assertInvalid(ByteBuffer buffer) {
+        var e = assertThrows(InvalidDataException.class, () -> ConceptMapSnapshot.read(buffer, data.fileName));
+        assertEquals(ErrorCode.INVALID_FILE, e.errorCode);
+        assertEquals(data.fileName, e.fileName);
+    }
+}
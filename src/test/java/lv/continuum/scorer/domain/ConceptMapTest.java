@@ -1,10 +1,16 @@
 package lv.continuum.scorer.domain;
 
 import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.Budget;
 import lv.continuum.scorer.common.InvalidDataException;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -38,6 +44,33 @@ class ConceptMapTest {
         assertNotEquals(data.conceptMapWithLevels, data.conceptMapWithCycles);
     }
 
+    @Test
+    void fingerprint() throws InvalidDataException {
+        var fingerprint = data.conceptMapSimilar1.fingerprint();
+        assertEquals(64, fingerprint.length());
+
+        // Equal concept maps have equal fingerprints regardless of the order of their elements
+        var concepts = new LinkedHashSet<>(data.concepts);
+        var reversedRelationships = new ArrayList<>(data.relationshipsSimilar1);
+        Collections.reverse(reversedRelationships);
+        var conceptMap = new ConceptMap(concepts, new LinkedHashSet<>(reversedRelationships), data.fileNameWithLevels);
+        assertEquals(fingerprint, conceptMap.fingerprint());
+
+        assertNotEquals(fingerprint, data.conceptMapSimilar2.fingerprint());
+        assertNotEquals(fingerprint, data.conceptMapOther.fingerprint());
+
+        // Names of relationships are counted as examples, so only the named fingerprint includes them
+        var renamedRelationships = new LinkedHashSet<Relationship>();
+        for (var relationship : data.relationshipsSimilar1) {
+            renamedRelationships.add(new Relationship(relationship.fromConcept, relationship.toConcept, "for example"));
+        }
+        var renamedConceptMap = new ConceptMap(concepts, renamedRelationships, null);
+        assertEquals(fingerprint, renamedConceptMap.fingerprint());
+        assertEquals(conceptMap.namedFingerprint(), data.conceptMapSimilar1.namedFingerprint());
+        assertNotEquals(data.conceptMapSimilar1.namedFingerprint(), renamedConceptMap.namedFingerprint());
+        assertNotEquals(fingerprint, data.conceptMapSimilar1.namedFingerprint());
+    }
+
     @Test
     void outgoingRelationships() {
         assertEquals(data.outgoingRelationshipsWithLevels, data.conceptMapWithLevels.outgoingRelationships);
@@ -101,6 +134,13 @@ class ConceptMapTest {
         assertFalse(data.conceptMapOther.containsCycles());
     }
 
+    @Test
+    void metrics() {
+        var metrics = data.conceptMapWithCycles.metrics();
+        assertEquals(new ConceptMapMetrics(7, 10, 0, 3, 2, true, 2), metrics);
+        assertSame(metrics, data.conceptMapWithCycles.metrics());
+    }
+
     @Test
     void subnetCount() {
         assertEquals(1, data.conceptMapWithLevels.subnetCount());
@@ -115,6 +155,38 @@ class ConceptMapTest {
         assertEquals(data.allPathsOther, data.conceptMapOther.allPaths());
     }
 
+    @Test
+    void allPathsExceeded() {
+        var result = data.conceptMapWithLevels.allPaths(Budget.of(10, null));
+        assertTrue(result.exceeded);
+        assertTrue(result.progress < 1);
+        assertTrue(result.value.values().stream().mapToInt(Set::size).sum() <= 10);
+        result.value.forEach((r, paths) -> assertEquals(data.allPathsWithLevels.get(r), paths));
+
+        assertTrue(data.conceptMapWithLevels.allPaths(Budget.of(100, Duration.ZERO)).exceeded);
+        assertFalse(data.conceptMapWithLevels.allPaths(Budget.of(17, null)).exceeded);
+    }
+
+    @Test
+    void allPathsParallel() {
+        var pool = new ForkJoinPool(4);
+        try {
+            assertEquals(data.allPathsWithCycles, data.conceptMapWithCycles.allPaths(Budget.UNLIMITED, pool).value);
+            var sequential = data.conceptMapWithLevels.allPaths(Budget.of(10, null));
+            var parallel = data.conceptMapWithLevels.allPaths(Budget.of(10, null), pool);
+            assertEquals(sequential, parallel);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void allPathCount() {
+        assertEquals(17, data.conceptMapWithLevels.allPathCount());
+        assertEquals(96, data.conceptMapWithCycles.allPathCount());
+        assertEquals(1, data.conceptMapOther.allPathCount());
+    }
+
     @Test
     void longestPaths() {
         assertEquals(data.longestPathsWithLevels, data.conceptMapWithLevels.longestPaths());
@@ -122,6 +194,19 @@ class ConceptMapTest {
         assertEquals(data.longestPathsOther, data.conceptMapOther.longestPaths());
     }
 
+    @Test
+    void longestPathsExceeded() {
+        var result = data.conceptMapWithLevels.longestPaths(Budget.of(2, null));
+        assertTrue(result.exceeded);
+        assertEquals(2D / 3, result.progress);
+        assertEquals(2, result.value.size());
+        assertTrue(data.longestPathsWithLevels.containsAll(result.value));
+
+        var complete = data.conceptMapWithLevels.longestPaths(Budget.of(3, null));
+        assertFalse(complete.exceeded);
+        assertEquals(data.longestPathsWithLevels, complete.value);
+    }
+
     @Test
     void isSimilar() {
         assertTrue(data.conceptMapWithLevels.isSimilar(data.conceptMapWithCycles));
@@ -0,0 +1,100 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.IndexLoop;
+import lv.continuum.scorer.common.InvalidDataException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptOverlapTest {
+
+    private final TestData data = TestData.getInstance();
+
+    @Test
+    void closenessSimilarityDegree() throws InvalidDataException {
+
+        // Rows of the hub are long enough to be searched instead of merged
+        var hub = hub(40, 0);
+        var smallHub = hub(3, 2);
+        assertClosenessSimilarityDegree(hub, smallHub);
+        assertClosenessSimilarityDegree(smallHub, hub);
+        assertClosenessSimilarityDegree(data.conceptMapWithLevels, data.conceptMapOther);
+        assertClosenessSimilarityDegree(data.conceptMapSimilar1, data.conceptMapSimilar2);
+    }
+
+    @Test
+    void correctRelationshipCount() {
+        var overlap = overlap(data.conceptMapSimilar1, data.conceptMapSimilar1);
+        assertEquals(data.conceptMapSimilar1.relationshipCount(), overlap.correctRelationshipCount());
+        assertThrows(
+                IllegalStateException.class,
+                () -> overlap(data.conceptMapWithLevels, data.conceptMapOther).correctRelationshipCount()
+        );
+    }
+
+    @Test
+    void calculateExceeded() {
+        var result = ConceptOverlap.calculate(
+                data.conceptMapSimilar1,
+                data.conceptMapSimilar2,
+                Budget.of(Long.MAX_VALUE, Duration.ZERO),
+                IndexLoop.sequential()
+        );
+        assertTrue(result.exceeded);
+        assertEquals(0, result.progress);
+    }
+
+    /**
+     * Concept map with a hub connected to {@code leafCount} leaves and {@code otherCount} concepts that are not
+     * present in other hubs.
+     */
+    private static ConceptMap hub(int leafCount, int otherCount) throws InvalidDataException {
+        var hub = new Concept("Hub");
+        var concepts = new HashSet<Concept>(Set.of(hub));
+        var relationships = new HashSet<Relationship>();
+        for (var i = 0; i < leafCount + otherCount; i++) {
+            var concept = new Concept(i < leafCount ? "Leaf " + i : "Other " + i);
+            concepts.add(concept);
+            relationships.add(i % 2 == 0 ? new Relationship(hub, concept) : new Relationship(concept, hub));
+        }
+        return new ConceptMap(concepts, relationships, null);
+    }
+
+    private static ConceptOverlap overlap(ConceptMap studentConceptMap, ConceptMap teacherConceptMap) {
+        return ConceptOverlap.calculate(
+                studentConceptMap,
+                teacherConceptMap,
+                Budget.UNLIMITED,
+                IndexLoop.sequential()
+        ).value;
+    }
+
+    /**
+     * Compares with closeness indexes calculated from sets of concepts.
+     */
+    private static void assertClosenessSimilarityDegree(ConceptMap studentConceptMap, ConceptMap teacherConceptMap) {
+        double closenessIndexSum = 0;
+        var commonConceptCount = 0;
+        for (var entry : studentConceptMap.allRelationships.entrySet()) {
+            var teacherNeighbours = teacherConceptMap.allRelationships.get(entry.getKey());
+            if (teacherNeighbours == null) continue;
+            commonConceptCount++;
+            var intersection = new HashSet<>(entry.getValue());
+            intersection.retainAll(teacherNeighbours);
+            var union = new HashSet<>(entry.getValue());
+            union.addAll(teacherNeighbours);
+            closenessIndexSum += union.isEmpty() ? 1 : (double) intersection.size() / union.size();
+        }
+        var conceptCount = studentConceptMap.conceptCount() + teacherConceptMap.conceptCount() - commonConceptCount;
+        assertEquals(
+                closenessIndexSum / conceptCount,
+                overlap(studentConceptMap, teacherConceptMap).closenessSimilarityDegree()
+        );
+    }
+}
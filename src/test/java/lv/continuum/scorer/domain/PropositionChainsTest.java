@@ -0,0 +1,74 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.InvalidDataException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropositionChainsTest {
+
+    private final TestData data = TestData.getInstance();
+
+    @Test
+    void chains() {
+        var chains = data.conceptMapWithLevels.propositionChains();
+        assertTrue(chains.isAcyclic());
+        assertEquals(3, chains.count());
+
+        var concepts = new HashSet<List<Concept>>();
+        for (var chain : chains) {
+            var chainConcepts = new ArrayList<Concept>();
+            for (var c : chain) {
+                chainConcepts.add(data.conceptMapWithLevels.graph.concept(c));
+            }
+            concepts.add(chainConcepts);
+        }
+        assertEquals(data.longestPathsWithLevels, concepts);
+    }
+
+    @Test
+    void chainsWithCycles() {
+        var chains = data.conceptMapWithCycles.propositionChains();
+        assertFalse(chains.isAcyclic());
+        assertEquals(0, chains.count());
+        assertFalse(chains.iterator().hasNext());
+    }
+
+    @Test
+    void chainsWide() throws InvalidDataException {
+
+        // Ladder of 40 diamonds contains 2^40 chains, which cannot be enumerated, but can be counted
+        var concepts = new ArrayList<Concept>();
+        var relationships = new HashSet<Relationship>();
+        concepts.add(new Concept("0"));
+        for (var i = 0; i < 40; i++) {
+            var left = new Concept(i + "-left");
+            var right = new Concept(i + "-right");
+            var next = new Concept(String.valueOf(i + 1));
+            var previous = concepts.get(concepts.size() - 1);
+            relationships.addAll(Set.of(
+                    new Relationship(previous, left),
+                    new Relationship(previous, right),
+                    new Relationship(left, next),
+                    new Relationship(right, next)
+            ));
+            concepts.addAll(List.of(left, right, next));
+        }
+        var chains = new ConceptMap(new HashSet<>(concepts), relationships, data.fileName).propositionChains();
+        assertEquals(1L << 40, chains.count());
+
+        var iterator = chains.iterator(1000);
+        var count = 0;
+        while (iterator.hasNext()) {
+            assertEquals(81, iterator.next().length);
+            count++;
+        }
+        assertEquals(1000, count);
+    }
+}
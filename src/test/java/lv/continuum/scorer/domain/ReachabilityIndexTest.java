@@ -0,0 +1,61 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.TestData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReachabilityIndexTest {
+
+    private final TestData data = TestData.getInstance();
+
+    @Test
+    void components() {
+        var graph = data.conceptMapWithCycles.graph;
+        var reachability = data.conceptMapWithCycles.reachability();
+
+        // Cycles A -> B -> C -> A and E -> F -> E, E -> F -> G -> E are condensed
+        assertEquals(3, reachability.componentCount());
+        assertEquals(reachability.component(graph.indexOf(data.a)), reachability.component(graph.indexOf(data.c)));
+        assertEquals(reachability.component(graph.indexOf(data.e)), reachability.component(graph.indexOf(data.g)));
+
+        // Relationships between components lead to components with lower numbers
+        assertTrue(reachability.component(graph.indexOf(data.d)) > reachability.component(graph.indexOf(data.e)));
+    }
+
+    @Test
+    void descendantsAndAncestors() {
+        var conceptMap = data.conceptMapWithCycles;
+        var graph = conceptMap.graph;
+        var reachability = conceptMap.reachability();
+
+        assertEquals(Set.of(data.a, data.b, data.c), concepts(graph, reachability.descendants(graph.indexOf(data.b))));
+        assertEquals(Set.of(data.d, data.e, data.f, data.g), concepts(graph, reachability.descendants(graph.indexOf(data.d))));
+        assertEquals(Set.of(data.d), concepts(graph, reachability.ancestors(graph.indexOf(data.d))));
+        assertEquals(Set.of(data.d, data.e, data.f, data.g), concepts(graph, reachability.ancestors(graph.indexOf(data.g))));
+        assertEquals(4, reachability.descendantCount(graph.indexOf(data.d)));
+        assertEquals(1, reachability.ancestorCount(graph.indexOf(data.d)));
+        assertTrue(reachability.isDescendant(graph.indexOf(data.d), graph.indexOf(data.g)));
+        assertFalse(reachability.isDescendant(graph.indexOf(data.g), graph.indexOf(data.d)));
+    }
+
+    @Test
+    void commonCounts() {
+        var graph = data.conceptMapWithLevels.graph;
+        var reachability = data.conceptMapWithLevels.reachability();
+        var otherReachability = data.conceptMapWithCycles.reachability();
+
+        // Descendants of C are C, E, F, G and C, A, B, respectively
+        assertEquals(1, ReachabilityIndex.commonDescendantCount(reachability, otherReachability, graph.indexOf(data.c)));
+        // Ancestors of E are E, C, A and E, D, F, G, respectively
+        assertEquals(1, ReachabilityIndex.commonAncestorCount(reachability, otherReachability, graph.indexOf(data.e)));
+    }
+
+    private Set<Concept> concepts(ConceptGraph graph, int[] indexes) {
+        return Arrays.stream(indexes).mapToObj(graph::concept).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,60 @@
+package lv.continuum.scorer.domain;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.InvalidDataException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StructureAnalysisTest {
+
+    private final TestData data = TestData.getInstance();
+
+    @Test
+    void levels() {
+        var levels = data.conceptMapWithLevels.levels();
+        assertEquals(data.conceptMapWithLevels.conceptCount(), levels.size());
+        assertEquals(4, levels.values().stream().mapToInt(Integer::intValue).max().orElseThrow());
+        assertTrue(data.conceptMapWithCycles.levels().isEmpty());
+    }
+
+    @Test
+    void kernels() {
+        var graph = data.conceptMapWithCycles.graph;
+        assertEquals(0, StructureAnalysis.levelCount(StructureAnalysis.levels(graph)));
+        assertEquals(2, StructureAnalysis.subnetCount(graph));
+        assertTrue(StructureAnalysis.containsCycles(graph));
+    }
+
+    @Test
+    void longChain() throws InvalidDataException {
+        var conceptMap = chain(100_000, false);
+        assertEquals(100_000, conceptMap.levelCount());
+        assertFalse(conceptMap.containsCycles());
+        assertEquals(1, conceptMap.subnetCount());
+    }
+
+    @Test
+    void longCycle() throws InvalidDataException {
+        var conceptMap = chain(100_000, true);
+        assertEquals(0, conceptMap.levelCount());
+        assertTrue(conceptMap.containsCycles());
+        assertEquals(1, conceptMap.subnetCount());
+    }
+
+    private ConceptMap chain(int length, boolean closed) throws InvalidDataException {
+        var concepts = new Concept[length];
+        for (var i = 0; i < length; i++) {
+            concepts[i] = new Concept("c" + i);
+        }
+        var relationships = new HashSet<Relationship>();
+        for (var i = 1; i < length; i++) {
+            relationships.add(new Relationship(concepts[i - 1], concepts[i]));
+        }
+        if (closed) relationships.add(new Relationship(concepts[length - 1], concepts[0]));
+        return new ConceptMap(Set.of(concepts), relationships, "chain.xml");
+    }
+}
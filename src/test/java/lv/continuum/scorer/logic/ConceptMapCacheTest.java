@@ -0,0 +1,133 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.ConceptMapSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptMapCacheTest {
+
+    private static final Path SAMPLES = Path.of("src/test/resources/samples");
+
+    @TempDir
+    Path directory;
+
+    private final CountingParser parser = new CountingParser();
+
+    @Test
+    void parseCached() throws Exception {
+        var cache = new ConceptMapCache(parser);
+        var path = copy("similar-map-1.xml", "teacher.xml");
+        var conceptMap = cache.parse(path.toString());
+        assertSame(conceptMap, cache.parse(path.toString()));
+
+        // Files with equal contents share the parsed concept map
+        assertSame(conceptMap, cache.parse(copy("similar-map-1.xml", "other.xml").toString()));
+        assertEquals(1, parser.count.get());
+
+        var stats = cache.stats();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getEntries());
+        assertEquals(ConceptMapCache.estimateBytes(conceptMap), stats.getEstimatedBytes());
+    }
+
+    @Test
+    void parseModified() throws Exception {
+        var cache = new ConceptMapCache(parser);
+        var path = copy("similar-map-1.xml", "teacher.xml");
+        var conceptMap = cache.parse(path.toString());
+
+        Files.copy(SAMPLES.resolve("similar-map-2.xml"), path, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 1000));
+        assertNotSame(conceptMap, cache.parse(path.toString()));
+        assertEquals(2, parser.count.get());
+    }
+
+    @Test
+    void parseEvicted() throws Exception {
+        var cache = new ConceptMapCache(parser, 1, Long.MAX_VALUE);
+        var path1 = copy("similar-map-1.xml", "1.xml").toString();
+        var path2 = copy("similar-map-2.xml", "2.xml").toString();
+        cache.parse(path1);
+        cache.parse(path2);
+        cache.parse(path1);
+        assertEquals(3, parser.count.get());
+        assertEquals(2, cache.stats().getEvictions());
+        assertEquals(1, cache.stats().getEntries());
+    }
+
+    @Test
+    void parseInvalid() throws Exception {
+        var cache = new ConceptMapCache(parser);
+        var path = copy("concept-map-invalid.xml", "invalid.xml").toString();
+        assertThrows(InvalidDataException.class, () -> cache.parse(path));
+        assertThrows(InvalidDataException.class, () -> cache.parse(path));
+        assertEquals(2, parser.count.get());
+        assertEquals(0, cache.stats().getEntries());
+    }
+
+    @Test
+    void parseSnapshot() throws Exception {
+        var cache = new ConceptMapCache(parser);
+        var conceptMap = cache.parse(copy("similar-map-1.xml", "teacher.xml").toString());
+        var path = directory.resolve("teacher" + ConceptMapSnapshot.FILE_EXTENSION);
+        ConceptMapSnapshot.write(conceptMap, path);
+        assertEquals(conceptMap, cache.parse(path.toString()));
+        assertEquals(1, parser.count.get());
+    }
+
+    @Test
+    void parseConcurrently() throws Exception {
+        var cache = new ConceptMapCache(parser);
+        var path = copy("similar-map-1.xml", "teacher.xml").toString();
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var tasks = new ArrayList<Callable<ConceptMap>>();
+            for (var i = 0; i < 8; i++) {
+                tasks.add(() -> cache.parse(path));
+            }
+            var conceptMaps = new ArrayList<ConceptMap>();
+            for (var future : executor.invokeAll(tasks)) {
+                conceptMaps.add(future.get());
+            }
+            assertTrue(conceptMaps.stream().allMatch(cm -> cm == conceptMaps.get(0)));
+            assertEquals(1, parser.count.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Path copy(String sample, String fileName) throws Exception {
+        return Files.copy(SAMPLES.resolve(sample), directory.resolve(fileName));
+    }
+
+    private static class CountingParser extends ConceptMapParser {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public ConceptMap parse(InputStream inputStream, String fileName) throws InvalidDataException {
+            count.incrementAndGet();
+            try {
+                Thread.sleep(50); // Give concurrent requests a chance to overlap
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.parse(inputStream, fileName);
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package lv.continuum.scorer.logic;
 
 import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.BudgetedResult;
 import lv.continuum.scorer.common.InvalidDataException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConceptMapComparatorTest {
 
@@ -44,6 +53,62 @@ class ConceptMapComparatorTest {
         assertEquals("1.000", similarityDegrees.weightedSimilarityDegree);
     }
 
+    @Test
+    void compareExceeded() throws InvalidDataException {
+        var comparator = new ConceptMapComparator(data.conceptMapWithLevels, data.conceptMapWithLevels);
+        var expired = Budget.of(Long.MAX_VALUE, Duration.ZERO);
+        assertExceeded(comparator.compareUsingClosenessIndexes(expired));
+        assertExceeded(comparator.compareUsingImportanceIndexes(expired));
+        assertExceeded(comparator.compareUsingPropositionChains(expired));
+        assertExceeded(comparator.compareUsingErrorAnalysis(expired));
+
+        // 3 proposition chains of the teacher concept map are compared
+        var result = comparator.compareUsingPropositionChains(Budget.of(2, null));
+        assertExceeded(result);
+        Assertions.assertEquals(2D / 3, result.progress);
+        assertEquals("1.000", comparator.compareUsingPropositionChains(Budget.of(3, null)).value);
+
+        // Comparisons that do not enumerate paths are only limited by time
+        assertFalse(comparator.compareUsingClosenessIndexes(Budget.of(0, null)).exceeded);
+    }
+
+    @Test
+    void compareParallel() throws InvalidDataException {
+        var pool = new ForkJoinPool(4);
+        try {
+            for (var studentConceptMap : List.of(data.conceptMapSimilar1, data.conceptMapWithLevels, data.conceptMapOther)) {
+                for (var teacherConceptMap : List.of(data.conceptMapSimilar2, data.conceptMapWithLevels)) {
+                    var scoringKey = new ScoringKey(teacherConceptMap);
+                    var sequential = new ConceptMapComparator(studentConceptMap, scoringKey);
+                    var parallel = new ConceptMapComparator(studentConceptMap, scoringKey, pool);
+
+                    // Results are exactly the same, not only within a tolerance
+                    Assertions.assertEquals(
+                            sequential.compareUsingClosenessIndexes(),
+                            parallel.compareUsingClosenessIndexes()
+                    );
+                    if (studentConceptMap.isSimilar(teacherConceptMap)) {
+                        Assertions.assertEquals(
+                                sequential.compareUsingImportanceIndexes(),
+                                parallel.compareUsingImportanceIndexes()
+                        );
+                        Assertions.assertEquals(
+                                sequential.compareUsingErrorAnalysis(),
+                                parallel.compareUsingErrorAnalysis()
+                        );
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertExceeded(BudgetedResult<?> result) {
+        assertTrue(result.exceeded);
+        assertNull(result.value);
+    }
+
     private void assertEquals(String expected, double actual) {
         Assertions.assertEquals(expected, String.format("%.3f", actual));
     }
@@ -1,6 +1,7 @@
 package lv.continuum.scorer.logic;
 
 import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.BudgetedResult;
 import lv.continuum.scorer.common.InvalidDataException;
 import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
 import lv.continuum.scorer.common.Translations;
@@ -97,6 +98,22 @@ class ConceptMapFormatterTest {
         assertEquals(formattedSimilarityDegrees, conceptMapFormatter.formatSimilarityDegrees("method", () -> similarityDegrees));
     }
 
+    @Test
+    void formatBudgetedSimilarityDegree() {
+        var similarityDegree = 9.8765D;
+        var formattedSimilarityDegree = "Similarity degree of the maps using method";
+        var formattedExceeded = "The maps could not be compared within the limits";
+
+        when(translations.format("similarity-method", similarityDegree)).thenReturn(formattedSimilarityDegree);
+        when(translations.format("budget-exceeded", 25D)).thenReturn(formattedExceeded);
+        assertEquals(formattedSimilarityDegree, conceptMapFormatter.formatBudgetedSimilarityDegree(
+                "method", () -> BudgetedResult.complete(similarityDegree)));
+        assertEquals(formattedExceeded, conceptMapFormatter.formatBudgetedSimilarityDegree(
+                "method", () -> BudgetedResult.exceeded(null, 0.25D)));
+        assertEquals(formattedExceeded, conceptMapFormatter.formatBudgetedSimilarityDegrees(
+                "method", () -> BudgetedResult.exceeded(null, 0.25D)));
+    }
+
     @Test
     void formatSimilarityDegreesInvalid() {
         var errorCode = ErrorCode.DIFFERENT_CONCEPTS_ERROR_ANALYSIS;
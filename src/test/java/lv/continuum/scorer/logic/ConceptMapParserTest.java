@@ -2,12 +2,19 @@ package lv.continuum.scorer.logic;
 
 import lv.continuum.scorer.TestData;
 import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConceptMapParserTest {
 
@@ -18,6 +25,10 @@ class ConceptMapParserTest {
         return "src/test/resources/samples/" + fileName;
     }
 
+    private InputStream inputStream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Test
     void parseStandard() throws Exception {
         assertEquals(
@@ -34,6 +45,58 @@ class ConceptMapParserTest {
         );
     }
 
+    @Test
+    void parseInputStream() throws Exception {
+        // Relationships may precede concepts
+        var xml = "<conceptmap><relationships><relationship from=\"1\" to=\"0\"/></relationships>" +
+                "<concepts><concept id=\"0\">B</concept><concept id=\"1\">A</concept></concepts></conceptmap>";
+        assertEquals(
+                data.conceptMapOther.relationshipCount(),
+                conceptMapParser.parse(inputStream(xml), data.fileName).relationshipCount()
+        );
+    }
+
+    @Test
+    void parseInvalidErrorCodes() {
+        var invalidXmls = Map.of(
+                "<conceptmap><concepts><concept id=\"0\">A</concept><concept id=\"1\"> a </concept></concepts></conceptmap>",
+                ErrorCode.CONCEPT_MAP_DUPLICATE_CONCEPTS,
+                "<element name=\"root\"><element name=\"node\" value=\"A\"/>" +
+                        "<element name=\"relation\" value=\"\"><element name=\"source\" value=\"A\"/></element></element>",
+                ErrorCode.CONCEPT_MAP_INVALID_RELATIONSHIP,
+                "<conceptmap><concepts><concept id=\"x\">A</concept></concepts></conceptmap>",
+                ErrorCode.INVALID_XML,
+                "<element name=\"other\"/>",
+                ErrorCode.INVALID_XML,
+                // Not well-formed XML takes precedence over other issues
+                "<conceptmap><concepts><concept id=\"0\">A</concept><concept id=\"1\">a</concept></concepts>",
+                ErrorCode.INVALID_XML
+        );
+        invalidXmls.forEach((xml, errorCode) -> {
+            var e = assertThrows(InvalidDataException.class, () -> conceptMapParser.parse(inputStream(xml), data.fileName));
+            assertEquals(errorCode, e.errorCode);
+        });
+    }
+
+    @Test
+    void parseEnvelope() throws Exception {
+        var conceptMap = "<conceptmap><concepts><concept id=\"0\">A</concept><concept id=\"1\">B</concept></concepts>" +
+                "<relationships><relationship from=\"0\" to=\"1\"/></relationships></conceptmap>";
+        var conceptMaps = conceptMapParser.parseEnvelope(
+                inputStream("<score><student>" + conceptMap + "</student><teacher>" + conceptMap + "</teacher></score>"),
+                data.fileName
+        );
+        assertEquals(List.of("student", "teacher"), List.copyOf(conceptMaps.keySet()));
+        assertTrue(conceptMaps.get("student").isSimilar(conceptMaps.get("teacher")));
+
+        var e = assertThrows(
+                InvalidDataException.class,
+                () -> conceptMapParser.parseEnvelope(inputStream("<score><student/></score>"), data.fileName)
+        );
+        assertEquals(ErrorCode.INVALID_XML, e.errorCode);
+        assertEquals("student", e.fileName);
+    }
+
     @Test
     void parseInvalid() {
         assertThrows(
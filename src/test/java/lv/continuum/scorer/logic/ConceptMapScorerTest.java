@@ -0,0 +1,90 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.Translations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptMapScorerTest {
+
+    private final TestData data = TestData.getInstance();
+    private final ConceptMapScorer conceptMapScorer = new ConceptMapScorer(new ConceptMapFormatter(new Translations()));
+
+    @AfterEach
+    void afterEach() {
+        Thread.interrupted(); // Clear interrupted status
+    }
+
+    @Test
+    void scoreWithListener() {
+        var methods = EnumSet.allOf(ScoringMethod.class);
+        var scoringKey = Optional.of(new ScoringKey(data.conceptMapSimilar2));
+
+        var startedMethods = new ArrayList<ScoringMethod>();
+        var sections = new ArrayList<String>();
+        conceptMapScorer.scoreAgainst(data.conceptMapSimilar1, scoringKey, methods, new ConceptMapScorer.Listener() {
+
+            @Override
+            public void methodStarted(ScoringMethod method) {
+                startedMethods.add(method);
+            }
+
+            @Override
+            public void sectionScored(String section) {
+                sections.add(section);
+            }
+        });
+        assertEquals(List.of(ScoringMethod.values()), startedMethods);
+        assertEquals(conceptMapScorer.scoreAgainst(data.conceptMapSimilar1, scoringKey, methods), sections);
+    }
+
+    @Test
+    void scoreParallel() {
+        var pool = new ForkJoinPool(4);
+        try {
+            var parallelScorer = new ConceptMapScorer(new ConceptMapFormatter(new Translations()), pool);
+            var methods = EnumSet.allOf(ScoringMethod.class);
+            var scoringKey = Optional.of(new ScoringKey(data.conceptMapSimilar2));
+            assertEquals(
+                    conceptMapScorer.scoreAgainst(data.conceptMapSimilar1, scoringKey, methods),
+                    parallelScorer.scoreAgainst(data.conceptMapSimilar1, scoringKey, methods)
+            );
+
+            Thread.currentThread().interrupt();
+            assertThrows(CancellationException.class, () -> parallelScorer.scoreAgainst(
+                    data.conceptMapSimilar1, scoringKey, methods, section -> {
+                    }));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void scoreWithoutTeacher() {
+        var sections = conceptMapScorer.score(
+                data.conceptMapSimilar1, Optional.empty(), EnumSet.allOf(ScoringMethod.class));
+        assertEquals(1, sections.size());
+    }
+
+    @Test
+    void scoreInterrupted() {
+        var sections = new ArrayList<String>();
+        Thread.currentThread().interrupt();
+        assertThrows(CancellationException.class, () -> conceptMapScorer.scoreAgainst(
+                data.conceptMapSimilar1,
+                Optional.of(new ScoringKey(data.conceptMapSimilar2)),
+                EnumSet.allOf(ScoringMethod.class),
+                sections::add
+        ));
+        assertEquals(2, sections.size()); // Element counts are not interrupted
+    }
+}
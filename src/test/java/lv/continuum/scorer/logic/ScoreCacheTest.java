@@ -0,0 +1,227 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.Budget;
+import lv.continuum.scorer.common.InvalidDataException;
+import lv.continuum.scorer.common.InvalidDataException.ErrorCode;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.domain.Relationship;
+import lv.continuum.scorer.logic.ScoreCache.Score;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreCacheTest {
+
+    private static final String VERSION = "1.0";
+
+    private final TestData data = TestData.getInstance();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void putAndGet() throws IOException {
+        var path = directory.resolve("scores.cache");
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            assertNull(cache.get(data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.CLOSENESS_INDEXES));
+            cache.put(data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.CLOSENESS_INDEXES, Score.of(0.5));
+            cache.put(data.conceptMapOther, data.conceptMapSimilar2, ScoringMethod.ERROR_ANALYSIS,
+                    Score.failed(ErrorCode.DIFFERENT_CONCEPTS_ERROR_ANALYSIS));
+            assertArrayEquals(new double[]{0.5}, cache.get(
+                    data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.CLOSENESS_INDEXES).values);
+
+            // Keys are not symmetric
+            assertNull(cache.get(data.conceptMapSimilar2, data.conceptMapSimilar1, ScoringMethod.CLOSENESS_INDEXES));
+
+            var stats = cache.stats();
+            assertEquals(1, stats.getHits());
+            assertEquals(2, stats.getMisses());
+            assertEquals(2, stats.getEntries());
+        }
+
+        // Results are loaded by the next instance
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            assertArrayEquals(new double[]{0.5}, cache.get(
+                    data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.CLOSENESS_INDEXES).values);
+            assertEquals(ErrorCode.DIFFERENT_CONCEPTS_ERROR_ANALYSIS, cache.get(
+                    data.conceptMapOther, data.conceptMapSimilar2, ScoringMethod.ERROR_ANALYSIS).errorCode);
+        }
+
+        // Results of other versions are ignored
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, "2.0")) {
+            assertEquals(0, cache.stats().getEntries());
+        }
+    }
+
+    @Test
+    void metrics() throws Exception {
+        var path = directory.resolve("scores.cache");
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            assertEquals(data.conceptMapWithLevels.metrics(), cache.metrics(data.conceptMapWithLevels));
+        }
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            assertEquals(data.conceptMapWithLevels.metrics(), cache.metrics(data.conceptMapWithLevels));
+            assertEquals(1, cache.stats().getHits());
+
+            // Relationship names are counted as examples, so a relabelled concept map is measured again
+            var relabelled = relabelled(data.relationshipsWithLevels);
+            assertEquals(relabelled.metrics(), cache.metrics(relabelled));
+            assertEquals(1, cache.stats().getMisses());
+        }
+    }
+
+    @Test
+    void compareCached() throws Exception {
+        var path = directory.resolve("scores.cache");
+        double closenessSimilarityDegree;
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            var comparator = new ConceptMapComparator(
+                    data.conceptMapSimilar2, new ScoringKey(data.conceptMapSimilar1, cache));
+            closenessSimilarityDegree = comparator.compareUsingClosenessIndexes();
+            comparator.compareUsingErrorAnalysis();
+            assertThrows(InvalidDataException.class, () -> new ConceptMapComparator(
+                    data.conceptMapOther, new ScoringKey(data.conceptMapSimilar1, cache)).compareUsingImportanceIndexes());
+
+            // Exceeded comparisons are not cached
+            assertTrue(comparator.compareUsingPropositionChains(Budget.of(1, null)).exceeded);
+            assertEquals(3, cache.stats().getEntries());
+        }
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            var comparator = new ConceptMapComparator(
+                    data.conceptMapSimilar2, new ScoringKey(data.conceptMapSimilar1, cache));
+            assertEquals(closenessSimilarityDegree, comparator.compareUsingClosenessIndexes());
+            assertEquals(
+                    new ConceptMapComparator(data.conceptMapSimilar2, data.conceptMapSimilar1).compareUsingErrorAnalysis(),
+                    comparator.compareUsingErrorAnalysis()
+            );
+            var e = assertThrows(InvalidDataException.class, () -> new ConceptMapComparator(
+                    data.conceptMapOther, new ScoringKey(data.conceptMapSimilar1, cache)).compareUsingImportanceIndexes());
+            assertEquals(ErrorCode.DIFFERENT_CONCEPTS_IMPORTANCE_INDEXES, e.errorCode);
+            assertEquals(3, cache.stats().getHits());
+
+            // Relationship names do not affect comparisons, so a relabelled resubmission is not compared again
+            var relabelledComparator = new ConceptMapComparator(
+                    relabelled(data.relationshipsSimilar2), new ScoringKey(data.conceptMapSimilar1, cache));
+            assertEquals(closenessSimilarityDegree, relabelledComparator.compareUsingClosenessIndexes());
+            assertEquals(4, cache.stats().getHits());
+        }
+    }
+
+    @Test
+    void compact() throws IOException {
+        var path = directory.resolve("scores.cache");
+        var maxBytes = 4096;
+        var methods = ScoringMethod.values();
+        try (var cache = ScoreCache.open(path, maxBytes, VERSION)) {
+            for (var i = 0; i < 100; i++) {
+                var method = methods[i % methods.length];
+                cache.put(data.conceptMapSimilar1, data.conceptMapSimilar2, method, Score.of(i));
+
+                // Recently used results survive compaction
+                cache.metrics(data.conceptMapWithLevels);
+                assertTrue(Files.size(path) <= maxBytes);
+            }
+            assertEquals(6, cache.stats().getEntries());
+        }
+        try (var cache = ScoreCache.open(path, maxBytes, VERSION)) {
+            assertArrayEquals(new double[]{99}, cache.get(
+                    data.conceptMapSimilar1, data.conceptMapSimilar2, methods[99 % methods.length]).values);
+            assertNotNull(cache.get(data.conceptMapWithLevels, null, ScoringMethod.ELEMENT_COUNT));
+        }
+    }
+
+    @Test
+    void openIncomplete() throws IOException {
+        var path = directory.resolve("scores.cache");
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            cache.put(data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.CLOSENESS_INDEXES, Score.of(0.5));
+            cache.put(data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.IMPORTANCE_INDEXES, Score.of(0.25));
+        }
+
+        // The last record is cut off as if the process has been killed while writing it
+        var size = Files.size(path);
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            assertEquals(1, cache.stats().getEntries());
+            cache.put(data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.IMPORTANCE_INDEXES, Score.of(0.75));
+        }
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            assertEquals(2, cache.stats().getEntries());
+            assertArrayEquals(new double[]{0.75}, cache.get(
+                    data.conceptMapSimilar1, data.conceptMapSimilar2, ScoringMethod.IMPORTANCE_INDEXES).values);
+        }
+    }
+
+    @Test
+    void openInvalid() throws IOException {
+        var path = directory.resolve("scores.cache");
+        Files.writeString(path, "Not a score cache");
+        assertThrows(IOException.class, () -> ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION));
+
+        // A file shorter than the header is not truncated either
+        var shortPath = directory.resolve("short.cache");
+        Files.writeString(shortPath, "Not");
+        assertThrows(IOException.class, () -> ScoreCache.open(shortPath, ScoreCache.DEFAULT_MAX_BYTES, VERSION));
+        assertEquals("Not", Files.readString(shortPath));
+
+        var otherPath = directory.resolve("other.cache");
+        var cache = ScoreCache.open(otherPath, ScoreCache.DEFAULT_MAX_BYTES, VERSION);
+        try {
+            assertThrows(IOException.class, () -> ScoreCache.open(otherPath, ScoreCache.DEFAULT_MAX_BYTES, VERSION));
+        } finally {
+            cache.close();
+        }
+        ScoreCache.open(otherPath, ScoreCache.DEFAULT_MAX_BYTES, VERSION).close();
+    }
+
+    @Test
+    void putConcurrently() throws Exception {
+        var path = directory.resolve("scores.cache");
+        var methods = ScoringMethod.values();
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            var executor = Executors.newFixedThreadPool(4);
+            var tasks = new ArrayList<Callable<Void>>();
+            for (var i = 0; i < 400; i++) {
+                var method = methods[i % methods.length];
+                var value = i;
+                tasks.add(() -> {
+                    cache.put(data.conceptMapSimilar1, data.conceptMapSimilar2, method, Score.of(value));
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+
+        // Every record has been written in full
+        try (var cache = ScoreCache.open(path, ScoreCache.DEFAULT_MAX_BYTES, VERSION)) {
+            assertEquals(methods.length, cache.stats().getEntries());
+            assertEquals(cache.stats().getFileBytes(), Files.size(path));
+        }
+    }
+
+    private ConceptMap relabelled(Set<Relationship> relationships) throws InvalidDataException {
+        var relabelledRelationships = new LinkedHashSet<Relationship>();
+        for (var r : relationships) {
+            relabelledRelationships.add(new Relationship(r.fromConcept, r.toConcept, "for example"));
+        }
+        return new ConceptMap(data.concepts, relabelledRelationships, null);
+    }
+}
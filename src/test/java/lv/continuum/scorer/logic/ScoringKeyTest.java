@@ -0,0 +1,70 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.common.InvalidDataException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScoringKeyTest {
+
+    private final TestData data = TestData.getInstance();
+
+    @Test
+    void compareSameAsComparator() throws InvalidDataException {
+        var scoringKey = new ScoringKey(data.conceptMapSimilar2);
+        for (var studentConceptMap : List.of(data.conceptMapSimilar1, data.conceptMapWithLevels, data.conceptMapSimilar2)) {
+            var comparator = new ConceptMapComparator(studentConceptMap, data.conceptMapSimilar2);
+            assertEquals(
+                    comparator.compareUsingClosenessIndexes(),
+                    scoringKey.compareUsingClosenessIndexes(studentConceptMap)
+            );
+            assertEquals(
+                    comparator.compareUsingImportanceIndexes(),
+                    scoringKey.compareUsingImportanceIndexes(studentConceptMap)
+            );
+            assertEquals(
+                    comparator.compareUsingPropositionChains(),
+                    scoringKey.compareUsingPropositionChains(studentConceptMap)
+            );
+            assertEquals(
+                    comparator.compareUsingErrorAnalysis(),
+                    scoringKey.compareUsingErrorAnalysis(studentConceptMap)
+            );
+        }
+    }
+
+    @Test
+    void compareNotSimilar() {
+        var scoringKey = new ScoringKey(data.conceptMapOther);
+        assertThrows(InvalidDataException.class, () -> scoringKey.compareUsingImportanceIndexes(data.conceptMapWithLevels));
+        assertThrows(InvalidDataException.class, () -> scoringKey.compareUsingPropositionChains(data.conceptMapWithLevels));
+        assertThrows(InvalidDataException.class, () -> scoringKey.compareUsingErrorAnalysis(data.conceptMapWithLevels));
+    }
+
+    @Test
+    void compareConcurrently() throws Exception {
+        var scoringKey = new ScoringKey(data.conceptMapWithLevels);
+        var expected = new ConceptMapComparator(data.conceptMapSimilar2, data.conceptMapWithLevels)
+                .compareUsingImportanceIndexes();
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Double>> tasks = IntStream.range(0, 16)
+                    .mapToObj(i -> (Callable<Double>) () -> scoringKey.compareUsingImportanceIndexes(data.conceptMapSimilar2))
+                    .collect(Collectors.toList());
+            for (var future : executor.invokeAll(tasks)) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
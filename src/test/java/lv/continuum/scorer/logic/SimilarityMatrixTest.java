@@ -0,0 +1,152 @@
+package lv.continuum.scorer.logic;
+
+import lv.continuum.scorer.TestData;
+import lv.continuum.scorer.domain.ConceptMap;
+import lv.continuum.scorer.logic.SimilarityMatrix.Neighbour;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityMatrixTest {
+
+    private static final String SAMPLES = "src/test/resources/samples";
+
+    private final TestData data = TestData.getInstance();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void calculate() throws Exception {
+        var conceptMaps = List.of(
+                data.conceptMapSimilar1,
+                data.conceptMapSimilar2,
+                data.conceptMapWithLevels,
+                data.conceptMapOther
+        );
+        var pool = new ForkJoinPool(2);
+        try (var matrix = SimilarityMatrix.calculate(conceptMaps, SimilarityMatrix.METHODS, pool)) {
+            assertEquals(4, matrix.size());
+            assertFalse(matrix.isSpilled());
+            for (var i = 0; i < conceptMaps.size(); i++) {
+                for (var j = 0; j < conceptMaps.size(); j++) {
+
+                    // Either concept map can be the student one
+                    var comparator = new ConceptMapComparator(conceptMaps.get(i), conceptMaps.get(j));
+                    var similarity = comparator.compareUsingClosenessIndexes();
+                    assertEquals(similarity, matrix.similarity(ScoringMethod.CLOSENESS_INDEXES, i, j));
+                    assertEquals(similarity, matrix.similarity(ScoringMethod.CLOSENESS_INDEXES, j, i));
+                }
+            }
+            var comparator = new ConceptMapComparator(data.conceptMapSimilar2, data.conceptMapSimilar1);
+            assertEquals(
+                    comparator.compareUsingImportanceIndexes(),
+                    matrix.similarity(ScoringMethod.IMPORTANCE_INDEXES, 0, 1)
+            );
+            assertEquals(
+                    comparator.compareUsingErrorAnalysis().similarityDegree,
+                    matrix.similarity(ScoringMethod.ERROR_ANALYSIS, 0, 1)
+            );
+
+            // Concept maps with different concepts are compared only using closeness indexes
+            assertTrue(Double.isNaN(matrix.similarity(ScoringMethod.IMPORTANCE_INDEXES, 0, 3)));
+            assertTrue(Double.isNaN(matrix.similarity(ScoringMethod.ERROR_ANALYSIS, 3, 1)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void calculateInvalid() throws IOException {
+        var conceptMaps = List.of(data.conceptMapSimilar1, data.conceptMapSimilar2);
+        var pool = ForkJoinPool.commonPool();
+        assertThrows(IllegalArgumentException.class, () -> SimilarityMatrix.calculate(
+                conceptMaps, Set.of(ScoringMethod.PROPOSITION_CHAINS), pool));
+        try (var matrix = SimilarityMatrix.calculate(conceptMaps, Set.of(ScoringMethod.CLOSENESS_INDEXES), pool)) {
+            assertThrows(IllegalArgumentException.class, () -> matrix.similarity(ScoringMethod.ERROR_ANALYSIS, 0, 1));
+        }
+    }
+
+    @Test
+    void nearest() throws IOException {
+        var conceptMaps = List.of(
+                data.conceptMapSimilar1,
+                data.conceptMapOther,
+                data.conceptMapSimilar2,
+                data.conceptMapSimilar1
+        );
+        try (var matrix = SimilarityMatrix.calculate(conceptMaps, SimilarityMatrix.METHODS, ForkJoinPool.commonPool())) {
+            var similarity = matrix.similarity(ScoringMethod.CLOSENESS_INDEXES, 0, 2);
+            var otherSimilarity = matrix.similarity(ScoringMethod.CLOSENESS_INDEXES, 0, 1);
+            assertEquals(
+                    List.of(new Neighbour(3, 1), new Neighbour(2, similarity), new Neighbour(1, otherSimilarity)),
+                    matrix.nearest(ScoringMethod.CLOSENESS_INDEXES, 0, 5)
+            );
+            assertEquals(List.of(new Neighbour(3, 1)), matrix.nearest(ScoringMethod.CLOSENESS_INDEXES, 0, 1));
+
+            // Concept maps that cannot be compared are left out
+            var importanceNearest = matrix.nearest(ScoringMethod.IMPORTANCE_INDEXES, 3, 5);
+            assertEquals(2, importanceNearest.size());
+            assertEquals(0, importanceNearest.get(0).index);
+            assertEquals(2, importanceNearest.get(1).index);
+            assertEquals(List.of(), matrix.nearest(ScoringMethod.IMPORTANCE_INDEXES, 1, 5));
+        }
+    }
+
+    @Test
+    void calculateSpilled() throws Exception {
+        var conceptMaps = samples(40);
+        var pool = new ForkJoinPool(3);
+        try (var matrix = SimilarityMatrix.calculate(conceptMaps, SimilarityMatrix.METHODS, ForkJoinPool.commonPool());
+             var spilled = SimilarityMatrix.calculate(conceptMaps, SimilarityMatrix.METHODS, pool, 0, directory)) {
+            assertTrue(spilled.isSpilled());
+
+            // Results do not depend on the storage or the number of threads
+            for (var method : SimilarityMatrix.METHODS) {
+                for (var i = 0; i < conceptMaps.size(); i++) {
+                    for (var j = i; j < conceptMaps.size(); j++) {
+                        assertEquals(matrix.similarity(method, i, j), spilled.similarity(method, i, j));
+                    }
+                    assertEquals(matrix.nearest(method, i, 3), spilled.nearest(method, i, 3));
+                }
+            }
+            var comparator = new ConceptMapComparator(conceptMaps.get(5), conceptMaps.get(38));
+            assertEquals(
+                    comparator.compareUsingClosenessIndexes(),
+                    spilled.similarity(ScoringMethod.CLOSENESS_INDEXES, 38, 5)
+            );
+        } finally {
+            pool.shutdown();
+        }
+
+        // The file is deleted once the matrix is closed, or even earlier, depending on the file system
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static List<ConceptMap> samples(int count) throws Exception {
+        var parser = new ConceptMapParser();
+        var samples = new ArrayList<ConceptMap>();
+        for (var i = 1; i <= 7; i++) {
+            samples.add(parser.parse(SAMPLES + "/similar-map-" + i + ".xml"));
+        }
+        samples.add(parser.parse(SAMPLES + "/concept-map-with-levels.xml"));
+        samples.add(parser.parse(SAMPLES + "/concept-map-with-cycles.xml"));
+
+        var conceptMaps = new ArrayList<ConceptMap>();
+        for (var i = 0; i < count; i++) {
+            conceptMaps.add(samples.get(i % samples.size()));
+        }
+        return conceptMaps;
+    }
+}
@@ -0,0 +1,74 @@
+package lv.continuum.scorer.monitoring;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.logic.ScoringKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    private static final String SAMPLES = "src/test/resources/samples";
+
+    @Test
+    void record(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("scorer.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(ParseEvent.class).withoutThreshold();
+            recording.enable(AnalysisEvent.class).withoutThreshold();
+            recording.enable(ComparisonEvent.class).withoutThreshold();
+            recording.start();
+
+            var parser = new ConceptMapParser();
+            var studentConceptMap = parser.parse(SAMPLES + "/similar-map-1.xml");
+            studentConceptMap.longestPaths();
+            new ScoringKey(parser.parse(SAMPLES + "/similar-map-2.xml")).compareUsingClosenessIndexes(studentConceptMap);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var parseEvents = events(file, "lv.continuum.scorer.Parse");
+        assertEquals(2, parseEvents.size());
+        assertTrue(parseEvents.get(0).getString("fileName").endsWith("similar-map-1.xml"));
+        assertEquals("standard", parseEvents.get(0).getString("format"));
+        assertTrue(parseEvents.get(0).getLong("conceptCount") > 0);
+
+        var analysisEvents = events(file, "lv.continuum.scorer.Analysis");
+        assertEquals(1, analysisEvents.size());
+        assertEquals("longest-paths", analysisEvents.get(0).getString("analysis"));
+        assertTrue(analysisEvents.get(0).getLong("result") > 0);
+
+        var comparisonEvents = events(file, "lv.continuum.scorer.Comparison");
+        assertEquals(1, comparisonEvents.size());
+        assertEquals("closeness-indexes", comparisonEvents.get(0).getString("method"));
+        assertTrue(comparisonEvents.get(0).getLong("teacherRelationshipCount") > 0);
+    }
+
+    @Test
+    void disabledByDefault(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("scorer.jfr");
+        try (var recording = new Recording()) {
+            recording.start();
+            new ConceptMapParser().parse(SAMPLES + "/similar-map-1.xml");
+            recording.stop();
+            recording.dump(file);
+        }
+        assertTrue(events(file, "lv.continuum.scorer.Parse").isEmpty());
+    }
+
+    private static List<RecordedEvent> events(Path file, String name) throws Exception {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted((first, second) -> first.getStartTime().compareTo(second.getStartTime()))
+                .collect(Collectors.toList());
+    }
+}
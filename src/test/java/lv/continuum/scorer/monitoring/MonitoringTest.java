@@ -0,0 +1,58 @@
+package lv.continuum.scorer.monitoring;
+
+import lv.continuum.scorer.logic.ConceptMapParser;
+import lv.continuum.scorer.logic.ScoringKey;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonitoringTest {
+
+    private static final String SAMPLES = "src/test/resources/samples";
+
+    @Test
+    void measure() throws Exception {
+        var parseCount = Monitoring.statistics(Phase.PARSE_STANDARD).getCount();
+        var closenessCount = Monitoring.statistics(Phase.CLOSENESS_INDEXES).getCount();
+        var sizeCount = Monitoring.conceptMapSizes().getCount();
+
+        var parser = new ConceptMapParser();
+        var studentConceptMap = parser.parse(SAMPLES + "/similar-map-1.xml");
+        new ScoringKey(parser.parse(SAMPLES + "/similar-map-2.xml")).compareUsingClosenessIndexes(studentConceptMap);
+
+        assertTrue(Monitoring.isEnabled());
+        assertEquals(parseCount + 2, Monitoring.statistics(Phase.PARSE_STANDARD).getCount());
+        assertEquals(closenessCount + 1, Monitoring.statistics(Phase.CLOSENESS_INDEXES).getCount());
+        assertEquals(sizeCount + 2, Monitoring.conceptMapSizes().getCount());
+    }
+
+    @Test
+    void publish() throws Exception {
+        new ConceptMapParser().parse(SAMPLES + "/similar-map-1.xml");
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var name = new ObjectName(Monitoring.DOMAIN + ":type=Phase,name=" + Phase.PARSE_STANDARD.key);
+        assertTrue((Long) server.getAttribute(name, "Count") > 0);
+        assertTrue((Double) server.getAttribute(name, "MaxTimeMillis") > 0);
+        var histogram = (long[]) server.getAttribute(name, "LatencyHistogram");
+        assertEquals(((long[]) server.getAttribute(name, "LatencyBucketUpperBoundsMicros")).length, histogram.length);
+
+        var sizesName = new ObjectName(Monitoring.DOMAIN + ":type=ConceptMapSizes");
+        assertTrue((Long) server.getAttribute(sizesName, "Count") > 0);
+    }
+
+    @Test
+    void histogram() {
+        var histogram = new Histogram(4);
+        for (var value : new long[]{0, 1, 2, 3, 4, 100}) {
+            histogram.record(value);
+        }
+        assertArrayEquals(new long[]{1, 1, 2, 2}, histogram.counts());
+        assertArrayEquals(new long[]{1, 2, 4, Long.MAX_VALUE}, histogram.upperBounds());
+        histogram.reset();
+        assertArrayEquals(new long[4], histogram.counts());
+    }
+}
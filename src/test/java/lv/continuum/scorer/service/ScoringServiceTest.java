@@ -0,0 +1,152 @@
+package lv.continuum.scorer.service;
+
+import lv.continuum.scorer.common.Translations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoringServiceTest {
+
+    private static final String SAMPLES = "src/test/resources/samples";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ScoringService service;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        var options = ServiceOptions.parse(
+                "--port", "0",
+                "--threads", "1",
+                "--queue", "1",
+                "--max-body", "1",
+                "--teacher", "similar=" + SAMPLES + "/similar-map-1.xml"
+        );
+        service = new ScoringService(new Translations(), options);
+        service.start();
+    }
+
+    @AfterEach
+    void afterEach() {
+        service.stop();
+    }
+
+    @Test
+    void scoreWithEnvelope() throws Exception {
+        var response = post("/score", "<score><student>" + sample("similar-map-2.xml") + "</student>" +
+                "<teacher>" + sample("similar-map-1.xml") + "</teacher></score>");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"student\":{\"concepts\":4,"));
+        assertTrue(response.body().contains("\"closeness-indexes\":{\"similarity\":"));
+
+        // Comparison methods that cannot be applied are reported without failing the request
+        assertTrue(response.body().contains("\"error-analysis\":{\"error\":"));
+    }
+
+    @Test
+    void scoreWithResidentTeacher() throws Exception {
+        var envelope = "<score><student>" + sample("similar-map-2.xml") + "</student></score>";
+        var response = post("/score?teacher=similar&methods=closeness-indexes", envelope);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"closeness-indexes\":{\"similarity\":"));
+
+        assertEquals(404, post("/score?teacher=other", envelope).statusCode());
+        assertEquals(400, post("/score?methods=other", envelope).statusCode());
+    }
+
+    @Test
+    void scoreInvalid() throws Exception {
+        assertEquals(400, post("/score", "<score><teacher>" + sample("similar-map-1.xml") + "</teacher></score>").statusCode());
+        assertEquals(400, post("/score", "<score><student>").statusCode());
+    }
+
+    @Test
+    void scoreBusy() throws Exception {
+        service.permits.acquire(2);
+        try {
+            var response = post("/score", "<score/>");
+            assertEquals(429, response.statusCode());
+            assertTrue(response.headers().firstValue("Retry-After").isPresent());
+        } finally {
+            service.permits.release(2);
+        }
+    }
+
+    @Test
+    void scoreTooLarge() throws Exception {
+        var response = post("/score", "<score>" + " ".repeat(1024 * 1024) + "</score>");
+        assertEquals(413, response.statusCode());
+        assertEquals(2, service.permits.availablePermits());
+    }
+
+    @Test
+    void scoreSlowUploads() throws Exception {
+
+        // Uploads that have not finished occupy all handlers, but not the permits of admitted requests
+        var uploads = new ArrayList<Socket>();
+        try {
+            for (var i = 0; i < 3; i++) {
+                var socket = new Socket("localhost", service.getPort());
+                socket.getOutputStream().write((
+                        "POST /score HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100\r\n\r\n<score>"
+                ).getBytes(StandardCharsets.US_ASCII));
+                uploads.add(socket);
+            }
+            while (service.handlers.getActiveCount() < 3) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, service.permits.availablePermits());
+
+            // Further requests are rejected instead of being handled by the server thread
+            var response = post("/score", "<score/>");
+            assertEquals(429, response.statusCode());
+            assertTrue(response.headers().firstValue("Retry-After").isPresent());
+        } finally {
+            for (var upload : uploads) {
+                upload.close();
+            }
+        }
+    }
+
+    @Test
+    void teachers() throws Exception {
+        var put = HttpRequest.newBuilder(uri("/teachers/other"))
+                .PUT(HttpRequest.BodyPublishers.ofString(sample("similar-map-3.xml")))
+                .build();
+        assertEquals(201, send(put).statusCode());
+        assertEquals(200, send(put).statusCode());
+        assertEquals(200, send(HttpRequest.newBuilder(uri("/teachers/other")).GET().build()).statusCode());
+
+        var delete = HttpRequest.newBuilder(uri("/teachers/other")).DELETE().build();
+        assertEquals(204, send(delete).statusCode());
+        assertEquals(404, send(delete).statusCode());
+    }
+
+    private String sample(String fileName) throws Exception {
+        // Strip the XML declaration, so that the concept map can be embedded
+        return Files.readString(Path.of(SAMPLES, fileName)).replaceFirst("<\\?xml[^>]*\\?>", "");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + service.getPort() + path);
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
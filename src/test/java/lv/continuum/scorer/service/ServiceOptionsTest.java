@@ -0,0 +1,56 @@
+package lv.continuum.scorer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ServiceOptionsTest {
+
+    @Test
+    void parseValid() {
+        var options = ServiceOptions.parse(
+                "--port", "9090",
+                "--threads", "2",
+                "--queue", "0",
+                "--timeout", "5",
+                "--max-body", "2",
+                "--teacher", "physics=teacher.xml"
+        );
+        assertEquals(9090, options.getPort());
+        assertEquals(2, options.getThreads());
+        assertEquals(0, options.getQueue());
+        assertEquals(Duration.ofSeconds(5), options.getTimeout());
+        assertEquals(2 * 1024 * 1024, options.getMaxBodyBytes());
+        assertEquals(Map.of("physics", "teacher.xml"), options.getTeacherPaths());
+    }
+
+    @Test
+    void parseDefaults() {
+        var options = ServiceOptions.parse();
+        assertEquals(8080, options.getPort());
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.getThreads());
+        assertEquals(options.getThreads() * 4, options.getQueue());
+        assertEquals(4 * 1024 * 1024, options.getMaxBodyBytes());
+    }
+
+    @Test
+    void parseInvalid() {
+        String[][] invalidArgs = {
+                {"--port"},
+                {"--port", "-1"},
+                {"--threads", "0"},
+                {"--timeout", "x"},
+                {"--max-body", "4096"},
+                {"--teacher", "teacher.xml"},
+                {"--teacher", "a/b=teacher.xml"},
+                {"student.xml"}
+        };
+        for (var args : invalidArgs) {
+            assertThrows(IllegalArgumentException.class, () -> ServiceOptions.parse(args));
+        }
+    }
+}
@@ -5,10 +5,12 @@ import org.assertj.swing.core.KeyPressInfo;
 import org.assertj.swing.edt.FailOnThreadViolationRepaintManager;
 import org.assertj.swing.edt.GuiActionRunner;
 import org.assertj.swing.fixture.FrameFixture;
+import org.assertj.swing.timing.Condition;
 import org.junit.jupiter.api.*;
 
 import java.awt.event.KeyEvent;
 
+import static org.assertj.swing.timing.Pause.pause;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 class ConceptMapScorerFrameIT {
@@ -55,6 +57,18 @@ class ConceptMapScorerFrameIT {
         scoreButton
                 .requireEnabled()
                 .click();
+
+        // Scoring runs in the background, and the cancel button is only enabled while it is in progress
+        var cancelButton = frameFixture.button("cancelButton");
+        pause(new Condition("scoring to finish") {
+
+            @Override
+            public boolean test() {
+                return !cancelButton.isEnabled();
+            }
+        });
+        scoreButton
+                .requireEnabled();
         scoreTextArea
                 .requireEnabled()
                 .requireNotEditable();